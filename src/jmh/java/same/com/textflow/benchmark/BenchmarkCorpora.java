@@ -0,0 +1,76 @@
+package same.com.textflow.benchmark;
+
+import java.util.Random;
+
+/**
+ * Deterministic text corpora shared by the benchmarks.
+ */
+final class BenchmarkCorpora {
+
+    static final String ASCII = "ascii";
+    static final String JAPANESE = "japanese";
+    static final String EMOJI = "emoji";
+    static final String WORST_CASE = "worst-case";
+
+    private static final String[] ASCII_WORDS = {
+            "the", "quick", "brown", "fox", "jumps", "over", "lazy", "dog", "lorem", "ipsum",
+            "dolor", "sit", "amet", "consectetur", "adipiscing", "elit", "TextFlow", "counter"
+    };
+
+    private static final String[] JAPANESE_PHRASES = {
+            "吾輩は猫である。", "名前はまだ無い。", "どこで生れたかとんと見当がつかぬ。",
+            "何でも薄暗いじめじめした所で", "ニャーニャー泣いていた事だけは記憶している。",
+            "　", "文字数カウント", "原稿用紙換算"
+    };
+
+    private static final String[] EMOJI_PHRASES = {
+            "😀", "👍🏽", "👨‍👩‍👧‍👦", "🇯🇵", "❤️", "🎉", "é", "ok ", "すごい", "!!"
+    };
+
+    private BenchmarkCorpora() {
+    }
+
+    static String of(String name, int length) {
+        Random random = new Random(42);
+        StringBuilder sb = new StringBuilder(length + 32);
+        switch (name) {
+            case ASCII -> {
+                while (sb.length() < length) {
+                    sb.append(ASCII_WORDS[random.nextInt(ASCII_WORDS.length)]);
+                    int r = random.nextInt(20);
+                    sb.append(r == 0 ? "\n\n" : r < 3 ? "\n" : " ");
+                }
+            }
+            case JAPANESE -> {
+                while (sb.length() < length) {
+                    sb.append(JAPANESE_PHRASES[random.nextInt(JAPANESE_PHRASES.length)]);
+                    if (random.nextInt(12) == 0) {
+                        sb.append(random.nextBoolean() ? "\n" : "\n\n");
+                    }
+                }
+            }
+            case EMOJI -> {
+                while (sb.length() < length) {
+                    sb.append(EMOJI_PHRASES[random.nextInt(EMOJI_PHRASES.length)]);
+                    if (random.nextInt(16) == 0) {
+                        sb.append('\n');
+                    }
+                }
+            }
+            case WORST_CASE -> {
+                // Alternating whitespace, control characters, CJK and surrogate pairs
+                String[] pieces = {" ", "\n", "\t", "\u0001", "あ", "a", "😀", " \n \n", "　"};
+                while (sb.length() < length) {
+                    sb.append(pieces[random.nextInt(pieces.length)]);
+                }
+            }
+            default -> throw new IllegalArgumentException("Unknown corpus: " + name);
+        }
+        sb.setLength(length);
+        // Do not leave a dangling high surrogate at the cut
+        if (Character.isHighSurrogate(sb.charAt(length - 1))) {
+            sb.setCharAt(length - 1, ' ');
+        }
+        return sb.toString();
+    }
+}
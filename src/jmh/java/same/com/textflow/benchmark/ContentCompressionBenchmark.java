@@ -0,0 +1,65 @@
+package same.com.textflow.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import same.com.textflow.text.CompressedText;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CPU cost of {@link CompressedText} against the bytes it saves; the Bytes
+ * counters give the ratio (storedBytes / rawBytes) per level.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ContentCompressionBenchmark {
+
+    @Param({
+            BenchmarkCorpora.ASCII,
+            BenchmarkCorpora.JAPANESE,
+            BenchmarkCorpora.EMOJI
+    })
+    private String corpus;
+
+    @Param({"2048", "20000", "100000"})
+    private int length;
+
+    // 1 is what TextBlobRepository uses, 6 is the Deflater default
+    @Param({"1", "6"})
+    private int level;
+
+    private String text;
+    private int rawBytes;
+    private byte[] packed;
+
+    @Setup
+    public void setUp() {
+        text = BenchmarkCorpora.of(corpus, length);
+        rawBytes = text.getBytes(StandardCharsets.UTF_8).length;
+        packed = CompressedText.compress(text, level);
+    }
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Bytes {
+        public long rawBytes;
+        public long storedBytes;
+    }
+
+    @Benchmark
+    public byte[] compress(Bytes bytes) {
+        byte[] result = CompressedText.compress(text, level);
+        bytes.rawBytes += rawBytes;
+        bytes.storedBytes += result == null ? rawBytes : result.length;
+        return result;
+    }
+
+    @Benchmark
+    public String decompress() {
+        return packed == null ? text : CompressedText.decompress(packed);
+    }
+}
@@ -0,0 +1,50 @@
+package same.com.textflow.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import same.com.textflow.dto.request.CountRequest;
+import same.com.textflow.dto.response.CountResponse;
+import same.com.textflow.service.CountMode;
+import same.com.textflow.service.CountResultCache;
+import same.com.textflow.service.CountService;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CountServiceBenchmark {
+
+    @Param({
+            BenchmarkCorpora.ASCII,
+            BenchmarkCorpora.JAPANESE,
+            BenchmarkCorpora.EMOJI,
+            BenchmarkCorpora.WORST_CASE
+    })
+    private String corpus;
+
+    // 100,000 is the CountRequest limit
+    @Param({"280", "10000", "100000"})
+    private int length;
+
+    @Param({"UTF16", "UNICODE"})
+    private CountMode mode;
+
+    private CountService countService;
+    private CountRequest request;
+
+    @Setup
+    public void setUp() {
+        // Caching disabled, this measures the counting itself
+        countService = new CountService(new CountResultCache(0, Integer.MAX_VALUE, new SimpleMeterRegistry()));
+        request = new CountRequest(BenchmarkCorpora.of(corpus, length));
+    }
+
+    @Benchmark
+    public CountResponse count() {
+        return countService.count(request, mode);
+    }
+}
@@ -0,0 +1,116 @@
+package same.com.textflow.benchmark;
+
+import org.h2.tools.Server;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One page of the history list read with the columns of the full entity
+ * versus the columns of TextHistorySummary. H2 runs in PostgreSQL mode behind
+ * its TCP server so every page is serialized over a socket, like the
+ * Postgres wire protocol. {@code chars / pages} is the string payload per page.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HistoryListQueryBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+    private static final int ROWS = 200;
+
+    private static final String ENTITY_QUERY = "SELECT id, user_id, title, content, content_type, char_count, "
+            + "line_count, created_at, updated_at FROM text_histories WHERE user_id = ? "
+            + "ORDER BY created_at DESC OFFSET ? ROWS FETCH FIRST ? ROWS ONLY";
+
+    private static final String SUMMARY_QUERY = "SELECT id, title, char_count, line_count, content_type, "
+            + "created_at, updated_at FROM text_histories WHERE user_id = ? "
+            + "ORDER BY created_at DESC OFFSET ? ROWS FETCH FIRST ? ROWS ONLY";
+
+    @Param({"1000", "100000"})
+    private int length;
+
+    private Server server;
+    private SingleConnectionDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private int page;
+
+    @Setup
+    public void setUp() throws SQLException {
+        server = Server.createTcpServer("-tcpPort", "0", "-ifNotExists").start();
+        dataSource = new SingleConnectionDataSource("jdbc:h2:tcp://localhost:" + server.getPort()
+                + "/mem:history-list;MODE=PostgreSQL;DB_CLOSE_DELAY=-1", "sa", "", true);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+
+        jdbcTemplate.execute("DROP TABLE IF EXISTS text_histories");
+        jdbcTemplate.execute("CREATE TABLE text_histories ("
+                + "id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, user_id BIGINT NOT NULL, "
+                + "title VARCHAR(100) NOT NULL, content TEXT NOT NULL, content_type VARCHAR(20) NOT NULL, "
+                + "char_count INT NOT NULL, line_count INT NOT NULL, "
+                + "created_at TIMESTAMP NOT NULL, updated_at TIMESTAMP NOT NULL)");
+        jdbcTemplate.execute("CREATE INDEX idx_text_histories_user_created ON text_histories (user_id, created_at)");
+
+        String content = BenchmarkCorpora.of(BenchmarkCorpora.JAPANESE, length);
+        for (int i = 0; i < ROWS; i++) {
+            jdbcTemplate.update("INSERT INTO text_histories (user_id, title, content, content_type, char_count, "
+                            + "line_count, created_at, updated_at) VALUES (1, ?, ?, 'plain', ?, 1, "
+                            + "DATEADD('SECOND', ?, TIMESTAMP '2024-01-01 00:00:00'), CURRENT_TIMESTAMP)",
+                    content.substring(0, 30), content, content.length(), i);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        jdbcTemplate.execute("DROP TABLE text_histories");
+        dataSource.destroy();
+        server.stop();
+    }
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Payload {
+        public long chars;
+        public long pages;
+    }
+
+    @Benchmark
+    public long entityColumns(Payload payload) {
+        return readPage(ENTITY_QUERY, payload);
+    }
+
+    @Benchmark
+    public long summaryColumns(Payload payload) {
+        return readPage(SUMMARY_QUERY, payload);
+    }
+
+    private long readPage(String sql, Payload payload) {
+        int offset = (page++ % (ROWS / PAGE_SIZE)) * PAGE_SIZE;
+        long[] chars = {0};
+        jdbcTemplate.query(sql, (ResultSet rs) -> {
+            ResultSetMetaData metaData = rs.getMetaData();
+            for (int c = 1; c <= metaData.getColumnCount(); c++) {
+                if (isText(metaData.getColumnType(c))) {
+                    chars[0] += rs.getString(c).length();
+                } else {
+                    rs.getObject(c);
+                }
+            }
+        }, 1L, offset, PAGE_SIZE);
+        payload.chars += chars[0];
+        payload.pages++;
+        return chars[0];
+    }
+
+    private static boolean isText(int sqlType) {
+        return sqlType == Types.VARCHAR || sqlType == Types.CLOB;
+    }
+}
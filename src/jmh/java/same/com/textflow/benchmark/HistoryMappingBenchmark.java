@@ -0,0 +1,153 @@
+package same.com.textflow.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import same.com.textflow.dto.request.HistoryRequest;
+import same.com.textflow.dto.request.ImportRequest;
+import same.com.textflow.dto.response.HistoryResponse;
+import same.com.textflow.dto.response.ImportResponse;
+import same.com.textflow.entity.TextBlob;
+import same.com.textflow.entity.TextHistory;
+import same.com.textflow.entity.User;
+import same.com.textflow.repository.TextBlobRepository;
+import same.com.textflow.repository.TextHistoryBulkWriter;
+import same.com.textflow.repository.TextHistoryRepository;
+import same.com.textflow.service.HistorySearchIndex;
+import same.com.textflow.service.HistoryService;
+import same.com.textflow.service.HistoryWriteBehind;
+import same.com.textflow.service.UserService;
+import same.com.textflow.service.WriteDurability;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DTO to entity mapping in HistoryService with the persistence layer stubbed out,
+ * so only title generation, statistics and entity/response building are measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HistoryMappingBenchmark {
+
+    private static final String EMAIL = "bench@example.com";
+
+    @Param({BenchmarkCorpora.ASCII, BenchmarkCorpora.JAPANESE})
+    private String corpus;
+
+    @Param({"1000", "100000"})
+    private int length;
+
+    private HistoryService historyService;
+    private HistoryRequest historyRequest;
+    private ImportRequest importRequest;
+
+    @Setup
+    public void setUp() {
+        User user = User.builder()
+                .id(1L)
+                .email(EMAIL)
+                .username("bench")
+                .build();
+
+        historyService = new HistoryService(stubRepository(), new StubBulkWriter(), new StubBlobRepository(),
+                new StubUserService(user), null, null,
+                new HistorySearchIndex(null, null, 0, 0, Duration.ofHours(1), new SimpleMeterRegistry()),
+                new HistoryWriteBehind(null, null, null, false, WriteDurability.COMMITTED, 1, 1,
+                        Duration.ofSeconds(30), new SimpleMeterRegistry()),
+                new DirectTransactionTemplate());
+
+        historyRequest = new HistoryRequest();
+        historyRequest.setContent(BenchmarkCorpora.of(corpus, length));
+
+        List<ImportRequest.ImportItem> items = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            ImportRequest.ImportItem item = new ImportRequest.ImportItem();
+            item.setContent(BenchmarkCorpora.of(corpus, Math.min(length, 2_000)));
+            items.add(item);
+        }
+        importRequest = new ImportRequest(items);
+    }
+
+    @Benchmark
+    public HistoryResponse createHistory() {
+        return historyService.createHistory(EMAIL, historyRequest);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(100)
+    public ImportResponse importHistories() {
+        return historyService.importHistories(EMAIL, importRequest);
+    }
+
+    // save() hands the entity back, every other repository method is unused here
+    static TextHistoryRepository stubRepository() {
+        return (TextHistoryRepository) Proxy.newProxyInstance(
+                TextHistoryRepository.class.getClassLoader(),
+                new Class<?>[]{TextHistoryRepository.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "save" -> args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "StubTextHistoryRepository";
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    static class StubBulkWriter extends TextHistoryBulkWriter {
+
+        StubBulkWriter() {
+            super(null, null, 500);
+        }
+
+        @Override
+        public int insertAll(List<TextHistory> histories) {
+            return (histories.size() + 499) / 500;
+        }
+    }
+
+    // Runs the callback without a transaction manager
+    static class DirectTransactionTemplate extends TransactionTemplate {
+
+        @Override
+        public <T> T execute(TransactionCallback<T> action) {
+            return action.doInTransaction(null);
+        }
+    }
+
+    // Hashes the content like the real acquire, without the database round trips
+    static class StubBlobRepository extends TextBlobRepository {
+
+        StubBlobRepository() {
+            super(null, false, 0);
+        }
+
+        @Override
+        public TextBlob acquire(String content) {
+            return TextBlob.of(content);
+        }
+    }
+
+    static class StubUserService extends UserService {
+
+        private final User user;
+
+        StubUserService(User user) {
+            super(null, null, null, null, null);
+            this.user = user;
+        }
+
+        @Override
+        public User getUserByEmail(String email) {
+            return user;
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package same.com.textflow.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed-loop HTTP load against a running server, for comparing platform and
+ * virtual request threads on {@code GET /api/histories} and
+ * {@code POST /api/count}. Not a JMH benchmark: it needs a live server and
+ * database, so it stays out of {@code mvn -Pbenchmark verify}.
+ * <p>
+ * Registers a fresh user, imports {@value #HISTORIES} histories, then per
+ * endpoint runs {@code threads} clients back to back for the warmup and the
+ * measured period and prints throughput and latency percentiles. Count texts
+ * are unique per request so the result cache does not answer them. A client
+ * waits {@value #ERROR_BACKOFF_MILLIS} ms after a failed request and stops
+ * after {@value #MAX_CONSECUTIVE_ERRORS} failures in a row, so a failing
+ * server shows up as stopped clients rather than as failures counted at CPU
+ * speed.
+ * <p>
+ * Run both modes from the same Java 21 jar, with the same pool size:
+ * <pre>
+ * docker compose up -d db
+ * mvn -Pjava21 -DskipTests package
+ * VIRTUAL_THREADS=false DB_POOL_SIZE=10 java -jar target/textflow-*.jar   # then the driver, then stop
+ * VIRTUAL_THREADS=true  DB_POOL_SIZE=10 java -jar target/textflow-*.jar   # then the driver again
+ *
+ * mvn -Pbenchmark test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=same.com.textflow.benchmark.HttpLoadDriver \
+ *     -Dexec.args="url=http://localhost:8080 threads=400 warmup=15 seconds=60"
+ * </pre>
+ * Run the driver from another host than the server when possible, and repeat
+ * with a few thread counts (e.g. 50, 200, 800) to find where each mode saturates.
+ */
+public class HttpLoadDriver {
+
+    private static final int HISTORIES = 200;
+    private static final int PAGE_SIZE = 20;
+    private static final int COUNT_LENGTH = 2_000;
+    private static final long ERROR_BACKOFF_MILLIS = 100;
+    private static final int MAX_CONSECUTIVE_ERRORS = 20;
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final String url;
+    private final AtomicLong sequence = new AtomicLong();
+    private String authorization;
+
+    private HttpLoadDriver(String url) {
+        this.url = url;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>(Map.of(
+                "url", "http://localhost:8080", "threads", "200", "warmup", "10", "seconds", "30",
+                "endpoints", "histories,count"));
+        for (String arg : args) {
+            String[] pair = arg.split("=", 2);
+            options.put(pair[0], pair[1]);
+        }
+        int threads = Integer.parseInt(options.get("threads"));
+
+        HttpLoadDriver driver = new HttpLoadDriver(options.get("url"));
+        driver.seed();
+        System.out.printf("%-10s %7s %9s %7s %10s %8s %8s %8s %8s%n",
+                "endpoint", "threads", "requests", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "max ms");
+        for (String endpoint : options.get("endpoints").split(",")) {
+            Call call = endpoint.equals("count") ? driver::count : driver::histories;
+            driver.run(call, threads, Integer.parseInt(options.get("warmup")));
+            Result result = driver.run(call, threads, Integer.parseInt(options.get("seconds")));
+            System.out.printf("%-10s %7d %9d %7d %10.1f %8.2f %8.2f %8.2f %8.2f%n",
+                    endpoint, threads, result.latencies.length, result.errors,
+                    result.latencies.length / result.seconds,
+                    result.percentile(0.50), result.percentile(0.90), result.percentile(0.99),
+                    result.percentile(1.0));
+            if (result.stoppedClients > 0) {
+                System.out.printf("%-10s %d of %d clients stopped after %d errors in a row; not comparable%n",
+                        endpoint, result.stoppedClients, threads, MAX_CONSECUTIVE_ERRORS);
+            }
+        }
+    }
+
+    private void seed() throws Exception {
+        String name = "load" + System.currentTimeMillis();
+        String password = "load-password";
+        send(post("/api/auth/register", Map.of("username", name, "email", name + "@example.com",
+                "password", password)));
+        JsonNode login = objectMapper.readTree(
+                send(post("/api/auth/login", Map.of("email", name + "@example.com", "password", password))));
+        authorization = "Bearer " + login.get("accessToken").asText();
+
+        List<Map<String, String>> histories = new ArrayList<>();
+        for (int i = 0; i < HISTORIES; i++) {
+            histories.add(Map.of("title", "負荷試験 " + i, "contentType", "plain",
+                    "content", BenchmarkCorpora.of(BenchmarkCorpora.JAPANESE, COUNT_LENGTH)));
+        }
+        send(post("/api/histories/import", Map.of("histories", histories)));
+    }
+
+    private void histories() throws Exception {
+        long page = sequence.incrementAndGet() % (HISTORIES / PAGE_SIZE);
+        send(HttpRequest.newBuilder(URI.create(url + "/api/histories?size=" + PAGE_SIZE + "&page=" + page))
+                .header("Authorization", authorization)
+                .GET()
+                .build());
+    }
+
+    private void count() throws Exception {
+        String text = sequence.incrementAndGet() + " " + BenchmarkCorpora.of(BenchmarkCorpora.JAPANESE, COUNT_LENGTH);
+        send(post("/api/count", Map.of("text", text)));
+    }
+
+    private Result run(Call call, int threads, int seconds) throws Exception {
+        long deadline = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+        AtomicLong errors = new AtomicLong();
+        AtomicLong stoppedClients = new AtomicLong();
+        ExecutorService clients = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<long[]>> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                workers.add(clients.submit(() -> {
+                    long[] latencies = new long[1024];
+                    int n = 0;
+                    int consecutiveErrors = 0;
+                    while (System.nanoTime() < deadline) {
+                        long started = System.nanoTime();
+                        try {
+                            call.send();
+                            consecutiveErrors = 0;
+                        } catch (Exception e) {
+                            errors.incrementAndGet();
+                            if (++consecutiveErrors == MAX_CONSECUTIVE_ERRORS) {
+                                stoppedClients.incrementAndGet();
+                                break;
+                            }
+                            Thread.sleep(ERROR_BACKOFF_MILLIS);
+                            continue;
+                        }
+                        if (n == latencies.length) {
+                            latencies = Arrays.copyOf(latencies, n * 2);
+                        }
+                        latencies[n++] = System.nanoTime() - started;
+                    }
+                    return Arrays.copyOf(latencies, n);
+                }));
+            }
+            List<long[]> all = new ArrayList<>();
+            for (Future<long[]> worker : workers) {
+                all.add(worker.get());
+            }
+            long[] latencies = all.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+            return new Result(latencies, errors.get(), stoppedClients.get(), seconds);
+        } finally {
+            clients.shutdownNow();
+        }
+    }
+
+    private HttpRequest post(String path, Object body) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(url + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(body)));
+        if (authorization != null) {
+            request.header("Authorization", authorization);
+        }
+        return request.build();
+    }
+
+    private String send(HttpRequest request) throws Exception {
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() >= 300) {
+            throw new IllegalStateException(request.method() + " " + request.uri() + " returned "
+                    + response.statusCode() + ": " + response.body());
+        }
+        return response.body();
+    }
+
+    @FunctionalInterface
+    private interface Call {
+        void send() throws Exception;
+    }
+
+    private record Result(long[] latencies, long errors, long stoppedClients, double seconds) {
+
+        double percentile(double p) {
+            if (latencies.length == 0) {
+                return Double.NaN;
+            }
+            int index = (int) Math.min(latencies.length - 1, Math.ceil(p * latencies.length) - 1);
+            return latencies[Math.max(0, index)] / 1_000_000.0;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package same.com.textflow.benchmark;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.util.ReflectionTestUtils;
+import same.com.textflow.entity.User;
+import same.com.textflow.security.JwtTokenProvider;
+import same.com.textflow.security.UserPrincipal;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request token handling in the authentication filter: the former
+ * validate-then-extract with a parser built per call, a single parse with a
+ * shared parser, and the verified-token cache.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtParseBenchmark {
+
+    private static final String SECRET = "benchmark-secret-key-for-jwt-signing-at-least-32-chars";
+
+    private SecretKey secretKey;
+    private JwtParser parser;
+    private JwtTokenProvider jwtTokenProvider;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtTokenProvider = new JwtTokenProvider(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(jwtTokenProvider, "jwtSecret", SECRET);
+        ReflectionTestUtils.setField(jwtTokenProvider, "jwtExpirationMs", 3_600_000L);
+        ReflectionTestUtils.setField(jwtTokenProvider, "verifiedCacheMaxEntries", 10_000L);
+        jwtTokenProvider.init();
+
+        UserPrincipal principal = UserPrincipal.create(User.builder().id(1L).email("bench@example.com").build(), false);
+        token = jwtTokenProvider.generateToken(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+
+        secretKey = Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8));
+        parser = Jwts.parser().verifyWith(secretKey).build();
+    }
+
+    @Benchmark
+    public Claims parseTwice() {
+        Jwts.parser().verifyWith(secretKey).build().parseSignedClaims(token);
+        return Jwts.parser().verifyWith(secretKey).build().parseSignedClaims(token).getPayload();
+    }
+
+    @Benchmark
+    public Claims sharedParser() {
+        return parser.parseSignedClaims(token).getPayload();
+    }
+
+    @Benchmark
+    public Claims cached() {
+        return jwtTokenProvider.parseClaims(token);
+    }
+}
@@ -0,0 +1,76 @@
+-- Plan check for TextHistorySearchRepository#search. The statements mirror
+-- its SEARCH_SQL and COUNT_SQL; keep them in sync when the query changes.
+--
+-- Run against a database the app has started on with app.search.mode=postgres
+-- (so TextHistorySearchSchema has created the columns and indexes):
+--   docker compose up -d db
+--   psql -h localhost -U textflow -d textflow -f src/jmh/sql/history_search_explain.sql
+--
+-- Seeds 200 users x 500 histories in a transaction that is rolled back. The
+-- title branch should use bitmap scans on idx_text_histories_title_vector /
+-- idx_text_histories_title_trgm (with idx_text_histories_user_created_id).
+-- The content branch should start from the user's rows (an index scan on
+-- idx_text_histories_user_created_id or idx_text_histories_content_user),
+-- look up only those blobs by text_blobs_pkey and join back through
+-- idx_text_histories_content_user. Rows examined on text_blobs should be
+-- about the user's 500, not the ~1000 content matches across all users; a
+-- Seq Scan on either table means a branch lost its index.
+
+\set ON_ERROR_STOP on
+\set q '打ち合わせ'
+\set pattern '%打ち合わせ%'
+
+BEGIN;
+
+CREATE TEMP TABLE seed ON COMMIT DROP AS
+SELECT g,
+       'explain_' || (g % 200) AS username,
+       CASE WHEN g % 250 = 0 THEN '打ち合わせメモ ' ELSE '下書き ' END || g AS title,
+       CASE WHEN g % 100 = 0 THEN '来週の打ち合わせの議事録 ' ELSE '日々のメモと下書き ' END
+           || repeat('本文 ' || g || ' ', 50) AS content
+FROM generate_series(1, 100000) g;
+
+INSERT INTO users (username, plan, created_at, updated_at)
+SELECT DISTINCT username, 'free', now(), now() FROM seed;
+
+INSERT INTO text_blobs (hash, content, ref_count)
+SELECT encode(sha256(convert_to(content, 'UTF8')), 'hex'), content, 1 FROM seed;
+
+INSERT INTO text_histories (user_id, title, content_hash, content_type, char_count, line_count,
+                            created_at, updated_at)
+SELECT u.id, s.title, encode(sha256(convert_to(s.content, 'UTF8')), 'hex'), 'plain', length(s.content), 1,
+       timestamp '2024-01-01' + s.g * interval '1 minute', timestamp '2024-01-01'
+FROM seed s JOIN users u ON u.username = s.username;
+
+ANALYZE users;
+ANALYZE text_blobs;
+ANALYZE text_histories;
+
+SELECT id AS user_id FROM users WHERE username = 'explain_0' \gset
+
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT h.id, h.title, h.char_count, h.line_count, h.byte_count, h.word_count,
+       h.paragraph_count, h.manuscript_count, h.content_type, h.created_at, h.updated_at,
+       ts_rank_cd(h.title_vector || b.search_vector, plainto_tsquery('simple', :'q'))
+           + CASE WHEN h.title ILIKE :'pattern' THEN 1 ELSE 0 END AS rank,
+       substr(b.content, greatest(1, strpos(lower(b.content), lower(:'q')) - 40), 160) AS snippet
+FROM (SELECT h.id FROM text_histories h WHERE h.user_id = :user_id
+          AND (h.title_vector @@ plainto_tsquery('simple', :'q') OR h.title ILIKE :'pattern')
+      UNION
+      SELECT h.id FROM text_blobs b JOIN text_histories h ON h.content_hash = b.hash AND h.user_id = :user_id
+      WHERE b.hash IN (SELECT content_hash FROM text_histories WHERE user_id = :user_id)
+        AND (b.search_vector @@ plainto_tsquery('simple', :'q') OR b.content ILIKE :'pattern')) m
+JOIN text_histories h ON h.id = m.id
+JOIN text_blobs b ON b.hash = h.content_hash
+ORDER BY rank DESC, h.created_at DESC, h.id DESC LIMIT 20 OFFSET 0;
+
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT COUNT(*)
+FROM (SELECT h.id FROM text_histories h WHERE h.user_id = :user_id
+          AND (h.title_vector @@ plainto_tsquery('simple', :'q') OR h.title ILIKE :'pattern')
+      UNION
+      SELECT h.id FROM text_blobs b JOIN text_histories h ON h.content_hash = b.hash AND h.user_id = :user_id
+      WHERE b.hash IN (SELECT content_hash FROM text_histories WHERE user_id = :user_id)
+        AND (b.search_vector @@ plainto_tsquery('simple', :'q') OR b.content ILIKE :'pattern')) m;
+
+ROLLBACK;
@@ -53,7 +53,9 @@ public class SecurityConfig {
                 .authorizeHttpRequests(auth -> auth
                         // Public endpoints
                         .requestMatchers("/api/auth/**").permitAll()
-                        .requestMatchers("/api/count").permitAll()
+                        .requestMatchers("/api/count", "/api/count/stream", "/api/count/batch", "/api/count/sessions/**")
+                        .permitAll()
+                        .requestMatchers("/api/diffs/compute").permitAll()
                         // OAuth2 endpoints
                         .requestMatchers("/api/oauth2/**", "/api/login/oauth2/**").permitAll()
                         // Swagger/OpenAPI
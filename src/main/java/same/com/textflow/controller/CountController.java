@@ -4,11 +4,26 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import same.com.textflow.dto.request.CountEditRequest;
 import same.com.textflow.dto.request.CountRequest;
+import same.com.textflow.dto.request.CountSessionRequest;
+import same.com.textflow.dto.response.CountBatchResponse;
 import same.com.textflow.dto.response.CountResponse;
+import same.com.textflow.dto.response.CountSessionResponse;
+import same.com.textflow.service.CountBatchService;
+import same.com.textflow.service.CountMode;
 import same.com.textflow.service.CountService;
+import same.com.textflow.service.CountSessionService;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
 
 @RestController
 @RequestMapping("/api/count")
@@ -17,11 +32,72 @@ import same.com.textflow.service.CountService;
 public class CountController {
 
     private final CountService countService;
+    private final CountSessionService countSessionService;
+    private final CountBatchService countBatchService;
 
     @PostMapping
-    @Operation(summary = "文字数カウント", description = "テキストの文字数、バイト数、行数などをカウントします")
-    public ResponseEntity<CountResponse> count(@Valid @RequestBody CountRequest request) {
-        CountResponse response = countService.count(request);
+    @Operation(summary = "文字数カウント", description = "テキストの文字数、バイト数、行数などをカウントします。mode=unicodeでコードポイント数、書記素クラスタ数、X(Twitter)の重み付き文字数も返します")
+    public ResponseEntity<CountResponse> count(
+            @Valid @RequestBody CountRequest request,
+            @RequestParam(defaultValue = "utf16") String mode) {
+        CountResponse response = countService.count(request, CountMode.of(mode));
+        return ResponseEntity.ok(response);
+    }
+
+    @PostMapping(value = "/stream", consumes = MediaType.TEXT_PLAIN_VALUE)
+    @Operation(summary = "ストリーミング文字数カウント", description = "text/plainの本文を逐次読み込み、サイズに依存しない一定のメモリでカウントします。大きなテキストはこちらで送信してください")
+    public ResponseEntity<CountResponse> countStream(
+            InputStream body,
+            @RequestParam(defaultValue = "utf16") String mode) throws IOException {
+        CountMode countMode = CountMode.of(mode);
+        try (ReadableByteChannel channel = Channels.newChannel(body)) {
+            return ResponseEntity.ok(countService.count(channel, countMode));
+        }
+    }
+
+    @PostMapping(value = "/stream", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @Operation(summary = "ファイル文字数カウント", description = "アップロードされたUTF-8テキストファイルを逐次読み込んでカウントします。サイズは共通のアップロード上限までです。大きなテキストはtext/plainで送信してください")
+    public ResponseEntity<CountResponse> countFile(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(defaultValue = "utf16") String mode) throws IOException {
+        CountMode countMode = CountMode.of(mode);
+        try (ReadableByteChannel channel = Channels.newChannel(file.getInputStream())) {
+            return ResponseEntity.ok(countService.count(channel, countMode));
+        }
+    }
+
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "一括文字数カウント", description = "{\"texts\": [...]} の各テキストを並列にカウントし、同じ順序で結果を返します")
+    public ResponseEntity<CountBatchResponse> countBatch(InputStream body) throws IOException {
+        return ResponseEntity.ok(countBatchService.countJson(body));
+    }
+
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "一括文字数カウント（NDJSON）", description = "1行に1件（文字列または {\"text\": ...}）のテキストを並列にカウントします")
+    public ResponseEntity<CountBatchResponse> countBatchNdjson(InputStream body) throws IOException {
+        return ResponseEntity.ok(countBatchService.countNdjson(body));
+    }
+
+    @PostMapping("/sessions")
+    @Operation(summary = "差分カウントセッション開始", description = "テキストを登録し、以降は編集差分だけで文字数を更新できるセッションを作成します")
+    public ResponseEntity<CountSessionResponse> createSession(@Valid @RequestBody CountSessionRequest request) {
+        CountSessionResponse response = countSessionService.createSession(request);
+        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    }
+
+    @PostMapping("/sessions/{token}/edits")
+    @Operation(summary = "差分カウント", description = "編集差分（offset, deleteLength, insertText）を適用し、更新後の文字数を返します")
+    public ResponseEntity<CountSessionResponse> applyEdits(
+            @PathVariable String token,
+            @Valid @RequestBody CountEditRequest request) {
+        CountSessionResponse response = countSessionService.applyEdits(token, request);
         return ResponseEntity.ok(response);
     }
+
+    @DeleteMapping("/sessions/{token}")
+    @Operation(summary = "差分カウントセッション終了", description = "セッションを破棄します")
+    public ResponseEntity<Void> closeSession(@PathVariable String token) {
+        countSessionService.closeSession(token);
+        return ResponseEntity.noContent().build();
+    }
 }
@@ -0,0 +1,76 @@
+package same.com.textflow.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.web.bind.annotation.*;
+import same.com.textflow.dto.request.DiffRequest;
+import same.com.textflow.dto.response.DiffDetailResponse;
+import same.com.textflow.dto.response.DiffHistoryResponse;
+import same.com.textflow.dto.response.DiffResponse;
+import same.com.textflow.service.DiffGranularity;
+import same.com.textflow.service.DiffService;
+
+@RestController
+@RequestMapping("/api/diffs")
+@RequiredArgsConstructor
+@Tag(name = "Diff", description = "テキスト差分API")
+public class DiffController {
+
+    private final DiffService diffService;
+
+    @PostMapping("/compute")
+    @Operation(summary = "差分計算", description = "2つのテキストの行単位の差分を計算します（保存はしません）。granularity=word/charで変更行内の差分も返します")
+    public ResponseEntity<DiffResponse> compute(@Valid @RequestBody DiffRequest request) {
+        DiffResponse response = diffService.compute(request);
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping
+    @Operation(summary = "差分履歴一覧取得", description = "ユーザーの差分履歴一覧を取得します")
+    public ResponseEntity<Page<DiffHistoryResponse>> getDiffs(
+            @AuthenticationPrincipal UserDetails userDetails,
+            @PageableDefault(size = 20, sort = "createdAt", direction = Sort.Direction.DESC) Pageable pageable) {
+        Page<DiffHistoryResponse> diffs = diffService.getDiffs(userDetails.getUsername(), pageable);
+        return ResponseEntity.ok(diffs);
+    }
+
+    @PostMapping
+    @Operation(summary = "差分保存", description = "差分を計算し、集計結果を履歴として保存します")
+    public ResponseEntity<DiffResponse> createDiff(
+            @AuthenticationPrincipal UserDetails userDetails,
+            @Valid @RequestBody DiffRequest request) {
+        DiffResponse response = diffService.createDiff(userDetails.getUsername(), request);
+        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    }
+
+    @GetMapping("/{id}")
+    @Operation(summary = "差分履歴詳細取得", description = "保存した差分の本文とハンクを取得します")
+    public ResponseEntity<DiffDetailResponse> getDiff(
+            @AuthenticationPrincipal UserDetails userDetails,
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "3") int contextLines,
+            @RequestParam(defaultValue = "line") String granularity) {
+        DiffDetailResponse response = diffService.getDiff(
+                userDetails.getUsername(), id, contextLines, DiffGranularity.of(granularity));
+        return ResponseEntity.ok(response);
+    }
+
+    @DeleteMapping("/{id}")
+    @Operation(summary = "差分履歴削除", description = "差分履歴を削除します")
+    public ResponseEntity<Void> deleteDiff(
+            @AuthenticationPrincipal UserDetails userDetails,
+            @PathVariable Long id) {
+        diffService.deleteDiff(userDetails.getUsername(), id);
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -2,6 +2,7 @@ package same.com.textflow.controller;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
@@ -9,6 +10,7 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -17,9 +19,14 @@ import same.com.textflow.dto.request.HistoryRequest;
 import same.com.textflow.dto.request.ImportRequest;
 import same.com.textflow.dto.response.HistoryDetailResponse;
 import same.com.textflow.dto.response.HistoryResponse;
+import same.com.textflow.dto.response.HistorySliceResponse;
 import same.com.textflow.dto.response.ImportResponse;
+import same.com.textflow.service.HistoryImportService;
 import same.com.textflow.service.HistoryService;
 
+import java.io.IOException;
+import java.io.InputStream;
+
 @RestController
 @RequestMapping("/api/histories")
 @RequiredArgsConstructor
@@ -27,6 +34,7 @@ import same.com.textflow.service.HistoryService;
 public class HistoryController {
 
     private final HistoryService historyService;
+    private final HistoryImportService historyImportService;
 
     @GetMapping
     @Operation(summary = "履歴一覧取得", description = "ユーザーの履歴一覧を取得します")
@@ -45,6 +53,17 @@ public class HistoryController {
         return ResponseEntity.ok(histories);
     }
 
+    @GetMapping("/scroll")
+    @Operation(summary = "履歴一覧取得（カーソル）",
+            description = "作成日時の新しい順に履歴を取得します。次のページはレスポンスのnextCursorを指定して取得します")
+    public ResponseEntity<HistorySliceResponse> scrollHistories(
+            @AuthenticationPrincipal UserDetails userDetails,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        HistorySliceResponse histories = historyService.scrollHistories(userDetails.getUsername(), cursor, size);
+        return ResponseEntity.ok(histories);
+    }
+
     @PostMapping
     @Operation(summary = "履歴保存", description = "新しい履歴を保存します")
     public ResponseEntity<HistoryResponse> createHistory(
@@ -80,4 +99,18 @@ public class HistoryController {
         ImportResponse response = historyService.importHistories(userDetails.getUsername(), request);
         return ResponseEntity.ok(response);
     }
+
+    @PostMapping(
+            value = "/import/stream",
+            consumes = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE},
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "履歴ストリーミングインポート", description = "NDJSONまたはJSON配列の履歴を逐次読み込んでバッチごとに保存し、進捗をNDJSONで返します")
+    public void importHistoriesStream(
+            @AuthenticationPrincipal UserDetails userDetails,
+            InputStream body,
+            HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        historyImportService.importStream(userDetails.getUsername(), body, response.getOutputStream());
+    }
 }
@@ -0,0 +1,18 @@
+package same.com.textflow.dto.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CountBatchRequest {
+
+    // Validated by CountBatchService while the body is read under a byte limit
+    private List<String> texts;
+}
@@ -0,0 +1,42 @@
+package same.com.textflow.dto.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CountEditRequest {
+
+    @NotEmpty(message = "編集内容が必要です")
+    @Size(max = 1000, message = "一度に送信できる編集は1,000件までです")
+    @Valid
+    private List<Edit> edits;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Edit {
+
+        @NotNull(message = "offsetは必須です")
+        @Min(value = 0, message = "offsetは0以上で指定してください")
+        private Integer offset;
+
+        @Min(value = 0, message = "deleteLengthは0以上で指定してください")
+        private int deleteLength;
+
+        @Size(max = 100000, message = "挿入テキストは100,000文字以内で入力してください")
+        private String insertText;
+    }
+}
@@ -0,0 +1,38 @@
+package same.com.textflow.dto.request;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DiffRequest {
+
+    @Size(max = 100, message = "タイトルは100文字以内で入力してください")
+    private String title;
+
+    @NotNull(message = "変更前のテキストは必須です")
+    @Size(max = 100000, message = "変更前のテキストは100,000文字以内で入力してください")
+    private String textBefore;
+
+    @NotNull(message = "変更後のテキストは必須です")
+    @Size(max = 100000, message = "変更後のテキストは100,000文字以内で入力してください")
+    private String textAfter;
+
+    // Unchanged lines shown around each hunk
+    @Min(value = 0, message = "前後の行数は0以上で指定してください")
+    @Max(value = 100, message = "前後の行数は100以下で指定してください")
+    @Builder.Default
+    private Integer contextLines = 3;
+
+    // "line", "word" or "char"
+    @Builder.Default
+    private String granularity = "line";
+}
@@ -22,4 +22,8 @@ public class HistoryRequest {
 
     @Builder.Default
     private String contentType = "plain";
+
+    // Autosaves of the same draft within app.history.draft.coalesce-window-ms update one history
+    @Size(max = 64, message = "下書きIDは64文字以内で指定してください")
+    private String draftId;
 }
@@ -2,6 +2,7 @@ package same.com.textflow.dto.request;
 
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -25,9 +26,17 @@ public class ImportRequest {
     @AllArgsConstructor
     @Builder
     public static class ImportItem {
+        // Also checked per item by HistoryImportService, which binds items one at a time
+        @Size(max = 100, message = "タイトルは100文字以内で入力してください")
         private String title;
+
+        @Size(max = 100000, message = "コンテンツは100,000文字以内で入力してください")
         private String content;
+
+        // text_histories.content_type
+        @Size(max = 20, message = "コンテンツタイプは20文字以内で指定してください")
         private String contentType;
+
         private LocalDateTime createdAt;
     }
 }
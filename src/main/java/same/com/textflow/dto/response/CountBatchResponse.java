@@ -0,0 +1,18 @@
+package same.com.textflow.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CountBatchResponse {
+
+    private int count;
+    private List<CountResponse> results;
+}
@@ -1,5 +1,6 @@
 package same.com.textflow.dto.response;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -8,7 +9,7 @@ import lombok.NoArgsConstructor;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-@Builder
+@Builder(toBuilder = true)
 public class CountResponse {
 
     private int totalChars;
@@ -20,4 +21,12 @@ public class CountResponse {
     private int manuscripts;
     private int twitterRemaining;
     private int instagramRemaining;
+
+    // Only present in unicode mode
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer codePoints;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer graphemes;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer weightedLength;
 }
@@ -0,0 +1,17 @@
+package same.com.textflow.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CountSessionResponse {
+
+    private String sessionToken;
+    private int length;
+    private CountResponse count;
+}
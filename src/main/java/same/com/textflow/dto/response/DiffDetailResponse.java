@@ -0,0 +1,29 @@
+package same.com.textflow.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DiffDetailResponse {
+
+    private Long id;
+    private String title;
+    private String textBefore;
+    private String textAfter;
+    private Integer addedLines;
+    private Integer deletedLines;
+    private Integer changedLines;
+    private List<DiffResponse.Hunk> hunks;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Boolean refinementComplete;
+    private LocalDateTime createdAt;
+}
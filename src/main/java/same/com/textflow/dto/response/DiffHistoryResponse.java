@@ -0,0 +1,22 @@
+package same.com.textflow.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DiffHistoryResponse {
+
+    private Long id;
+    private String title;
+    private Integer addedLines;
+    private Integer deletedLines;
+    private Integer changedLines;
+    private LocalDateTime createdAt;
+}
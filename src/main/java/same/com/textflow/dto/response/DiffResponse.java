@@ -0,0 +1,65 @@
+package same.com.textflow.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DiffResponse {
+
+    // null when the diff was only computed, not saved
+    private Long id;
+    private String title;
+    private Integer addedLines;
+    private Integer deletedLines;
+    private Integer changedLines;
+    private List<Hunk> hunks;
+    // false when the refinement time budget ran out and some lines were left unrefined
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Boolean refinementComplete;
+    private LocalDateTime createdAt;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Hunk {
+        // 1-based line numbers, as in unified diff
+        private int oldStart;
+        private int oldLines;
+        private int newStart;
+        private int newLines;
+        private List<Line> lines;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Line {
+        // "equal", "delete" or "insert"
+        private String type;
+        private String text;
+        // Intra-line changes of a changed line pair, when refined
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        private List<Segment> segments;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Segment {
+        // "equal", "delete" or "insert"
+        private String type;
+        private String text;
+    }
+}
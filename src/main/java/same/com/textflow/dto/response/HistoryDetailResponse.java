@@ -19,6 +19,10 @@ public class HistoryDetailResponse {
     private String contentType;
     private Integer charCount;
     private Integer lineCount;
+    private Integer byteCount;
+    private Integer wordCount;
+    private Integer paragraphCount;
+    private Integer manuscriptCount;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 }
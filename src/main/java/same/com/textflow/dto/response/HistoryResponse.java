@@ -1,11 +1,13 @@
 package same.com.textflow.dto.response;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Data
 @NoArgsConstructor
@@ -17,7 +19,33 @@ public class HistoryResponse {
     private String title;
     private Integer charCount;
     private Integer lineCount;
+    private Integer byteCount;
+    private Integer wordCount;
+    private Integer paragraphCount;
+    private Integer manuscriptCount;
     private String contentType;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
+
+    // Set by full-text search only
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Double rank;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String snippet;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<Highlight> titleHighlights;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<Highlight> snippetHighlights;
+
+    /**
+     * Matched range [start, end) in UTF-16 code units of the title or snippet.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Highlight {
+        private int start;
+        private int end;
+    }
 }
@@ -0,0 +1,19 @@
+package same.com.textflow.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class HistorySliceResponse {
+
+    private List<HistoryResponse> content;
+    private boolean hasNext;
+    private String nextCursor;
+}
@@ -0,0 +1,27 @@
+package same.com.textflow.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One line of the NDJSON progress stream of a streaming import.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ImportProgressResponse {
+
+    // "progress" after each committed batch, then "complete" or "error"
+    private String type;
+    private long imported;
+    private long skipped;
+    private long batches;
+    private Long elapsedMillis;
+    private Double itemsPerSecond;
+    private String message;
+}
@@ -13,4 +13,8 @@ public class ImportResponse {
 
     private int imported;
     private String message;
+    // Throughput of the import, one INSERT statement per batch
+    private int batches;
+    private long elapsedMillis;
+    private double itemsPerSecond;
 }
@@ -15,6 +15,9 @@ import java.time.LocalDateTime;
 @Builder
 public class DiffHistory {
 
+    public static final String STORAGE_FULL = "full";
+    public static final String STORAGE_DELTA = "delta";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -29,9 +32,17 @@ public class DiffHistory {
     @Column(name = "text_before", nullable = false, columnDefinition = "TEXT")
     private String textBefore;
 
+    // Empty in delta mode, rebuilt from textBefore and editScript
     @Column(name = "text_after", nullable = false, columnDefinition = "TEXT")
     private String textAfter;
 
+    // null on rows saved before delta storage existed, which are full
+    @Column(name = "storage_mode", length = 10)
+    private String storageMode;
+
+    @Column(name = "edit_script")
+    private byte[] editScript;
+
     @Column(name = "added_lines", nullable = false)
     @Builder.Default
     private Integer addedLines = 0;
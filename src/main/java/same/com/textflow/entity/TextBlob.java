@@ -0,0 +1,78 @@
+package same.com.textflow.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import same.com.textflow.text.CompressedText;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * History content stored once per distinct text, keyed by its SHA-256.
+ * {@code refCount} is the number of text_histories rows pointing at it; see
+ * {@link same.com.textflow.repository.TextBlobRepository} for how it is kept.
+ * <p>
+ * Large content may be stored as {@link CompressedText} in
+ * {@code packedContent} with {@code content} null; {@link #getContent()}
+ * decompresses it on first access.
+ */
+@Entity
+@Table(name = "text_blobs")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TextBlob {
+
+    @Id
+    @Column(length = 64)
+    private String hash;
+
+    @Column(columnDefinition = "TEXT")
+    private String content;
+
+    @Column(name = "packed_content")
+    private byte[] packedContent;
+
+    @Column(name = "ref_count", nullable = false)
+    private long refCount;
+
+    @Transient
+    private String unpackedContent;
+
+    public String getContent() {
+        if (content == null && packedContent != null) {
+            if (unpackedContent == null) {
+                unpackedContent = CompressedText.decompress(packedContent);
+            }
+            return unpackedContent;
+        }
+        return content;
+    }
+
+    /**
+     * An unsaved blob for {@code content}, with no references yet.
+     */
+    public static TextBlob of(String content) {
+        return TextBlob.builder()
+                .hash(hash(content))
+                .content(content)
+                .build();
+    }
+
+    /**
+     * Lowercase hex SHA-256 of the UTF-8 bytes, the same as PostgreSQL's
+     * {@code encode(sha256(convert_to(content, 'UTF8')), 'hex')}.
+     */
+    public static String hash(String content) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(content.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -8,7 +8,12 @@ import org.hibernate.annotations.UpdateTimestamp;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "text_histories")
+@Table(name = "text_histories", indexes = {
+        // Keyset pagination of a user's list, see TextHistoryRepository#findSummaryAfter
+        @Index(name = "idx_text_histories_user_created_id", columnList = "user_id, created_at DESC, id DESC"),
+        // Latest revision of a draft, see HistoryService#createHistory
+        @Index(name = "idx_text_histories_user_draft", columnList = "user_id, draft_id, created_at DESC")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -27,8 +32,17 @@ public class TextHistory {
     @Column(nullable = false, length = 100)
     private String title;
 
-    @Column(nullable = false, columnDefinition = "TEXT")
-    private String content;
+    // Nullable in the schema while rows written by earlier releases are backfilled, see TextBlobMigration
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "content_hash")
+    private TextBlob blob;
+
+    // Inline content of rows written before text_blobs, read until TextBlobMigration has moved it
+    @Column(name = "content", columnDefinition = "TEXT", insertable = false, updatable = false)
+    private String legacyContent;
+
+    @Column(name = "draft_id", length = 64)
+    private String draftId;
 
     @Column(name = "content_type", nullable = false, length = 20)
     @Builder.Default
@@ -42,6 +56,19 @@ public class TextHistory {
     @Builder.Default
     private Integer lineCount = 0;
 
+    // Computed with the rest of the statistics when the row is written; null on rows older than these columns
+    @Column(name = "byte_count")
+    private Integer byteCount;
+
+    @Column(name = "word_count")
+    private Integer wordCount;
+
+    @Column(name = "paragraph_count")
+    private Integer paragraphCount;
+
+    @Column(name = "manuscript_count")
+    private Integer manuscriptCount;
+
     @CreationTimestamp
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
@@ -49,4 +76,12 @@ public class TextHistory {
     @UpdateTimestamp
     @Column(name = "updated_at", nullable = false)
     private LocalDateTime updatedAt;
+
+    /**
+     * The history's text, from its blob or, on a row not backfilled yet, from
+     * the legacy inline column.
+     */
+    public String getContent() {
+        return blob != null ? blob.getContent() : legacyContent;
+    }
 }
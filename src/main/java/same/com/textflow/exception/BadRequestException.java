@@ -0,0 +1,8 @@
+package same.com.textflow.exception;
+
+public class BadRequestException extends RuntimeException {
+
+    public BadRequestException(String message) {
+        super(message);
+    }
+}
@@ -14,6 +14,8 @@ public interface DiffHistoryRepository extends JpaRepository<DiffHistory, Long>
 
     Page<DiffHistory> findByUserOrderByCreatedAtDesc(User user, Pageable pageable);
 
+    Page<DiffHistorySummary> findSummaryByUserOrderByCreatedAtDesc(User user, Pageable pageable);
+
     Optional<DiffHistory> findByIdAndUser(Long id, User user);
 
     long countByUser(User user);
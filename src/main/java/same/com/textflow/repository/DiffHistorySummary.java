@@ -0,0 +1,21 @@
+package same.com.textflow.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * List view of a DiffHistory that never selects the text or edit script columns.
+ */
+public interface DiffHistorySummary {
+
+    Long getId();
+
+    String getTitle();
+
+    Integer getAddedLines();
+
+    Integer getDeletedLines();
+
+    Integer getChangedLines();
+
+    LocalDateTime getCreatedAt();
+}
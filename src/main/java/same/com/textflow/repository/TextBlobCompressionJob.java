@@ -0,0 +1,119 @@
+package same.com.textflow.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import same.com.textflow.text.CompressedText;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Compresses text_blobs rows stored before compression was enabled, on a
+ * background thread after startup. Blobs are visited once in hash order, a
+ * batch per transaction, so stopping midway loses no work and the next
+ * startup skips what is already compressed. Content that does not compress
+ * well is left as text.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.history.compression.enabled", havingValue = "true")
+public class TextBlobCompressionJob implements ApplicationRunner, DisposableBean {
+
+    private static final int BATCH_SIZE = 100;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int minChars;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "text-blob-compression");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile boolean stopped;
+
+    public TextBlobCompressionJob(
+            JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate,
+            @Value("${app.history.compression.min-chars}") int minChars,
+            @Value("${app.search.mode}") String searchMode) {
+        if ("postgres".equalsIgnoreCase(searchMode)) {
+            throw new IllegalStateException(
+                    "app.history.compression.enabled cannot be used with app.search.mode=postgres");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.minChars = minChars;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        // Columns created before compression existed are NOT NULL
+        jdbcTemplate.execute("ALTER TABLE text_blobs ALTER COLUMN content DROP NOT NULL");
+        executor.submit(this::compressAll);
+    }
+
+    @Override
+    public void destroy() {
+        stopped = true;
+        executor.shutdownNow();
+    }
+
+    private void compressAll() {
+        long started = System.nanoTime();
+        long[] totals = new long[3];
+        String after = "";
+        try {
+            while (!stopped) {
+                String last = after;
+                String next = transactionTemplate.execute(status -> compressBatch(last, totals));
+                if (next == null) {
+                    break;
+                }
+                after = next;
+            }
+            log.info("Compressed {} of {} large text blobs, saving {} bytes in {} ms", totals[1], totals[0],
+                    totals[2], (System.nanoTime() - started) / 1_000_000);
+        } catch (RuntimeException e) {
+            log.error("Text blob compression stopped after {}: {}", after, e.getMessage());
+        }
+    }
+
+    // Returns the last hash visited, or null when there are no more candidates
+    private String compressBatch(String after, long[] totals) {
+        List<String> hashes = new ArrayList<>(BATCH_SIZE);
+        List<String> contents = new ArrayList<>(BATCH_SIZE);
+        jdbcTemplate.query("SELECT hash, content FROM text_blobs WHERE hash > ? AND packed_content IS NULL "
+                        + "AND length(content) >= ? ORDER BY hash LIMIT ?",
+                rs -> {
+                    hashes.add(rs.getString(1));
+                    contents.add(rs.getString(2));
+                }, after, minChars, BATCH_SIZE);
+        if (hashes.isEmpty()) {
+            return null;
+        }
+
+        List<Object[]> rows = new ArrayList<>(hashes.size());
+        for (int i = 0; i < hashes.size(); i++) {
+            byte[] packed = CompressedText.compress(contents.get(i));
+            if (packed != null) {
+                rows.add(new Object[]{packed, hashes.get(i)});
+                totals[2] += contents.get(i).getBytes(StandardCharsets.UTF_8).length - packed.length;
+            }
+        }
+        jdbcTemplate.batchUpdate("UPDATE text_blobs SET packed_content = ?, content = NULL "
+                + "WHERE hash = ? AND packed_content IS NULL", rows);
+        totals[0] += hashes.size();
+        totals[1] += rows.size();
+        return hashes.get(hashes.size() - 1);
+    }
+}
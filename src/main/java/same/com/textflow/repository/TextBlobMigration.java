@@ -0,0 +1,98 @@
+package same.com.textflow.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Moves content stored inline in text_histories (before text_blobs existed)
+ * into deduplicated blobs on PostgreSQL.
+ * <p>
+ * This runs once all beans, including the JPA schema update, are initialized
+ * and before the web server starts, so no request sees a half-migrated table.
+ * The legacy {@code content} column is made nullable, which lets this release
+ * insert histories without it. The backfill runs unless
+ * {@code app.history.blob-migration.enabled} is turned off; it visits rows
+ * without a {@code content_hash} in id order, a batch per transaction, so no
+ * lock is held for the whole table and an interrupted run resumes where it
+ * stopped. Rows it has not reached yet are still readable through
+ * {@link same.com.textflow.entity.TextHistory#getContent()}, but not searchable.
+ * <p>
+ * Rolling deploys from the previous release are not supported: it reads no
+ * content from rows this release writes, leaks blob references when it deletes
+ * them, and keeps writing inline rows. Stop every old instance before the
+ * first instance of this release starts. A later release drops the column and
+ * makes {@code content_hash} NOT NULL.
+ */
+@Slf4j
+@Component
+public class TextBlobMigration implements SmartInitializingSingleton {
+
+    private static final String HASH = "encode(sha256(convert_to(content, 'UTF8')), 'hex')";
+
+    private static final String BACKFILL_SQL = "WITH batch AS ("
+            + "SELECT id, content, " + HASH + " AS hash FROM text_histories "
+            + "WHERE content_hash IS NULL AND content IS NOT NULL AND id > ? ORDER BY id LIMIT ? FOR UPDATE), "
+            + "blobs AS (INSERT INTO text_blobs (hash, content, ref_count) "
+            + "SELECT hash, min(content), COUNT(*) FROM batch GROUP BY hash ORDER BY hash "
+            + "ON CONFLICT (hash) DO UPDATE SET ref_count = text_blobs.ref_count + EXCLUDED.ref_count) "
+            + "UPDATE text_histories h SET content_hash = batch.hash FROM batch WHERE h.id = batch.id "
+            + "RETURNING h.id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int batchSize;
+
+    public TextBlobMigration(
+            JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate,
+            @Value("${app.history.blob-migration.enabled}") boolean enabled,
+            @Value("${app.history.blob-migration.batch-size}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        Integer inline = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM information_schema.columns "
+                + "WHERE table_name = 'text_histories' AND column_name = 'content'", Integer.class);
+        if (inline == null || inline == 0) {
+            return;
+        }
+        jdbcTemplate.execute("ALTER TABLE text_histories ALTER COLUMN content DROP NOT NULL");
+
+        if (!enabled) {
+            Long pending = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM text_histories WHERE content_hash IS NULL", Long.class);
+            if (pending != null && pending > 0) {
+                log.warn("{} histories still store their content inline and cannot be searched until "
+                        + "app.history.blob-migration.enabled moves it into text_blobs", pending);
+            }
+            return;
+        }
+
+        long started = System.nanoTime();
+        long moved = 0;
+        long after = 0;
+        while (true) {
+            long last = after;
+            List<Long> ids = transactionTemplate.execute(
+                    status -> jdbcTemplate.queryForList(BACKFILL_SQL, Long.class, last, batchSize));
+            if (ids == null || ids.isEmpty()) {
+                break;
+            }
+            moved += ids.size();
+            after = ids.stream().mapToLong(Long::longValue).max().getAsLong();
+        }
+        log.info("Moved the content of {} histories into text_blobs in {} ms", moved,
+                (System.nanoTime() - started) / 1_000_000);
+    }
+}
@@ -0,0 +1,157 @@
+package same.com.textflow.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+import same.com.textflow.entity.TextBlob;
+import same.com.textflow.text.CompressedText;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Reference counting for {@link TextBlob}s, in plain JDBC.
+ * <p>
+ * Acquiring a blob first only increments the count of an existing row, so
+ * content that is already stored is never sent to the database again; only
+ * missing hashes are inserted with their content. Releasing decrements the
+ * count and deletes the row at zero. Row locks taken by these updates order
+ * concurrent acquires and releases of the same hash, and hashes are always
+ * visited in sorted order so two batches cannot deadlock. Release only after
+ * the referencing history rows are deleted (flushed), or the blob's foreign
+ * key still points at it.
+ * <p>
+ * With {@code app.history.compression.enabled}, new content of at least
+ * {@code min-chars} is stored as {@link CompressedText} when that is smaller.
+ */
+@Repository
+public class TextBlobRepository {
+
+    private static final String INCREMENT_SQL = "UPDATE text_blobs SET ref_count = ref_count + ? WHERE hash = ?";
+    private static final String INSERT_SQL = "INSERT INTO text_blobs (hash, content, packed_content, ref_count) "
+            + "VALUES (?, ?, ?, ?) ON CONFLICT DO NOTHING";
+    private static final String DECREMENT_SQL = "UPDATE text_blobs SET ref_count = ref_count - ? WHERE hash = ?";
+    private static final String DELETE_UNUSED_SQL = "DELETE FROM text_blobs WHERE hash = ? AND ref_count <= 0";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean compressionEnabled;
+    private final int compressionMinChars;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public TextBlobRepository(
+            JdbcTemplate jdbcTemplate,
+            @Value("${app.history.compression.enabled}") boolean compressionEnabled,
+            @Value("${app.history.compression.min-chars}") int compressionMinChars) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.compressionEnabled = compressionEnabled;
+        this.compressionMinChars = compressionMinChars;
+    }
+
+    /**
+     * Adds one reference to the blob of {@code content} and returns it as an
+     * uninitialized reference for a history to point at.
+     */
+    public TextBlob acquire(String content) {
+        return acquire(TextBlob.of(content));
+    }
+
+    public TextBlob acquire(TextBlob blob) {
+        acquireAll(List.of(blob));
+        return entityManager.getReference(TextBlob.class, blob.getHash());
+    }
+
+    /**
+     * Adds one reference per element, so a blob listed twice gains two.
+     */
+    public void acquireAll(Collection<TextBlob> blobs) {
+        Map<String, TextBlob> byHash = new TreeMap<>();
+        Map<String, Integer> counts = new TreeMap<>();
+        for (TextBlob blob : blobs) {
+            byHash.putIfAbsent(blob.getHash(), blob);
+            counts.merge(blob.getHash(), 1, Integer::sum);
+        }
+
+        List<String> missing = increment(counts);
+        while (!missing.isEmpty()) {
+            List<Object[]> rows = new ArrayList<>(missing.size());
+            for (String hash : missing) {
+                String content = byHash.get(hash).getContent();
+                byte[] packed = pack(content);
+                rows.add(new Object[]{hash, packed == null ? content : null, packed, counts.get(hash)});
+            }
+            int[] inserted = jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+
+            // Inserted concurrently since the increment; count on the row that won
+            Map<String, Integer> lost = new TreeMap<>();
+            for (int i = 0; i < inserted.length; i++) {
+                if (inserted[i] == 0) {
+                    lost.put(missing.get(i), counts.get(missing.get(i)));
+                }
+            }
+            missing = lost.isEmpty() ? List.of() : increment(lost);
+        }
+    }
+
+    public void release(String hash) {
+        release(Map.of(hash, 1));
+    }
+
+    /**
+     * Drops {@code count} references per hash and deletes blobs left unreferenced.
+     */
+    public void release(Map<String, Integer> references) {
+        if (references.isEmpty()) {
+            return;
+        }
+        List<Object[]> decrements = new ArrayList<>(references.size());
+        List<Object[]> deletes = new ArrayList<>(references.size());
+        new TreeMap<>(references).forEach((hash, count) -> {
+            decrements.add(new Object[]{count, hash});
+            deletes.add(new Object[]{hash});
+        });
+        jdbcTemplate.batchUpdate(DECREMENT_SQL, decrements);
+        jdbcTemplate.batchUpdate(DELETE_UNUSED_SQL, deletes);
+    }
+
+    /**
+     * References held by a user's histories, by hash, for releasing them when
+     * the user is deleted. Rows not backfilled into blobs yet hold none.
+     */
+    public Map<String, Integer> countReferences(long userId) {
+        Map<String, Integer> references = new TreeMap<>();
+        jdbcTemplate.query("SELECT content_hash, COUNT(*) FROM text_histories WHERE user_id = ? "
+                        + "AND content_hash IS NOT NULL GROUP BY content_hash",
+                (RowCallbackHandler) rs -> references.put(rs.getString(1), rs.getInt(2)), userId);
+        return references;
+    }
+
+    private byte[] pack(String content) {
+        return compressionEnabled && content.length() >= compressionMinChars ? CompressedText.compress(content) : null;
+    }
+
+    // Returns the hashes that have no row yet, in the sorted order of counts
+    private List<String> increment(Map<String, Integer> counts) {
+        List<String> hashes = new ArrayList<>(counts.keySet());
+        List<Object[]> rows = new ArrayList<>(hashes.size());
+        for (String hash : hashes) {
+            rows.add(new Object[]{counts.get(hash), hash});
+        }
+        int[] updated = jdbcTemplate.batchUpdate(INCREMENT_SQL, rows);
+
+        List<String> missing = new ArrayList<>();
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                missing.add(hashes.get(i));
+            }
+        }
+        return missing;
+    }
+}
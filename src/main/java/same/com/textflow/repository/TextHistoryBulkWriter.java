@@ -0,0 +1,131 @@
+package same.com.textflow.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import same.com.textflow.entity.TextHistory;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Inserts many text histories with one multi-row INSERT per chunk.
+ * <p>
+ * TextHistory uses IDENTITY ids, so Hibernate cannot batch its inserts and
+ * would issue one statement per entity. Rows written here bypass the
+ * persistence context entirely, so it does not grow with the import size,
+ * and the returned entities are not managed and have no id.
+ * <p>
+ * Each history's {@link TextHistory#getBlob() blob} only needs hash and
+ * content set; the chunk's blobs are acquired before its rows are inserted.
+ * <p>
+ * {@link #insertWithIds} writes histories whose ids were taken from the
+ * table's sequence beforehand with {@link #nextIds}, for callers that hand
+ * the id out before the row exists.
+ */
+@Repository
+public class TextHistoryBulkWriter {
+
+    private static final String COLUMNS = "user_id, title, content_hash, content_type, char_count, line_count, "
+            + "byte_count, word_count, paragraph_count, manuscript_count, created_at, updated_at";
+    private static final String INSERT_PREFIX = "INSERT INTO text_histories (" + COLUMNS + ") VALUES ";
+    private static final String INSERT_WITH_IDS_PREFIX = "INSERT INTO text_histories (id, " + COLUMNS + ") VALUES ";
+    private static final String ROW = "(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String ROW_WITH_ID = "(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final int PARAMETERS_PER_ROW = 12;
+    // PostgreSQL's bind parameter limit per statement
+    private static final int MAX_PARAMETERS = 32767;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TextBlobRepository textBlobRepository;
+    private final int batchSize;
+    private final String fullBatchSql;
+
+    public TextHistoryBulkWriter(
+            JdbcTemplate jdbcTemplate,
+            TextBlobRepository textBlobRepository,
+            @Value("${app.history.import.batch-size}") int batchSize) {
+        if (batchSize < 1 || batchSize * PARAMETERS_PER_ROW > MAX_PARAMETERS) {
+            throw new IllegalArgumentException("app.history.import.batch-size must be between 1 and "
+                    + MAX_PARAMETERS / PARAMETERS_PER_ROW);
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.textBlobRepository = textBlobRepository;
+        this.batchSize = batchSize;
+        this.fullBatchSql = insertSql(INSERT_PREFIX, ROW, batchSize);
+    }
+
+    /**
+     * Returns the number of statements (chunks) executed.
+     */
+    public int insertAll(List<TextHistory> histories) {
+        return insert(histories, false);
+    }
+
+    /**
+     * Like {@link #insertAll}, keeping each history's id and, when set, its
+     * creation time.
+     */
+    public int insertWithIds(List<TextHistory> histories) {
+        return insert(histories, true);
+    }
+
+    /**
+     * Takes {@code count} ids from the sequence behind text_histories.id.
+     */
+    public List<Long> nextIds(int count) {
+        return jdbcTemplate.queryForList("SELECT nextval(pg_get_serial_sequence('text_histories', 'id')) "
+                + "FROM generate_series(1, ?)", Long.class, count);
+    }
+
+    private int insert(List<TextHistory> histories, boolean withIds) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        // The id adds a parameter per row
+        int rows = withIds ? Math.min(batchSize, MAX_PARAMETERS / (PARAMETERS_PER_ROW + 1)) : batchSize;
+        int chunks = 0;
+        for (int from = 0; from < histories.size(); from += rows) {
+            List<TextHistory> chunk = histories.subList(from, Math.min(from + rows, histories.size()));
+            textBlobRepository.acquireAll(chunk.stream().map(TextHistory::getBlob).toList());
+            String sql = withIds ? insertSql(INSERT_WITH_IDS_PREFIX, ROW_WITH_ID, chunk.size())
+                    : chunk.size() == batchSize ? fullBatchSql : insertSql(INSERT_PREFIX, ROW, chunk.size());
+            jdbcTemplate.update(sql, ps -> {
+                int index = 1;
+                for (TextHistory history : chunk) {
+                    Timestamp createdAt = withIds && history.getCreatedAt() != null
+                            ? Timestamp.valueOf(history.getCreatedAt()) : now;
+                    if (withIds) {
+                        ps.setLong(index++, history.getId());
+                    }
+                    ps.setLong(index++, history.getUser().getId());
+                    ps.setString(index++, history.getTitle());
+                    ps.setString(index++, history.getBlob().getHash());
+                    ps.setString(index++, history.getContentType());
+                    ps.setInt(index++, history.getCharCount());
+                    ps.setInt(index++, history.getLineCount());
+                    ps.setObject(index++, history.getByteCount(), Types.INTEGER);
+                    ps.setObject(index++, history.getWordCount(), Types.INTEGER);
+                    ps.setObject(index++, history.getParagraphCount(), Types.INTEGER);
+                    ps.setObject(index++, history.getManuscriptCount(), Types.INTEGER);
+                    ps.setTimestamp(index++, createdAt);
+                    ps.setTimestamp(index++, createdAt);
+                }
+            });
+            chunks++;
+        }
+        return chunks;
+    }
+
+    private static String insertSql(String prefix, String row, int rows) {
+        StringBuilder sql = new StringBuilder(prefix.length() + rows * (row.length() + 2));
+        sql.append(prefix);
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(row);
+        }
+        return sql.toString();
+    }
+}
@@ -1,12 +1,21 @@
 package same.com.textflow.repository;
 
+import jakarta.persistence.LockModeType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import same.com.textflow.entity.TextHistory;
 import same.com.textflow.entity.User;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -17,9 +26,49 @@ public interface TextHistoryRepository extends JpaRepository<TextHistory, Long>
     Page<TextHistory> findByUserAndTitleContainingIgnoreCaseOrderByCreatedAtDesc(
             User user, String title, Pageable pageable);
 
+    Page<TextHistorySummary> findSummaryByUserOrderByCreatedAtDesc(User user, Pageable pageable);
+
+    Page<TextHistorySummary> findSummaryByUserAndTitleContainingIgnoreCaseOrderByCreatedAtDesc(
+            User user, String title, Pageable pageable);
+
+    Slice<TextHistorySummary> findSliceByUserOrderByCreatedAtDescIdDesc(User user, Pageable pageable);
+
+    @Query("SELECT h.id AS id, h.title AS title, h.charCount AS charCount, h.lineCount AS lineCount, "
+            + "h.byteCount AS byteCount, h.wordCount AS wordCount, h.paragraphCount AS paragraphCount, "
+            + "h.manuscriptCount AS manuscriptCount, h.contentType AS contentType, "
+            + "h.createdAt AS createdAt, h.updatedAt AS updatedAt "
+            + "FROM TextHistory h WHERE h.user = :user "
+            + "AND (h.createdAt, h.id) < (:createdAt, :id) "
+            + "ORDER BY h.createdAt DESC, h.id DESC")
+    Slice<TextHistorySummary> findSummaryAfter(@Param("user") User user,
+                                               @Param("createdAt") LocalDateTime createdAt,
+                                               @Param("id") Long id,
+                                               Pageable pageable);
+
+    List<TextHistorySummary> findSummaryByUserAndIdIn(User user, Collection<Long> ids);
+
+    @Query("SELECT h.id FROM TextHistory h WHERE h.user = :user AND h.id IN :ids "
+            + "AND (LOWER(h.title) LIKE :pattern ESCAPE '\\' OR LOWER(h.blob.content) LIKE :pattern ESCAPE '\\')")
+    List<Long> findIdsContaining(@Param("user") User user,
+                                 @Param("ids") Collection<Long> ids,
+                                 @Param("pattern") String pattern);
+
+    @Query("SELECT h FROM TextHistory h JOIN FETCH h.blob b "
+            + "WHERE h.user = :user AND h.id IN :ids AND b.content IS NULL")
+    List<TextHistory> findPackedIn(@Param("user") User user, @Param("ids") Collection<Long> ids);
+
     Optional<TextHistory> findByIdAndUser(Long id, User user);
 
-    long countByUser(User user);
+    @EntityGraph(attributePaths = "blob")
+    Optional<TextHistory> findWithBlobByIdAndUser(Long id, User user);
 
-    void deleteByIdAndUser(Long id, User user);
+    /**
+     * The draft's newest revision started after {@code createdAt}, locked so
+     * concurrent autosaves of one draft apply one after another.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<TextHistory> findFirstByUserAndDraftIdAndCreatedAtAfterOrderByCreatedAtDescIdDesc(
+            User user, String draftId, LocalDateTime createdAt);
+
+    long countByUser(User user);
 }
@@ -0,0 +1,23 @@
+package same.com.textflow.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * One ranked full-text search result with a short excerpt of the content
+ * around the first match.
+ */
+public record TextHistorySearchHit(
+        Long id,
+        String title,
+        Integer charCount,
+        Integer lineCount,
+        Integer byteCount,
+        Integer wordCount,
+        Integer paragraphCount,
+        Integer manuscriptCount,
+        String contentType,
+        LocalDateTime createdAt,
+        LocalDateTime updatedAt,
+        double rank,
+        String snippet) {
+}
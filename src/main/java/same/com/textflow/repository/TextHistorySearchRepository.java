@@ -0,0 +1,131 @@
+package same.com.textflow.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import same.com.textflow.text.CompressedText;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.List;
+
+/**
+ * JDBC side of history search.
+ * <p>
+ * {@link #search} is the ranked PostgreSQL search over title and content,
+ * only usable once {@link TextHistorySearchSchema} has created its columns and
+ * indexes. A row matches when the tsquery matches the title's or the content
+ * blob's vector or the raw query is a substring of either (trigram indexes).
+ * Matches are collected as a UNION of two branches, so neither needs an OR
+ * across tables: title hits from {@code text_histories} through its GIN indexes,
+ * and content hits from the blobs the user's histories reference, joined back
+ * by content hash. The content branch starts from the user's hashes rather
+ * than the blobs' GIN indexes, so its cost follows the caller's history
+ * instead of how many blobs of all users match. Ranking and paging run over
+ * the union only. Title substring matches rank above content-only matches. The
+ * snippet is cut in SQL so the content column never leaves the database.
+ * Compressed blobs are not searchable here, so compression refuses to start
+ * in this mode.
+ */
+@Repository
+@RequiredArgsConstructor
+public class TextHistorySearchRepository {
+
+    private static final int DOCUMENT_FETCH_SIZE = 100;
+    private static final int SNIPPET_BEFORE = 40;
+    private static final int SNIPPET_LENGTH = 160;
+
+    private static final String FROM = "FROM text_histories h JOIN text_blobs b ON b.hash = h.content_hash ";
+
+    // An OR across both tables after the join can only be checked row by row
+    private static final String MATCHES = "SELECT h.id FROM text_histories h WHERE h.user_id = :userId "
+            + "AND (h.title_vector @@ plainto_tsquery('simple', :query) OR h.title ILIKE :pattern) "
+            + "UNION "
+            + "SELECT h.id FROM text_blobs b JOIN text_histories h ON h.content_hash = b.hash AND h.user_id = :userId "
+            + "WHERE b.hash IN (SELECT content_hash FROM text_histories WHERE user_id = :userId) "
+            + "AND (b.search_vector @@ plainto_tsquery('simple', :query) OR b.content ILIKE :pattern)";
+
+    private static final String SEARCH_SQL = "SELECT h.id, h.title, h.char_count, h.line_count, h.byte_count, h.word_count, "
+            + "h.paragraph_count, h.manuscript_count, h.content_type, h.created_at, h.updated_at, "
+            + "ts_rank_cd(h.title_vector || b.search_vector, plainto_tsquery('simple', :query)) "
+            + "+ CASE WHEN h.title ILIKE :pattern THEN 1 ELSE 0 END AS rank, "
+            + "substr(b.content, greatest(1, strpos(lower(b.content), lower(:query)) - " + SNIPPET_BEFORE + "), "
+            + SNIPPET_LENGTH + ") AS snippet "
+            + "FROM (" + MATCHES + ") m JOIN text_histories h ON h.id = m.id "
+            + "JOIN text_blobs b ON b.hash = h.content_hash "
+            + "ORDER BY rank DESC, h.created_at DESC, h.id DESC LIMIT :limit OFFSET :offset";
+
+    private static final String COUNT_SQL = "SELECT COUNT(*) FROM (" + MATCHES + ") m";
+
+    private static final RowMapper<TextHistorySearchHit> ROW_MAPPER = (rs, rowNum) -> new TextHistorySearchHit(
+            rs.getLong("id"),
+            rs.getString("title"),
+            rs.getInt("char_count"),
+            rs.getInt("line_count"),
+            rs.getObject("byte_count", Integer.class),
+            rs.getObject("word_count", Integer.class),
+            rs.getObject("paragraph_count", Integer.class),
+            rs.getObject("manuscript_count", Integer.class),
+            rs.getString("content_type"),
+            rs.getTimestamp("created_at").toLocalDateTime(),
+            rs.getTimestamp("updated_at").toLocalDateTime(),
+            rs.getDouble("rank"),
+            rs.getString("snippet"));
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public Page<TextHistorySearchHit> search(long userId, String query, Pageable pageable) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("userId", userId)
+                .addValue("query", query)
+                .addValue("pattern", "%" + escapeLike(query) + "%")
+                .addValue("limit", pageable.getPageSize())
+                .addValue("offset", pageable.getOffset());
+
+        List<TextHistorySearchHit> hits = jdbcTemplate.query(SEARCH_SQL, params, ROW_MAPPER);
+        // The count is skipped when this page already shows where the results end
+        return PageableExecutionUtils.getPage(hits, pageable,
+                () -> jdbcTemplate.queryForObject(COUNT_SQL, params, Long.class));
+    }
+
+    /**
+     * Streams a user's documents in id order to {@code visitor} without
+     * materializing them, until the visitor returns false. Call within a
+     * transaction so the PostgreSQL driver honours the fetch size.
+     */
+    public void forEachDocument(long userId, DocumentVisitor visitor) {
+        jdbcTemplate.getJdbcTemplate().query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(
+                    "SELECT h.id, h.title, b.content, b.packed_content " + FROM + "WHERE h.user_id = ? ORDER BY h.id");
+            ps.setFetchSize(DOCUMENT_FETCH_SIZE);
+            ps.setLong(1, userId);
+            return ps;
+        }, (ResultSet rs) -> {
+            while (rs.next()) {
+                String content = rs.getString(3);
+                if (content == null) {
+                    content = CompressedText.decompress(rs.getBytes(4));
+                }
+                if (!visitor.visit(rs.getLong(1), rs.getString(2), content)) {
+                    break;
+                }
+            }
+            return null;
+        });
+    }
+
+    @FunctionalInterface
+    public interface DocumentVisitor {
+        boolean visit(long id, String title, String content);
+    }
+
+    // Backslash is PostgreSQL's default LIKE escape character
+    public static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
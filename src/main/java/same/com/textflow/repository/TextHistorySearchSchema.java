@@ -0,0 +1,56 @@
+package same.com.textflow.repository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Creates the PostgreSQL search structures that ddl-auto cannot express.
+ * Every statement is idempotent, so this runs on each startup.
+ * <p>
+ * {@code text_histories.title_vector} (weight A) and
+ * {@code text_blobs.search_vector} (content, weight B) are stored generated
+ * columns with the {@code simple} configuration, which suits space-separated
+ * languages. Japanese has no spaces, so title and content also get pg_trgm
+ * GIN indexes, which serve {@code ILIKE '%q%'} for queries of three or more
+ * characters. Content is indexed once per distinct blob, not per history;
+ * content hits find their histories through the (content_hash, user_id) index.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.search.mode", havingValue = "postgres")
+@RequiredArgsConstructor
+public class TextHistorySearchSchema implements ApplicationRunner {
+
+    private static final String[] STATEMENTS = {
+            "CREATE EXTENSION IF NOT EXISTS pg_trgm",
+            "ALTER TABLE text_histories ADD COLUMN IF NOT EXISTS title_vector tsvector "
+                    + "GENERATED ALWAYS AS (setweight(to_tsvector('simple', title), 'A')) STORED",
+            "CREATE INDEX IF NOT EXISTS idx_text_histories_title_vector "
+                    + "ON text_histories USING gin (title_vector)",
+            "ALTER TABLE text_blobs ADD COLUMN IF NOT EXISTS search_vector tsvector "
+                    + "GENERATED ALWAYS AS (setweight(to_tsvector('simple', content), 'B')) STORED",
+            "CREATE INDEX IF NOT EXISTS idx_text_blobs_search_vector "
+                    + "ON text_blobs USING gin (search_vector)",
+            "CREATE INDEX IF NOT EXISTS idx_text_histories_title_trgm "
+                    + "ON text_histories USING gin (title gin_trgm_ops)",
+            "CREATE INDEX IF NOT EXISTS idx_text_blobs_content_trgm "
+                    + "ON text_blobs USING gin (content gin_trgm_ops)",
+            "CREATE INDEX IF NOT EXISTS idx_text_histories_content_user "
+                    + "ON text_histories (content_hash, user_id)"
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        for (String statement : STATEMENTS) {
+            jdbcTemplate.execute(statement);
+        }
+        log.info("Full-text search indexes on text_histories and text_blobs are ready");
+    }
+}
@@ -0,0 +1,31 @@
+package same.com.textflow.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * List view of a TextHistory that never selects the content column.
+ */
+public interface TextHistorySummary {
+
+    Long getId();
+
+    String getTitle();
+
+    Integer getCharCount();
+
+    Integer getLineCount();
+
+    Integer getByteCount();
+
+    Integer getWordCount();
+
+    Integer getParagraphCount();
+
+    Integer getManuscriptCount();
+
+    String getContentType();
+
+    LocalDateTime getCreatedAt();
+
+    LocalDateTime getUpdatedAt();
+}
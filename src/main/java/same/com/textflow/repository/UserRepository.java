@@ -1,6 +1,8 @@
 package same.com.textflow.repository;
 
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.stereotype.Repository;
 import same.com.textflow.entity.User;
 
@@ -16,4 +18,11 @@ public interface UserRepository extends JpaRepository<User, Long> {
     boolean existsByEmail(String email);
 
     boolean existsByUsername(String username);
+
+    /**
+     * The user's row locked until the transaction ends, to serialize their
+     * writes that a lock on rows not yet inserted cannot.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<User> findLockedById(Long id);
 }
@@ -1,41 +1,101 @@
 package same.com.textflow.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SignatureException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
+import same.com.textflow.security.oauth2.CustomOAuth2User;
 
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Collection;
 import java.util.Date;
+import java.util.List;
 
 @Component
+@RequiredArgsConstructor
 @Slf4j
 public class JwtTokenProvider {
 
+    private static final String USER_ID_CLAIM = "uid";
+    private static final String ROLES_CLAIM = "roles";
+
     @Value("${app.jwt.secret}")
     private String jwtSecret;
 
     @Value("${app.jwt.expiration-ms}")
     private long jwtExpirationMs;
 
+    @Value("${app.jwt.verified-cache.max-entries}")
+    private long verifiedCacheMaxEntries;
+
+    private final MeterRegistry meterRegistry;
+
     private SecretKey secretKey;
+    private JwtParser parser;
+    // Claims of verified tokens by SHA-256 digest, so raw bearer tokens are not retained
+    private Cache<String, Claims> verifiedTokens;
 
     @PostConstruct
     public void init() {
         this.secretKey = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
+        this.parser = Jwts.parser()
+                .verifyWith(secretKey)
+                .build();
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(verifiedCacheMaxEntries)
+                .expireAfter(Expiry.creating((String digest, Claims claims) -> Duration.ofMillis(
+                        Math.max(0, claims.getExpiration().getTime() - System.currentTimeMillis()))))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, verifiedTokens, "verifiedTokens");
     }
 
+    /**
+     * Tokens for principals with a known user id also carry the id and role
+     * claims read by {@link #toPrincipal(Claims)}.
+     */
     public String generateToken(Authentication authentication) {
-        UserDetails userDetails = (UserDetails) authentication.getPrincipal();
-        return generateToken(userDetails.getUsername());
+        Object principal = authentication.getPrincipal();
+        if (principal instanceof UserPrincipal userPrincipal) {
+            return generateToken(userPrincipal.getUsername(), userPrincipal.getId(), userPrincipal.getAuthorities());
+        }
+        if (principal instanceof CustomOAuth2User oAuth2User) {
+            return generateToken(oAuth2User.getUser().getEmail(), oAuth2User.getUser().getId(),
+                    oAuth2User.getAuthorities());
+        }
+        return generateToken(((UserDetails) principal).getUsername());
     }
 
     public String generateToken(String username) {
+        return builder(username).compact();
+    }
+
+    private String generateToken(String username, Long userId, Collection<? extends GrantedAuthority> authorities) {
+        return builder(username)
+                .claim(USER_ID_CLAIM, userId)
+                .claim(ROLES_CLAIM, authorities.stream().map(GrantedAuthority::getAuthority).toList())
+                .compact();
+    }
+
+    private JwtBuilder builder(String username) {
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + jwtExpirationMs);
 
@@ -43,27 +103,51 @@ public class JwtTokenProvider {
                 .subject(username)
                 .issuedAt(now)
                 .expiration(expiryDate)
-                .signWith(secretKey)
-                .compact();
+                .signWith(secretKey);
     }
 
-    public String getUsernameFromToken(String token) {
-        Claims claims = Jwts.parser()
-                .verifyWith(secretKey)
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+    /**
+     * Verified claims of the token, or null if it is invalid or expired. A
+     * token is verified once and then served from the cache until it expires.
+     */
+    public Claims parseClaims(String token) {
+        String digest = digest(token);
+        Claims claims = verifiedTokens.getIfPresent(digest);
+        if (claims != null) {
+            return claims;
+        }
+        claims = verify(token);
+        if (claims != null && claims.getExpiration() != null) {
+            verifiedTokens.put(digest, claims);
+        }
+        return claims;
+    }
 
-        return claims.getSubject();
+    /**
+     * Builds the principal from verified claims alone, or returns null for
+     * tokens issued without the id and role claims.
+     */
+    public UserPrincipal toPrincipal(Claims claims) {
+        Long userId = claims.get(USER_ID_CLAIM, Long.class);
+        List<?> roles = claims.get(ROLES_CLAIM, List.class);
+        if (userId == null || roles == null) {
+            return null;
+        }
+        List<GrantedAuthority> authorities = roles.stream()
+                .<GrantedAuthority>map(role -> new SimpleGrantedAuthority(role.toString()))
+                .toList();
+        return new UserPrincipal(userId, claims.getSubject(), "", authorities);
     }
 
     public boolean validateToken(String token) {
+        return parseClaims(token) != null;
+    }
+
+    private Claims verify(String token) {
         try {
-            Jwts.parser()
-                    .verifyWith(secretKey)
-                    .build()
-                    .parseSignedClaims(token);
-            return true;
+            return parser.parseSignedClaims(token).getPayload();
+        } catch (SignatureException e) {
+            log.error("Invalid JWT signature: {}", e.getMessage());
         } catch (MalformedJwtException e) {
             log.error("Invalid JWT token: {}", e.getMessage());
         } catch (ExpiredJwtException e) {
@@ -73,7 +157,16 @@ public class JwtTokenProvider {
         } catch (IllegalArgumentException e) {
             log.error("JWT claims string is empty: {}", e.getMessage());
         }
-        return false;
+        return null;
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
     }
 
     public long getExpirationMs() {
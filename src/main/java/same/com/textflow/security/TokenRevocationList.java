@@ -0,0 +1,37 @@
+package same.com.textflow.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Date;
+
+/**
+ * Users whose tokens issued up to a point in time are no longer accepted on
+ * the stateless path, which never reads the user row. An entry only has to
+ * outlive the tokens it covers, so it expires with the token lifetime.
+ * Revocations are local to this instance.
+ */
+@Component
+public class TokenRevocationList {
+
+    // Revocation time per user id in epoch seconds, the resolution of the iat claim
+    private final Cache<Long, Long> revokedAt;
+
+    public TokenRevocationList(@Value("${app.jwt.expiration-ms}") long jwtExpirationMs) {
+        this.revokedAt = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(jwtExpirationMs))
+                .build();
+    }
+
+    public void revoke(Long userId) {
+        revokedAt.put(userId, System.currentTimeMillis() / 1000);
+    }
+
+    public boolean isRevoked(Long userId, Date issuedAt) {
+        Long revoked = revokedAt.getIfPresent(userId);
+        return revoked != null && (issuedAt == null || issuedAt.getTime() / 1000 <= revoked);
+    }
+}
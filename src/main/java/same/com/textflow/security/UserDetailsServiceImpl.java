@@ -1,7 +1,6 @@
 package same.com.textflow.security;
 
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
@@ -10,8 +9,6 @@ import org.springframework.transaction.annotation.Transactional;
 import same.com.textflow.entity.User;
 import same.com.textflow.repository.UserRepository;
 
-import java.util.Collections;
-
 @Service
 @RequiredArgsConstructor
 public class UserDetailsServiceImpl implements UserDetailsService {
@@ -25,9 +22,7 @@ public class UserDetailsServiceImpl implements UserDetailsService {
                 .orElseThrow(() -> new UsernameNotFoundException(
                         "User not found with email: " + email));
 
-        return new org.springframework.security.core.userdetails.User(
-                user.getEmail(),
-                user.getPasswordHash(),
-                Collections.singletonList(new SimpleGrantedAuthority("ROLE_USER")));
+        // Not from UserPrincipalCache: login erases the returned principal's credentials
+        return UserPrincipal.create(user, true);
     }
 }
@@ -0,0 +1,33 @@
+package same.com.textflow.security;
+
+import lombok.Getter;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import same.com.textflow.entity.User;
+
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * Authenticated user with the database id, so services can reference the
+ * user row without looking it up by email again.
+ */
+@Getter
+public class UserPrincipal extends org.springframework.security.core.userdetails.User {
+
+    private final Long id;
+
+    public UserPrincipal(Long id, String email, String password, Collection<? extends GrantedAuthority> authorities) {
+        super(email, password, authorities);
+        this.id = id;
+    }
+
+    /**
+     * OAuth2 users have no password hash; an empty one never matches a login attempt.
+     */
+    public static UserPrincipal create(User user, boolean withPassword) {
+        String password = withPassword && user.getPasswordHash() != null ? user.getPasswordHash() : "";
+        return new UserPrincipal(user.getId(), user.getEmail(), password,
+                Collections.singletonList(new SimpleGrantedAuthority("ROLE_USER")));
+    }
+}
@@ -0,0 +1,69 @@
+package same.com.textflow.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Component;
+import same.com.textflow.repository.UserRepository;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Short-lived principals by email for authenticating requests, without the
+ * password hash. Entries are invalidated when the user changes on this
+ * instance; the TTL bounds staleness across instances. Unknown emails are
+ * not cached. Published as the "userPrincipals" cache metrics.
+ */
+@Component
+public class UserPrincipalCache {
+
+    private final UserRepository userRepository;
+    private final Cache<String, UserPrincipal> principals;
+    // Bumped by every invalidation, so a load that started before one is not cached
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public UserPrincipalCache(
+            UserRepository userRepository,
+            @Value("${app.security.principal-cache.ttl}") Duration ttl,
+            @Value("${app.security.principal-cache.max-entries}") long maxEntries,
+            MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.principals = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxEntries)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, principals, "userPrincipals");
+    }
+
+    /**
+     * Loads outside the cache's compute lock, which would pin a virtual
+     * thread's carrier during the query; concurrent misses may both query.
+     * The result is only cached if no invalidation happened meanwhile.
+     */
+    public UserPrincipal get(String email) {
+        UserPrincipal cached = principals.getIfPresent(email);
+        if (cached != null) {
+            return cached;
+        }
+        long observed = invalidations.get();
+        UserPrincipal principal = userRepository.findByEmail(email)
+                .map(user -> UserPrincipal.create(user, false))
+                .orElseThrow(() -> new UsernameNotFoundException("User not found with email: " + email));
+        // Same key, same bin lock as invalidate, so the check and the put cannot interleave with it
+        principals.asMap().compute(email,
+                (key, current) -> invalidations.get() == observed ? principal : current);
+        return principal;
+    }
+
+    public void invalidate(String email) {
+        principals.asMap().compute(email, (key, current) -> {
+            invalidations.incrementAndGet();
+            return null;
+        });
+    }
+}
@@ -8,6 +8,7 @@ import org.springframework.security.oauth2.core.user.OAuth2User;
 import org.springframework.stereotype.Service;
 import same.com.textflow.entity.User;
 import same.com.textflow.repository.UserRepository;
+import same.com.textflow.security.UserPrincipalCache;
 
 import java.time.LocalDateTime;
 import java.util.Optional;
@@ -17,6 +18,7 @@ import java.util.Optional;
 public class CustomOAuth2UserService extends DefaultOAuth2UserService {
 
     private final UserRepository userRepository;
+    private final UserPrincipalCache userPrincipalCache;
 
     @Override
     public OAuth2User loadUser(OAuth2UserRequest oAuth2UserRequest) throws OAuth2AuthenticationException {
@@ -66,6 +68,8 @@ public class CustomOAuth2UserService extends DefaultOAuth2UserService {
         existingUser
                 .setUsername(oAuth2UserInfo.getName() != null ? oAuth2UserInfo.getName() : existingUser.getUsername());
         existingUser.setLastLoginAt(LocalDateTime.now());
-        return userRepository.save(existingUser);
+        User saved = userRepository.save(existingUser);
+        userPrincipalCache.invalidate(saved.getEmail());
+        return saved;
     }
 }
@@ -0,0 +1,220 @@
+package same.com.textflow.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import same.com.textflow.dto.request.CountBatchRequest;
+import same.com.textflow.dto.request.CountRequest;
+import same.com.textflow.dto.response.CountBatchResponse;
+import same.com.textflow.dto.response.CountResponse;
+import same.com.textflow.exception.BadRequestException;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Counts many texts in one request, spread over a bounded fork-join pool.
+ */
+@Service
+public class CountBatchService {
+
+    private static final int MAX_TEXT_LENGTH = 100000;
+    // Below this many chars in total the hand-off to the pool costs more than it saves
+    private static final long PARALLEL_THRESHOLD_CHARS = 64 * 1024;
+
+    private final CountService countService;
+    private final ObjectMapper objectMapper;
+    private final ForkJoinPool pool;
+    private final long maxBytes;
+    private final int maxItems;
+
+    public CountBatchService(
+            CountService countService,
+            ObjectMapper objectMapper,
+            @Value("${app.count.batch.parallelism:0}") int parallelism,
+            @Value("${app.count.batch.max-bytes}") long maxBytes,
+            @Value("${app.count.batch.max-items}") int maxItems) {
+        this.countService = countService;
+        this.objectMapper = objectMapper;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.maxBytes = maxBytes;
+        this.maxItems = maxItems;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    public CountBatchResponse countJson(InputStream body) throws IOException {
+        LimitedInputStream in = new LimitedInputStream(body, maxBytes);
+        CountBatchRequest request;
+        try {
+            request = objectMapper.readValue(in, CountBatchRequest.class);
+        } catch (IOException e) {
+            rethrowAsBadRequest(e, in);
+            throw e;
+        }
+        if (request.getTexts() == null || request.getTexts().isEmpty()) {
+            throw new BadRequestException("カウントするテキストが必要です");
+        }
+        if (request.getTexts().size() > maxItems) {
+            throw new BadRequestException("一度にカウントできるテキストは" + maxItems + "件までです");
+        }
+        for (String text : request.getTexts()) {
+            validate(text);
+        }
+        return count(request.getTexts());
+    }
+
+    /**
+     * One JSON value per line: either a string or an object with a "text" field.
+     */
+    public CountBatchResponse countNdjson(InputStream body) throws IOException {
+        LimitedInputStream in = new LimitedInputStream(body, maxBytes);
+        List<String> texts = new ArrayList<>();
+        try (MappingIterator<JsonNode> lines = objectMapper.readerFor(JsonNode.class).readValues(in)) {
+            while (lines.hasNextValue()) {
+                JsonNode line = lines.nextValue();
+                JsonNode value = line.isObject() ? line.get("text") : line;
+                if (value == null || !value.isTextual()) {
+                    throw new BadRequestException("各行は文字列または {\"text\": ...} で指定してください");
+                }
+                if (texts.size() == maxItems) {
+                    throw new BadRequestException("一度にカウントできるテキストは" + maxItems + "件までです");
+                }
+                validate(value.textValue());
+                texts.add(value.textValue());
+            }
+        } catch (IOException e) {
+            rethrowAsBadRequest(e, in);
+            throw e;
+        }
+        if (texts.isEmpty()) {
+            throw new BadRequestException("カウントするテキストが必要です");
+        }
+        return count(texts);
+    }
+
+    CountBatchResponse count(List<String> texts) {
+        CountResponse[] results = new CountResponse[texts.size()];
+
+        long totalChars = 0;
+        for (String text : texts) {
+            totalChars += text.length();
+        }
+
+        if (totalChars < PARALLEL_THRESHOLD_CHARS || texts.size() == 1) {
+            countRange(texts, results, 0, texts.size());
+        } else {
+            int slices = Math.min(texts.size(), pool.getParallelism() * 4);
+            List<Callable<Void>> tasks = new ArrayList<>(slices);
+            for (int i = 0; i < slices; i++) {
+                int from = (int) ((long) texts.size() * i / slices);
+                int to = (int) ((long) texts.size() * (i + 1) / slices);
+                tasks.add(() -> {
+                    countRange(texts, results, from, to);
+                    return null;
+                });
+            }
+            for (Future<Void> future : pool.invokeAll(tasks)) {
+                await(future);
+            }
+        }
+
+        return CountBatchResponse.builder()
+                .count(results.length)
+                .results(Arrays.asList(results))
+                .build();
+    }
+
+    private void countRange(List<String> texts, CountResponse[] results, int from, int to) {
+        for (int i = from; i < to; i++) {
+            results[i] = countService.count(new CountRequest(texts.get(i)));
+        }
+    }
+
+    private void validate(String text) {
+        if (text == null) {
+            throw new BadRequestException("テキストは必須です");
+        }
+        if (text.length() > MAX_TEXT_LENGTH) {
+            throw new BadRequestException("テキストは100,000文字以内で入力してください");
+        }
+    }
+
+    // Failures caused by the request body; any other IOException is left to the caller
+    private void rethrowAsBadRequest(IOException e, LimitedInputStream in) {
+        if (in.exceeded) {
+            throw new BadRequestException("リクエストは" + maxBytes + "バイト以内で送信してください");
+        }
+        if (e instanceof JsonProcessingException) {
+            throw new BadRequestException("JSONの形式が正しくありません");
+        }
+    }
+
+    private static void await(Future<Void> future) {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Batch count was interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    // Stops reading as soon as the body exceeds the limit, before it is fully buffered
+    private static final class LimitedInputStream extends FilterInputStream {
+
+        private final long maxBytes;
+        private long read;
+        private boolean exceeded;
+
+        private LimitedInputStream(InputStream in, long maxBytes) {
+            super(in);
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count(n);
+            }
+            return n;
+        }
+
+        private void count(int n) throws IOException {
+            read += n;
+            if (read > maxBytes) {
+                exceeded = true;
+                throw new IOException("Request body exceeds " + maxBytes + " bytes");
+            }
+        }
+    }
+}
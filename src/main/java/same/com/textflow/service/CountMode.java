@@ -0,0 +1,27 @@
+package same.com.textflow.service;
+
+import same.com.textflow.exception.BadRequestException;
+
+/**
+ * How {@link CountService} measures length. {@code UTF16} keeps the original
+ * {@code String.length()} semantics; {@code UNICODE} additionally reports code
+ * points, grapheme clusters and X/Twitter weighted length, and derives the SNS
+ * remaining counts from them.
+ */
+public enum CountMode {
+
+    UTF16,
+    UNICODE;
+
+    public static CountMode of(String value) {
+        if (value == null || value.isEmpty()) {
+            return UTF16;
+        }
+        for (CountMode mode : values()) {
+            if (mode.name().equalsIgnoreCase(value)) {
+                return mode;
+            }
+        }
+        throw new BadRequestException("modeはutf16またはunicodeを指定してください");
+    }
+}
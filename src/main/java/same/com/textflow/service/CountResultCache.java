@@ -0,0 +1,58 @@
+package same.com.textflow.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import same.com.textflow.dto.response.CountResponse;
+import same.com.textflow.text.ContentHash;
+
+import java.security.SecureRandom;
+import java.util.function.Supplier;
+
+/**
+ * Caches count results by text length and 128-bit content hash. The text
+ * itself is never retained. The cache is shared by all callers, so the hash
+ * is keyed with a random per-process key: nobody can craft a text whose key
+ * matches another text and serve its counts to other users. Hit, miss and
+ * eviction counts are published as the "countResults" cache metrics.
+ */
+@Component
+public class CountResultCache {
+
+    private final Cache<Key, CountResponse> cache;
+    private final int minLength;
+    private final long hashKey0;
+    private final long hashKey1;
+
+    public CountResultCache(
+            @Value("${app.count.cache.max-entries}") long maxEntries,
+            @Value("${app.count.cache.min-length}") int minLength,
+            MeterRegistry meterRegistry) {
+        // Caffeine's size eviction is W-TinyLFU, so one-off texts do not push out popular templates
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .recordStats()
+                .build();
+        this.minLength = minLength;
+        SecureRandom random = new SecureRandom();
+        this.hashKey0 = random.nextLong();
+        this.hashKey1 = random.nextLong();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "countResults");
+    }
+
+    public CountResponse get(String text, CountMode mode, Supplier<CountResponse> counter) {
+        if (text.length() < minLength) {
+            return counter.get();
+        }
+        Key key = new Key(mode, text.length(), ContentHash.of(text, hashKey0, hashKey1));
+        CountResponse cached = cache.get(key, k -> counter.get());
+        // Responses are mutable DTOs, never hand out the cached instance
+        return cached.toBuilder().build();
+    }
+
+    private record Key(CountMode mode, int length, ContentHash hash) {
+    }
+}
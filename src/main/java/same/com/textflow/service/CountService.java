@@ -1,65 +1,146 @@
 package same.com.textflow.service;
 
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import same.com.textflow.dto.request.CountRequest;
 import same.com.textflow.dto.response.CountResponse;
+import same.com.textflow.exception.BadRequestException;
+import same.com.textflow.text.TextScanner;
+import same.com.textflow.text.TextStatistics;
+import same.com.textflow.text.UnicodeScanner;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
 import java.nio.charset.StandardCharsets;
-import java.util.Arrays;
 
 @Service
+@RequiredArgsConstructor
 public class CountService {
 
     private static final int TWITTER_LIMIT = 140;
+    // X/Twitter weighted limit: 280 units, CJK and emoji weigh 2
+    private static final int TWITTER_WEIGHTED_LIMIT = 280;
     private static final int INSTAGRAM_LIMIT = 2200;
     private static final int MANUSCRIPT_CHARS = 400;
+    private static final int STREAM_BUFFER_SIZE = 16 * 1024;
+
+    private final CountResultCache countResultCache;
+
+    @Value("${app.count.stream.max-bytes}")
+    private long streamMaxBytes;
 
     public CountResponse count(CountRequest request) {
-        String text = request.getText();
-        if (text == null) {
-            text = "";
+        return count(request, CountMode.UTF16);
+    }
+
+    public CountResponse count(CountRequest request, CountMode mode) {
+        String text = request.getText() != null ? request.getText() : "";
+        return countResultCache.get(text, mode, () -> count(text, mode));
+    }
+
+    private CountResponse count(String text, CountMode mode) {
+        if (mode == CountMode.UNICODE) {
+            return toResponse(TextScanner.scan(text), UnicodeScanner.scan(text));
         }
+        return toResponse(TextScanner.scan(text));
+    }
 
-        int totalChars = text.length();
-        int totalCharsWithoutSpace = text.replaceAll("\\s", "").length();
-        int bytes = text.getBytes(StandardCharsets.UTF_8).length;
-        int lines = text.isEmpty() ? 0 : text.split("\n", -1).length;
-        int words = countWords(text);
-        int paragraphs = countParagraphs(text);
-        int manuscripts = (int) Math.ceil((double) totalChars / MANUSCRIPT_CHARS);
+    /**
+     * Counts UTF-8 text of any size through fixed-size buffers. Malformed input
+     * is replaced with U+FFFD, so the result matches counting the decoded text.
+     */
+    public CountResponse count(ReadableByteChannel channel) throws IOException {
+        return count(channel, CountMode.UTF16);
+    }
 
+    public CountResponse count(ReadableByteChannel channel, CountMode mode) throws IOException {
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        ByteBuffer in = ByteBuffer.allocate(STREAM_BUFFER_SIZE);
+        CharBuffer out = CharBuffer.allocate(STREAM_BUFFER_SIZE);
+        TextScanner scanner = new TextScanner();
+        UnicodeScanner unicodeScanner = mode == CountMode.UNICODE ? new UnicodeScanner() : null;
+        long totalBytes = 0;
+
+        while (true) {
+            int read = channel.read(in);
+            if (read > 0) {
+                totalBytes += read;
+                if (totalBytes > streamMaxBytes) {
+                    throw new BadRequestException("テキストは" + streamMaxBytes + "バイト以内で送信してください");
+                }
+            }
+            boolean endOfInput = read < 0;
+            in.flip();
+            CoderResult result;
+            do {
+                result = decoder.decode(in, out, endOfInput);
+                drain(out, scanner, unicodeScanner);
+            } while (result.isOverflow());
+            in.compact();
+            if (endOfInput) {
+                break;
+            }
+        }
+        while (decoder.flush(out).isOverflow()) {
+            drain(out, scanner, unicodeScanner);
+        }
+        drain(out, scanner, unicodeScanner);
+
+        if (unicodeScanner != null) {
+            return toResponse(scanner.finish(), unicodeScanner.finish());
+        }
+        return toResponse(scanner.finish());
+    }
+
+    public CountResponse toResponse(TextStatistics stats) {
+        int totalChars = Math.toIntExact(stats.getChars());
         return CountResponse.builder()
                 .totalChars(totalChars)
-                .totalCharsWithoutSpace(totalCharsWithoutSpace)
-                .bytes(bytes)
-                .lines(lines)
-                .words(words)
-                .paragraphs(paragraphs)
-                .manuscripts(manuscripts)
+                .totalCharsWithoutSpace(Math.toIntExact(stats.getNonSpaceChars()))
+                .bytes(Math.toIntExact(stats.getBytes()))
+                .lines(Math.toIntExact(stats.getLines()))
+                .words(Math.toIntExact(stats.getWords()))
+                .paragraphs(Math.toIntExact(stats.getParagraphs()))
+                .manuscripts(manuscripts(stats.getChars()))
                 .twitterRemaining(Math.max(0, TWITTER_LIMIT - totalChars))
                 .instagramRemaining(Math.max(0, INSTAGRAM_LIMIT - totalChars))
                 .build();
     }
 
-    private int countWords(String text) {
-        if (text == null || text.trim().isEmpty()) {
-            return 0;
-        }
-        // Split by whitespace and count non-empty elements
-        String[] words = text.trim().split("\\s+");
-        return (int) Arrays.stream(words)
-                .filter(w -> !w.isEmpty())
-                .count();
+    public CountResponse toResponse(TextStatistics stats, UnicodeScanner.Result unicode) {
+        CountResponse response = toResponse(stats);
+        int graphemes = Math.toIntExact(unicode.graphemes());
+        int weightedLength = Math.toIntExact(unicode.weightedLength());
+
+        response.setCodePoints(Math.toIntExact(unicode.codePoints()));
+        response.setGraphemes(graphemes);
+        response.setWeightedLength(weightedLength);
+        response.setTwitterRemaining(Math.max(0, TWITTER_WEIGHTED_LIMIT - weightedLength));
+        response.setInstagramRemaining(Math.max(0, INSTAGRAM_LIMIT - graphemes));
+        return response;
+    }
+
+    /**
+     * Sheets of 400-character manuscript paper needed for {@code chars}.
+     */
+    public static int manuscripts(long chars) {
+        return Math.toIntExact((chars + MANUSCRIPT_CHARS - 1) / MANUSCRIPT_CHARS);
     }
 
-    private int countParagraphs(String text) {
-        if (text == null || text.trim().isEmpty()) {
-            return 0;
+    private static void drain(CharBuffer out, TextScanner scanner, UnicodeScanner unicodeScanner) {
+        out.flip();
+        scanner.accept(out.array(), out.arrayOffset() + out.position(), out.remaining());
+        if (unicodeScanner != null) {
+            unicodeScanner.accept(out.array(), out.arrayOffset() + out.position(), out.remaining());
         }
-        // Split by one or more blank lines
-        String[] paragraphs = text.split("\n\\s*\n");
-        return (int) Arrays.stream(paragraphs)
-                .filter(p -> !p.trim().isEmpty())
-                .count();
+        out.clear();
     }
 }
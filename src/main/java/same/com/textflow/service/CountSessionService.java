@@ -0,0 +1,120 @@
+package same.com.textflow.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import same.com.textflow.dto.request.CountEditRequest;
+import same.com.textflow.dto.request.CountSessionRequest;
+import same.com.textflow.dto.response.CountSessionResponse;
+import same.com.textflow.exception.BadRequestException;
+import same.com.textflow.exception.ResourceNotFoundException;
+import same.com.textflow.text.IncrementalDocument;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Server-side documents for live editors: the client sends edit deltas and
+ * gets updated counts without re-posting the whole text.
+ */
+@Service
+public class CountSessionService {
+
+    private final CountService countService;
+    private final Cache<String, IncrementalDocument> sessions;
+    private final int maxChars;
+    private final SecureRandom random = new SecureRandom();
+
+    @Autowired
+    public CountSessionService(
+            CountService countService,
+            @Value("${app.count.session.idle-timeout}") Duration idleTimeout,
+            @Value("${app.count.session.max-memory-bytes}") long maxMemoryBytes,
+            @Value("${app.count.session.max-chars}") int maxChars) {
+        this(countService, idleTimeout, maxMemoryBytes, maxChars, Ticker.systemTicker(), ForkJoinPool.commonPool());
+    }
+
+    // The ticker drives idle expiry and the executor runs evictions
+    CountSessionService(
+            CountService countService,
+            Duration idleTimeout,
+            long maxMemoryBytes,
+            int maxChars,
+            Ticker ticker,
+            Executor executor) {
+        this.countService = countService;
+        this.maxChars = maxChars;
+        this.sessions = Caffeine.newBuilder()
+                .expireAfterAccess(idleTimeout)
+                .maximumWeight(maxMemoryBytes)
+                .weigher((String token, IncrementalDocument document) ->
+                        (int) Math.min(Integer.MAX_VALUE, document.estimatedBytes()))
+                .ticker(ticker)
+                .executor(executor)
+                .build();
+    }
+
+    public CountSessionResponse createSession(CountSessionRequest request) {
+        String token = newToken();
+        IncrementalDocument document = new IncrementalDocument(request.getText());
+        sessions.put(token, document);
+        return toResponse(token, document);
+    }
+
+    public CountSessionResponse applyEdits(String token, CountEditRequest request) {
+        // compute re-weighs the entry and serializes edits to the same session
+        IncrementalDocument document = sessions.asMap().computeIfPresent(token, (key, current) -> {
+            validate(current.length(), request);
+            for (CountEditRequest.Edit edit : request.getEdits()) {
+                current.edit(edit.getOffset(), edit.getDeleteLength(), insertText(edit));
+            }
+            return current;
+        });
+        if (document == null) {
+            throw new ResourceNotFoundException("CountSession", "token", token);
+        }
+        return toResponse(token, document);
+    }
+
+    public void closeSession(String token) {
+        sessions.invalidate(token);
+    }
+
+    private void validate(int length, CountEditRequest request) {
+        long current = length;
+        for (CountEditRequest.Edit edit : request.getEdits()) {
+            int offset = edit.getOffset();
+            if (offset > current || edit.getDeleteLength() > current - offset) {
+                throw new BadRequestException("編集範囲がテキストの範囲外です");
+            }
+            current += insertText(edit).length() - edit.getDeleteLength();
+            if (current > maxChars) {
+                throw new BadRequestException("テキストは" + maxChars + "文字以内で入力してください");
+            }
+        }
+    }
+
+    private CountSessionResponse toResponse(String token, IncrementalDocument document) {
+        return CountSessionResponse.builder()
+                .sessionToken(token)
+                .length(document.length())
+                .count(countService.toResponse(document.statistics()))
+                .build();
+    }
+
+    private String newToken() {
+        byte[] bytes = new byte[16];
+        random.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private static String insertText(CountEditRequest.Edit edit) {
+        return edit.getInsertText() != null ? edit.getInsertText() : "";
+    }
+}
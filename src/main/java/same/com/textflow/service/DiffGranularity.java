@@ -0,0 +1,26 @@
+package same.com.textflow.service;
+
+import same.com.textflow.exception.BadRequestException;
+
+/**
+ * How far {@link DiffService} refines changed lines: not at all, by word
+ * (whitespace, punctuation and Unicode script runs) or by character.
+ */
+public enum DiffGranularity {
+
+    LINE,
+    WORD,
+    CHAR;
+
+    public static DiffGranularity of(String value) {
+        if (value == null || value.isEmpty()) {
+            return LINE;
+        }
+        for (DiffGranularity granularity : values()) {
+            if (granularity.name().equalsIgnoreCase(value)) {
+                return granularity;
+            }
+        }
+        throw new BadRequestException("granularityはline、wordまたはcharを指定してください");
+    }
+}
@@ -0,0 +1,351 @@
+package same.com.textflow.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import same.com.textflow.dto.request.DiffRequest;
+import same.com.textflow.dto.response.DiffDetailResponse;
+import same.com.textflow.dto.response.DiffHistoryResponse;
+import same.com.textflow.dto.response.DiffResponse;
+import same.com.textflow.entity.DiffHistory;
+import same.com.textflow.entity.User;
+import same.com.textflow.exception.BadRequestException;
+import same.com.textflow.exception.ResourceNotFoundException;
+import same.com.textflow.repository.DiffHistoryRepository;
+import same.com.textflow.repository.DiffHistorySummary;
+import same.com.textflow.text.EditScript;
+import same.com.textflow.text.LineDiff;
+import same.com.textflow.text.TokenDiff;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+public class DiffService {
+
+    private static final int DEFAULT_CONTEXT_LINES = 3;
+    private static final int MAX_CONTEXT_LINES = 100;
+
+    private final DiffHistoryRepository diffHistoryRepository;
+    private final UserService userService;
+
+    @Value("${app.diff.max-lines}")
+    private int maxLines;
+
+    @Value("${app.diff.refine-budget-ms}")
+    private long refineBudgetMs;
+
+    @Value("${app.diff.delta-storage}")
+    private boolean deltaStorage;
+
+    public DiffResponse compute(DiffRequest request) {
+        Result result = diff(request.getTextBefore(), request.getTextAfter(),
+                contextLines(request), DiffGranularity.of(request.getGranularity()));
+
+        return DiffResponse.builder()
+                .title(title(request))
+                .addedLines(result.added)
+                .deletedLines(result.deleted)
+                .changedLines(result.changed)
+                .hunks(result.hunks)
+                .refinementComplete(result.refinementComplete)
+                .build();
+    }
+
+    @Transactional
+    public DiffResponse createDiff(String email, DiffRequest request) {
+        User user = userService.getUserByEmail(email);
+        Result result = diff(request.getTextBefore(), request.getTextAfter(),
+                contextLines(request), DiffGranularity.of(request.getGranularity()));
+
+        DiffHistory history = DiffHistory.builder()
+                .user(user)
+                .title(title(request))
+                .textBefore(request.getTextBefore())
+                .addedLines(result.added)
+                .deletedLines(result.deleted)
+                .changedLines(result.changed)
+                .build();
+        store(history, request.getTextAfter(), result.lineDiff);
+
+        DiffHistory saved = diffHistoryRepository.save(history);
+        return DiffResponse.builder()
+                .id(saved.getId())
+                .title(saved.getTitle())
+                .addedLines(saved.getAddedLines())
+                .deletedLines(saved.getDeletedLines())
+                .changedLines(saved.getChangedLines())
+                .hunks(result.hunks)
+                .refinementComplete(result.refinementComplete)
+                .createdAt(saved.getCreatedAt())
+                .build();
+    }
+
+    @Transactional(readOnly = true)
+    public Page<DiffHistoryResponse> getDiffs(String email, Pageable pageable) {
+        User user = userService.getUserByEmail(email);
+        Page<DiffHistorySummary> histories = diffHistoryRepository.findSummaryByUserOrderByCreatedAtDesc(user, pageable);
+
+        return histories.map(this::mapToDiffHistoryResponse);
+    }
+
+    @Transactional(readOnly = true)
+    public DiffDetailResponse getDiff(String email, Long id, int contextLines, DiffGranularity granularity) {
+        if (contextLines < 0 || contextLines > MAX_CONTEXT_LINES) {
+            throw new BadRequestException("前後の行数は0から100で指定してください");
+        }
+        User user = userService.getUserByEmail(email);
+        DiffHistory history = diffHistoryRepository.findByIdAndUser(id, user)
+                .orElseThrow(() -> new ResourceNotFoundException("DiffHistory", "id", id));
+
+        String textAfter = textAfter(history);
+        Result result = diff(history.getTextBefore(), textAfter, contextLines, granularity);
+        return DiffDetailResponse.builder()
+                .id(history.getId())
+                .title(history.getTitle())
+                .textBefore(history.getTextBefore())
+                .textAfter(textAfter)
+                .addedLines(history.getAddedLines())
+                .deletedLines(history.getDeletedLines())
+                .changedLines(history.getChangedLines())
+                .hunks(result.hunks)
+                .refinementComplete(result.refinementComplete)
+                .createdAt(history.getCreatedAt())
+                .build();
+    }
+
+    @Transactional
+    public void deleteDiff(String email, Long id) {
+        User user = userService.getUserByEmail(email);
+        DiffHistory history = diffHistoryRepository.findByIdAndUser(id, user)
+                .orElseThrow(() -> new ResourceNotFoundException("DiffHistory", "id", id));
+
+        diffHistoryRepository.delete(history);
+    }
+
+    private Result diff(String before, String after, int contextLines, DiffGranularity granularity) {
+        // Reject oversized input before allocating anything proportional to it
+        if (lineCount(before) > maxLines || lineCount(after) > maxLines) {
+            throw new BadRequestException("比較できるテキストは" + maxLines + "行までです");
+        }
+
+        LineDiff diff = LineDiff.compute(before, after);
+        int n = diff.getOldLines().length;
+        int m = diff.getNewLines().length;
+
+        // Change blocks as {oldFrom, oldTo, newFrom, newTo}
+        List<int[]> blocks = new ArrayList<>();
+        Result result = new Result();
+        result.lineDiff = diff;
+        int i = 0;
+        int j = 0;
+        while (i < n || j < m) {
+            if ((i < n && diff.isDeleted(i)) || (j < m && diff.isInserted(j))) {
+                int i0 = i;
+                int j0 = j;
+                while ((i < n && diff.isDeleted(i)) || (j < m && diff.isInserted(j))) {
+                    while (i < n && diff.isDeleted(i)) {
+                        i++;
+                    }
+                    while (j < m && diff.isInserted(j)) {
+                        j++;
+                    }
+                }
+                blocks.add(new int[]{i0, i, j0, j});
+
+                // A block that removes and adds lines counts as changed lines first
+                int changed = Math.min(i - i0, j - j0);
+                result.changed += changed;
+                result.deleted += i - i0 - changed;
+                result.added += j - j0 - changed;
+            } else {
+                i++;
+                j++;
+            }
+        }
+
+        Refiner refiner = granularity == DiffGranularity.LINE
+                ? null
+                : new Refiner(granularity, System.nanoTime() + refineBudgetMs * 1_000_000);
+        result.hunks = hunks(diff, blocks, contextLines, refiner);
+        if (refiner != null) {
+            result.refinementComplete = !refiner.expired;
+        }
+        return result;
+    }
+
+    // Keeps only an edit script for textAfter when that is clearly smaller than the text itself
+    private void store(DiffHistory history, String textAfter, LineDiff diff) {
+        byte[] script = deltaStorage ? EditScript.encode(diff) : null;
+        if (script != null && (long) script.length * 2 < textAfter.length()) {
+            history.setStorageMode(DiffHistory.STORAGE_DELTA);
+            history.setTextAfter("");
+            history.setEditScript(script);
+        } else {
+            history.setStorageMode(DiffHistory.STORAGE_FULL);
+            history.setTextAfter(textAfter);
+        }
+    }
+
+    private static String textAfter(DiffHistory history) {
+        if (DiffHistory.STORAGE_DELTA.equals(history.getStorageMode())) {
+            return EditScript.apply(history.getTextBefore(), history.getEditScript());
+        }
+        return history.getTextAfter();
+    }
+
+    private static List<DiffResponse.Hunk> hunks(LineDiff diff, List<int[]> blocks, int contextLines,
+                                                 Refiner refiner) {
+        String[] oldLines = diff.getOldLines();
+        String[] newLines = diff.getNewLines();
+        List<DiffResponse.Hunk> hunks = new ArrayList<>();
+
+        int first = 0;
+        while (first < blocks.size()) {
+            // Merge blocks whose unchanged gap would be covered by the context anyway
+            int last = first;
+            while (last + 1 < blocks.size() && blocks.get(last + 1)[0] - blocks.get(last)[1] <= 2 * contextLines) {
+                last++;
+            }
+
+            int oldFrom = Math.max(0, blocks.get(first)[0] - contextLines);
+            int newFrom = blocks.get(first)[2] - (blocks.get(first)[0] - oldFrom);
+            int oldTo = Math.min(oldLines.length, blocks.get(last)[1] + contextLines);
+            int newTo = blocks.get(last)[3] + (oldTo - blocks.get(last)[1]);
+
+            List<DiffResponse.Line> lines = new ArrayList<>();
+            int i = oldFrom;
+            int j = newFrom;
+            for (int b = first; b <= last; b++) {
+                int[] block = blocks.get(b);
+                while (i < block[0]) {
+                    lines.add(line("equal", oldLines[i++]));
+                    j++;
+                }
+                int firstDeleted = lines.size();
+                while (i < block[1]) {
+                    lines.add(line("delete", oldLines[i++]));
+                }
+                int firstInserted = lines.size();
+                while (j < block[3]) {
+                    lines.add(line("insert", newLines[j++]));
+                }
+                if (refiner != null) {
+                    // Pair the k-th deleted line with the k-th inserted line, as changedLines counts them
+                    int pairs = Math.min(firstInserted - firstDeleted, lines.size() - firstInserted);
+                    for (int k = 0; k < pairs; k++) {
+                        refiner.refine(lines.get(firstDeleted + k), lines.get(firstInserted + k));
+                    }
+                }
+            }
+            while (i < oldTo) {
+                lines.add(line("equal", oldLines[i++]));
+            }
+
+            hunks.add(DiffResponse.Hunk.builder()
+                    .oldStart(oldFrom + 1)
+                    .oldLines(oldTo - oldFrom)
+                    .newStart(newFrom + 1)
+                    .newLines(newTo - newFrom)
+                    .lines(lines)
+                    .build());
+            first = last + 1;
+        }
+        return hunks;
+    }
+
+    private static DiffResponse.Line line(String type, String text) {
+        return DiffResponse.Line.builder().type(type).text(text).build();
+    }
+
+    private static int lineCount(String text) {
+        if (text.isEmpty()) {
+            return 0;
+        }
+        int lines = 1;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') {
+                lines++;
+            }
+        }
+        return lines;
+    }
+
+    private static int contextLines(DiffRequest request) {
+        return request.getContextLines() != null ? request.getContextLines() : DEFAULT_CONTEXT_LINES;
+    }
+
+    private static String title(DiffRequest request) {
+        String title = request.getTitle();
+        if (title == null || title.isEmpty()) {
+            // Generate title from first 30 characters of the new text
+            String text = request.getTextAfter();
+            title = text.length() > 30 ? text.substring(0, 30) + "..." : text;
+        }
+        return title;
+    }
+
+    private DiffHistoryResponse mapToDiffHistoryResponse(DiffHistorySummary history) {
+        return DiffHistoryResponse.builder()
+                .id(history.getId())
+                .title(history.getTitle())
+                .addedLines(history.getAddedLines())
+                .deletedLines(history.getDeletedLines())
+                .changedLines(history.getChangedLines())
+                .createdAt(history.getCreatedAt())
+                .build();
+    }
+
+    private static final class Result {
+        private LineDiff lineDiff;
+        private int added;
+        private int deleted;
+        private int changed;
+        private List<DiffResponse.Hunk> hunks;
+        private Boolean refinementComplete;
+    }
+
+    private static final class Refiner {
+
+        private final DiffGranularity granularity;
+        private final long deadlineNanos;
+        private boolean expired;
+
+        private Refiner(DiffGranularity granularity, long deadlineNanos) {
+            this.granularity = granularity;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        // Once the budget is spent the remaining pairs keep plain line-level changes
+        private void refine(DiffResponse.Line deleted, DiffResponse.Line inserted) {
+            if (expired || System.nanoTime() - deadlineNanos > 0) {
+                expired = true;
+                return;
+            }
+            TokenDiff diff = granularity == DiffGranularity.CHAR
+                    ? TokenDiff.characters(deleted.getText(), inserted.getText(), deadlineNanos)
+                    : TokenDiff.words(deleted.getText(), inserted.getText(), deadlineNanos);
+            if (diff == null) {
+                expired = true;
+                return;
+            }
+            deleted.setSegments(segments(diff.getOldSegments(), "delete"));
+            inserted.setSegments(segments(diff.getNewSegments(), "insert"));
+        }
+
+        private static List<DiffResponse.Segment> segments(List<TokenDiff.Segment> segments, String changedType) {
+            List<DiffResponse.Segment> result = new ArrayList<>(segments.size());
+            for (TokenDiff.Segment segment : segments) {
+                result.add(DiffResponse.Segment.builder()
+                        .type(segment.changed() ? changedType : "equal")
+                        .text(segment.text())
+                        .build());
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package same.com.textflow.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import same.com.textflow.dto.request.ImportRequest;
+import same.com.textflow.dto.response.ImportProgressResponse;
+import same.com.textflow.entity.TextHistory;
+import same.com.textflow.entity.User;
+import same.com.textflow.exception.BadRequestException;
+import same.com.textflow.exception.ResourceNotFoundException;
+import same.com.textflow.repository.TextHistoryBulkWriter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Imports histories from an NDJSON stream or a JSON array without binding the
+ * whole body. Items are parsed one at a time and written in bounded batches,
+ * each in its own transaction, and a progress line is flushed after every
+ * batch. The next batch is only read once the previous one is written, so a
+ * slow database slows down reading the request instead of buffering it.
+ */
+@Slf4j
+@Service
+public class HistoryImportService {
+
+    private final TextHistoryBulkWriter textHistoryBulkWriter;
+    private final UserService userService;
+    private final HistorySearchIndex historySearchIndex;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final long maxBatchChars;
+
+    public HistoryImportService(
+            TextHistoryBulkWriter textHistoryBulkWriter,
+            UserService userService,
+            HistorySearchIndex historySearchIndex,
+            ObjectMapper objectMapper,
+            Validator validator,
+            TransactionTemplate transactionTemplate,
+            @Value("${app.history.import.batch-size}") int batchSize,
+            @Value("${app.history.import.stream.max-batch-chars}") long maxBatchChars) {
+        this.textHistoryBulkWriter = textHistoryBulkWriter;
+        this.userService = userService;
+        this.historySearchIndex = historySearchIndex;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.maxBatchChars = maxBatchChars;
+    }
+
+    /**
+     * Batches committed before a failure stay imported; the final line reports
+     * them either way.
+     */
+    public void importStream(String email, InputStream body, OutputStream progress) throws IOException {
+        long started = System.nanoTime();
+        User user = userService.getUserByEmail(email);
+        Counters counters = new Counters();
+        List<TextHistory> batch = new ArrayList<>(batchSize);
+        long batchChars = 0;
+
+        try (MappingIterator<ImportRequest.ImportItem> items =
+                     objectMapper.readerFor(ImportRequest.ImportItem.class).readValues(body)) {
+            while (items.hasNextValue()) {
+                ImportRequest.ImportItem item = items.nextValue();
+                validate(item, counters.imported + counters.skipped + batch.size());
+
+                TextHistory history = HistoryService.toImportedHistory(user, item);
+                if (history == null) {
+                    counters.skipped++;
+                    continue;
+                }
+                batch.add(history);
+                batchChars += history.getBlob().getContent().length();
+
+                if (batch.size() == batchSize || batchChars >= maxBatchChars) {
+                    write(batch, counters, progress, started);
+                    batchChars = 0;
+                }
+            }
+            if (!batch.isEmpty()) {
+                write(batch, counters, progress, started);
+            }
+        } catch (IOException | RuntimeException e) {
+            // The response is already streaming, so report the failure in-band
+            send(progress, line("error", counters, started).message(message(e)).build());
+            return;
+        }
+
+        send(progress, line("complete", counters, started)
+                .message(counters.imported + "件の履歴をインポートしました")
+                .build());
+    }
+
+    private void write(List<TextHistory> batch, Counters counters, OutputStream progress, long started)
+            throws IOException {
+        User user = batch.get(0).getUser();
+        try {
+            transactionTemplate.executeWithoutResult(status -> textHistoryBulkWriter.insertAll(batch));
+        } catch (DataIntegrityViolationException e) {
+            throw userService.translateWriteFailure(user, e);
+        }
+        historySearchIndex.invalidate(user.getId());
+        counters.imported += batch.size();
+        counters.batches++;
+        batch.clear();
+        send(progress, line("progress", counters, started).build());
+    }
+
+    private void send(OutputStream progress, ImportProgressResponse line) throws IOException {
+        progress.write(objectMapper.writeValueAsBytes(line));
+        progress.write('\n');
+        progress.flush();
+    }
+
+    private static ImportProgressResponse.ImportProgressResponseBuilder line(
+            String type, Counters counters, long started) {
+        long elapsedNanos = System.nanoTime() - started;
+        return ImportProgressResponse.builder()
+                .type(type)
+                .imported(counters.imported)
+                .skipped(counters.skipped)
+                .batches(counters.batches)
+                .elapsedMillis(elapsedNanos / 1_000_000)
+                .itemsPerSecond(counters.imported * 1e9 / Math.max(1, elapsedNanos));
+    }
+
+    // The constraints of ImportRequest.ImportItem, which @Valid only applies to a bound array
+    private void validate(ImportRequest.ImportItem item, long index) {
+        if (item == null) {
+            throw new BadRequestException((index + 1) + "件目: 履歴の形式が正しくありません");
+        }
+        validator.validate(item).stream()
+                .min(Comparator.comparing(violation -> violation.getPropertyPath().toString()))
+                .ifPresent(violation -> {
+                    throw new BadRequestException((index + 1) + "件目: " + violation.getMessage());
+                });
+    }
+
+    private static String message(Exception e) {
+        if (e instanceof BadRequestException || e instanceof ResourceNotFoundException) {
+            return e.getMessage();
+        }
+        if (e instanceof JsonProcessingException) {
+            return "JSONの形式が正しくありません";
+        }
+        log.error("Streaming import failed", e);
+        return "インポート中にエラーが発生しました";
+    }
+
+    private static final class Counters {
+        private long imported;
+        private long skipped;
+        private long batches;
+    }
+}
@@ -0,0 +1,245 @@
+package same.com.textflow.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import same.com.textflow.entity.TextHistory;
+import same.com.textflow.entity.User;
+import same.com.textflow.repository.TextHistoryRepository;
+import same.com.textflow.repository.TextHistorySearchRepository;
+import same.com.textflow.repository.TextHistorySummary;
+import same.com.textflow.text.NgramIndex;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Per-user {@link NgramIndex} for {@link SearchMode#MEMORY}. A user's index
+ * is built on their first search by streaming their histories, then kept up
+ * to date by the create/delete hooks; imports only invalidate it because bulk
+ * inserted rows have no ids here. Indexes are evicted by estimated size and
+ * published as the "historySearchIndexes" cache metrics. A user over the
+ * per-user limit is retried after {@code over-limit-retry}.
+ */
+@Slf4j
+@Component
+public class HistorySearchIndex {
+
+    private static final int VERIFY_CHUNK_SIZE = 1000;
+
+    private final TextHistoryRepository textHistoryRepository;
+    private final TextHistorySearchRepository textHistorySearchRepository;
+    private final AsyncCache<Long, UserIndex> indexes;
+    private final long maxUserBytes;
+    private final long overLimitRetryNanos;
+
+    public HistorySearchIndex(
+            TextHistoryRepository textHistoryRepository,
+            TextHistorySearchRepository textHistorySearchRepository,
+            @Value("${app.search.memory.max-bytes}") long maxBytes,
+            @Value("${app.search.memory.max-user-bytes}") long maxUserBytes,
+            @Value("${app.search.memory.over-limit-retry}") Duration overLimitRetry,
+            MeterRegistry meterRegistry) {
+        this.textHistoryRepository = textHistoryRepository;
+        this.textHistorySearchRepository = textHistorySearchRepository;
+        this.maxUserBytes = maxUserBytes;
+        this.overLimitRetryNanos = overLimitRetry.toNanos();
+        this.indexes = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((Long userId, UserIndex index) -> (int) Math.min(Integer.MAX_VALUE, index.estimatedBytes()))
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, indexes.synchronous(), "historySearchIndexes");
+    }
+
+    /**
+     * Histories whose title or content contains {@code query} ignoring case,
+     * newest id first, or null if the user's index is over the per-user limit.
+     */
+    public Page<TextHistorySummary> search(User user, String query, Pageable pageable) {
+        UserIndex userIndex = index(user.getId());
+        NgramIndex.Hits hits;
+        synchronized (userIndex) {
+            if (userIndex.index == null) {
+                return null;
+            }
+            hits = userIndex.index.search(query);
+        }
+
+        // Ordinals follow insertion, not id (a coalesced draft revision is re-added), so
+        // both paths page by id
+        List<Long> matched = hits.exact() ? toList(hits.ids()) : verify(user, hits.ids(), query);
+        matched.sort(Comparator.reverseOrder());
+        int from = (int) Math.min(pageable.getOffset(), matched.size());
+        int to = Math.min(from + pageable.getPageSize(), matched.size());
+        List<Long> pageIds = matched.subList(from, to);
+
+        List<TextHistorySummary> content = pageIds.isEmpty()
+                ? new ArrayList<>()
+                : new ArrayList<>(textHistoryRepository.findSummaryByUserAndIdIn(user, pageIds));
+        content.sort(Comparator.comparing(TextHistorySummary::getId).reversed());
+        return new PageImpl<>(content, pageable, matched.size());
+    }
+
+    public void added(Long userId, Long id, String title, String content) {
+        afterCommit(() -> update(userId, userIndex -> userIndex.add(id, title, content)));
+    }
+
+    public void removed(Long userId, Long id) {
+        afterCommit(() -> update(userId, userIndex -> userIndex.remove(id)));
+    }
+
+    public void invalidate(Long userId) {
+        afterCommit(() -> indexes.synchronous().invalidate(userId));
+    }
+
+    /**
+     * Builds on the calling thread rather than in the cache's compute lock,
+     * which would be held (pinning a virtual thread's carrier) while the
+     * histories stream from the database. Concurrent searches wait for the
+     * same build.
+     */
+    private UserIndex index(Long userId) {
+        CompletableFuture<UserIndex> building = new CompletableFuture<>();
+        CompletableFuture<UserIndex> existing = indexes.asMap().putIfAbsent(userId, building);
+        if (existing != null) {
+            UserIndex userIndex = existing.join();
+            if (userIndex.overLimitFor() >= overLimitRetryNanos && indexes.asMap().remove(userId, existing)) {
+                return index(userId);
+            }
+            return userIndex;
+        }
+        try {
+            building.complete(build(userId));
+        } catch (RuntimeException e) {
+            building.completeExceptionally(e);
+            throw e;
+        }
+        return building.join();
+    }
+
+    // Applied once a build in progress completes; add and remove are idempotent, so
+    // changes the build already picked up are harmless. Recomputing re-weighs the entry.
+    private void update(Long userId, Consumer<UserIndex> change) {
+        CompletableFuture<UserIndex> future = indexes.getIfPresent(userId);
+        if (future != null) {
+            future.thenRun(() -> indexes.synchronous().asMap().computeIfPresent(userId, (key, userIndex) -> {
+                change.accept(userIndex);
+                return userIndex;
+            }));
+        }
+    }
+
+    private UserIndex build(Long userId) {
+        long started = System.nanoTime();
+        UserIndex userIndex = new UserIndex(maxUserBytes);
+        textHistorySearchRepository.forEachDocument(userId, (id, title, content) -> {
+            userIndex.add(id, title, content);
+            return userIndex.index != null;
+        });
+        if (userIndex.index == null) {
+            log.info("Search index for user {} exceeds {} bytes, falling back to title search", userId, maxUserBytes);
+        } else {
+            log.debug("Built search index for user {}: {} histories, {} bytes in {} ms", userId,
+                    userIndex.index.size(), userIndex.estimatedBytes(), (System.nanoTime() - started) / 1_000_000);
+        }
+        return userIndex;
+    }
+
+    // Drops the n-gram false positives of queries longer than two chars. Compressed
+    // content cannot be matched in SQL, so those histories are checked here.
+    private List<Long> verify(User user, long[] ids, String query) {
+        String lowerQuery = query.toLowerCase(Locale.ROOT);
+        String pattern = "%" + TextHistorySearchRepository.escapeLike(lowerQuery) + "%";
+        List<Long> candidates = toList(ids);
+        Set<Long> matched = new HashSet<>();
+        for (int from = 0; from < candidates.size(); from += VERIFY_CHUNK_SIZE) {
+            List<Long> chunk = candidates.subList(from, Math.min(from + VERIFY_CHUNK_SIZE, candidates.size()));
+            matched.addAll(textHistoryRepository.findIdsContaining(user, chunk, pattern));
+            for (TextHistory history : textHistoryRepository.findPackedIn(user, chunk)) {
+                if (history.getBlob().getContent().toLowerCase(Locale.ROOT).contains(lowerQuery)) {
+                    matched.add(history.getId());
+                }
+            }
+        }
+        return new ArrayList<>(matched);
+    }
+
+    private static List<Long> toList(long[] ids) {
+        List<Long> list = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            list.add(id);
+        }
+        return list;
+    }
+
+    // Index changes must not be visible before, or without, the database change
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * One user's index, or a marker with a null index once it outgrew the
+     * per-user limit. Guarded by its own monitor.
+     */
+    private static final class UserIndex {
+
+        private final long maxBytes;
+        private NgramIndex index = new NgramIndex();
+        private long overLimitSince;
+
+        UserIndex(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        synchronized void add(long id, String title, String content) {
+            if (index != null) {
+                index.add(id, title, content);
+                if (index.estimatedBytes() > maxBytes) {
+                    index = null;
+                    overLimitSince = System.nanoTime();
+                }
+            }
+        }
+
+        synchronized void remove(long id) {
+            if (index != null) {
+                index.remove(id);
+            }
+        }
+
+        // Nanoseconds since the index outgrew the limit, or -1 while it is within it
+        synchronized long overLimitFor() {
+            return index == null ? System.nanoTime() - overLimitSince : -1;
+        }
+
+        synchronized long estimatedBytes() {
+            return index != null ? index.estimatedBytes() : 0;
+        }
+    }
+}
@@ -1,33 +1,70 @@
 package same.com.textflow.service;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import same.com.textflow.dto.request.HistoryRequest;
 import same.com.textflow.dto.request.ImportRequest;
 import same.com.textflow.dto.response.HistoryDetailResponse;
 import same.com.textflow.dto.response.HistoryResponse;
+import same.com.textflow.dto.response.HistorySliceResponse;
 import same.com.textflow.dto.response.ImportResponse;
+import same.com.textflow.entity.TextBlob;
 import same.com.textflow.entity.TextHistory;
 import same.com.textflow.entity.User;
+import same.com.textflow.exception.BadRequestException;
 import same.com.textflow.exception.ResourceNotFoundException;
+import same.com.textflow.repository.TextBlobRepository;
+import same.com.textflow.repository.TextHistoryBulkWriter;
 import same.com.textflow.repository.TextHistoryRepository;
+import same.com.textflow.repository.TextHistorySearchHit;
+import same.com.textflow.repository.TextHistorySearchRepository;
+import same.com.textflow.repository.TextHistorySummary;
+import same.com.textflow.repository.UserRepository;
+import same.com.textflow.text.TextScanner;
+import same.com.textflow.text.TextStatistics;
 
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
 
 @Service
 @RequiredArgsConstructor
 public class HistoryService {
 
+    private static final int MAX_SCROLL_SIZE = 100;
+
     private final TextHistoryRepository textHistoryRepository;
+    private final TextHistoryBulkWriter textHistoryBulkWriter;
+    private final TextBlobRepository textBlobRepository;
     private final UserService userService;
+    private final UserRepository userRepository;
+    private final TextHistorySearchRepository textHistorySearchRepository;
+    private final HistorySearchIndex historySearchIndex;
+    private final HistoryWriteBehind historyWriteBehind;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.search.mode}")
+    private SearchMode searchMode;
+
+    @Value("${app.history.draft.coalesce-window-ms}")
+    private long draftCoalesceWindowMs;
 
     @Transactional(readOnly = true)
     public Page<HistoryResponse> getHistories(String email, Pageable pageable) {
         User user = userService.getUserByEmail(email);
-        Page<TextHistory> histories = textHistoryRepository.findByUserOrderByCreatedAtDesc(user, pageable);
+        Page<TextHistorySummary> histories = textHistoryRepository.findSummaryByUserOrderByCreatedAtDesc(user, pageable);
 
         return histories.map(this::mapToHistoryResponse);
     }
@@ -35,45 +72,152 @@ public class HistoryService {
     @Transactional(readOnly = true)
     public Page<HistoryResponse> searchHistories(String email, String query, Pageable pageable) {
         User user = userService.getUserByEmail(email);
-        Page<TextHistory> histories = textHistoryRepository
-                .findByUserAndTitleContainingIgnoreCaseOrderByCreatedAtDesc(user, query, pageable);
+        if (searchMode == SearchMode.POSTGRES) {
+            return textHistorySearchRepository.search(user.getId(), query, pageable)
+                    .map(hit -> mapToHistoryResponse(hit, query));
+        }
+        if (searchMode == SearchMode.MEMORY) {
+            Page<TextHistorySummary> histories = historySearchIndex.search(user, query, pageable);
+            if (histories != null) {
+                return histories.map(this::mapToHistoryResponse);
+            }
+        }
+        Page<TextHistorySummary> histories = textHistoryRepository
+                .findSummaryByUserAndTitleContainingIgnoreCaseOrderByCreatedAtDesc(user, query, pageable);
 
         return histories.map(this::mapToHistoryResponse);
     }
 
-    @Transactional
+    /**
+     * Keyset pagination on (createdAt, id): each page seeks past the last row
+     * of the previous one, so deep pages cost the same as the first and no
+     * count query is issued.
+     */
+    @Transactional(readOnly = true)
+    public HistorySliceResponse scrollHistories(String email, String cursor, int size) {
+        if (size < 1 || size > MAX_SCROLL_SIZE) {
+            throw new BadRequestException("取得件数は1から" + MAX_SCROLL_SIZE + "で指定してください");
+        }
+        User user = userService.getUserByEmail(email);
+        Pageable pageable = PageRequest.ofSize(size);
+
+        Slice<TextHistorySummary> histories;
+        if (cursor == null || cursor.isEmpty()) {
+            histories = textHistoryRepository.findSliceByUserOrderByCreatedAtDescIdDesc(user, pageable);
+        } else {
+            Cursor position = Cursor.decode(cursor);
+            histories = textHistoryRepository.findSummaryAfter(user, position.createdAt(), position.id(), pageable);
+        }
+
+        List<HistoryResponse> content = histories.map(this::mapToHistoryResponse).getContent();
+        String nextCursor = null;
+        if (histories.hasNext()) {
+            HistoryResponse last = content.get(content.size() - 1);
+            nextCursor = new Cursor(last.getCreatedAt(), last.getId()).encode();
+        }
+
+        return HistorySliceResponse.builder()
+                .content(content)
+                .hasNext(histories.hasNext())
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    /**
+     * Not one transaction, so a save waiting on {@link HistoryWriteBehind}
+     * holds no connection the writer needs.
+     * <p>
+     * Saves with a draft id replace the content of the draft's revision
+     * started within the coalesce window instead of adding a row, so an
+     * autosaving editor leaves one revision per window. They are always
+     * written synchronously, as they need to see the previous revision. The
+     * user's row is locked first: the revision lock alone cannot stop two
+     * first saves of a draft from both finding no revision and both inserting.
+     */
     public HistoryResponse createHistory(String email, HistoryRequest request) {
         User user = userService.getUserByEmail(email);
 
+        String content = request.getContent();
         String title = request.getTitle();
         if (title == null || title.isEmpty()) {
             // Generate title from first 30 characters of content
-            title = request.getContent().length() > 30
-                    ? request.getContent().substring(0, 30) + "..."
-                    : request.getContent();
+            title = content.length() > 30
+                    ? content.substring(0, 30) + "..."
+                    : content;
         }
 
-        String content = request.getContent();
-        int charCount = content.length();
-        int lineCount = content.isEmpty() ? 0 : content.split("\n", -1).length;
-
-        TextHistory history = TextHistory.builder()
+        TextHistory.TextHistoryBuilder builder = withStatistics(TextHistory.builder(), content)
                 .user(user)
                 .title(title)
-                .content(content)
                 .contentType(request.getContentType() != null ? request.getContentType() : "plain")
-                .charCount(charCount)
-                .lineCount(lineCount)
-                .build();
+                .draftId(request.getDraftId());
+
+        if (request.getDraftId() != null) {
+            return transactionTemplate.execute(status -> {
+                userRepository.findLockedById(user.getId())
+                        .orElseThrow(() -> new ResourceNotFoundException("User", "id", user.getId()));
+                return textHistoryRepository
+                        .findFirstByUserAndDraftIdAndCreatedAtAfterOrderByCreatedAtDescIdDesc(user,
+                                request.getDraftId(), LocalDateTime.now().minus(Duration.ofMillis(draftCoalesceWindowMs)))
+                        .map(revision -> mapToHistoryResponse(coalesce(revision, builder.build(), content)))
+                        .orElseGet(() -> save(builder, content));
+            });
+        }
+        try {
+            if (historyWriteBehind.isEnabled()) {
+                TextHistory history = builder.blob(TextBlob.of(content)).build();
+                if (historyWriteBehind.write(history)) {
+                    return mapToHistoryResponse(history);
+                }
+            }
 
-        TextHistory savedHistory = textHistoryRepository.save(history);
+            return transactionTemplate.execute(status -> save(builder, content));
+        } catch (DataIntegrityViolationException e) {
+            throw userService.translateWriteFailure(user, e);
+        }
+    }
+
+    private HistoryResponse save(TextHistory.TextHistoryBuilder builder, String content) {
+        TextHistory savedHistory = textHistoryRepository.save(
+                builder.blob(textBlobRepository.acquire(content)).build());
+        historySearchIndex.added(savedHistory.getUser().getId(), savedHistory.getId(), savedHistory.getTitle(),
+                content);
         return mapToHistoryResponse(savedHistory);
     }
 
+    // Moves the draft's current revision to the saved content; an unchanged text keeps its blob
+    private TextHistory coalesce(TextHistory revision, TextHistory saved, String content) {
+        TextBlob blob = TextBlob.of(content);
+        // A revision not backfilled yet holds no blob reference to release
+        String previousHash = revision.getBlob() != null ? revision.getBlob().getHash() : null;
+        boolean changed = !blob.getHash().equals(previousHash);
+        if (changed) {
+            revision.setBlob(textBlobRepository.acquire(blob));
+        }
+        revision.setTitle(saved.getTitle());
+        revision.setContentType(saved.getContentType());
+        revision.setCharCount(saved.getCharCount());
+        revision.setLineCount(saved.getLineCount());
+        revision.setByteCount(saved.getByteCount());
+        revision.setWordCount(saved.getWordCount());
+        revision.setParagraphCount(saved.getParagraphCount());
+        revision.setManuscriptCount(saved.getManuscriptCount());
+        // The row must point at the new blob before the old one can go
+        textHistoryRepository.flush();
+        if (changed && previousHash != null) {
+            textBlobRepository.release(previousHash);
+        }
+
+        Long userId = revision.getUser().getId();
+        historySearchIndex.removed(userId, revision.getId());
+        historySearchIndex.added(userId, revision.getId(), revision.getTitle(), content);
+        return revision;
+    }
+
     @Transactional(readOnly = true)
     public HistoryDetailResponse getHistory(String email, Long id) {
         User user = userService.getUserByEmail(email);
-        TextHistory history = textHistoryRepository.findByIdAndUser(id, user)
+        TextHistory history = textHistoryRepository.findWithBlobByIdAndUser(id, user)
                 .orElseThrow(() -> new ResourceNotFoundException("History", "id", id));
 
         return mapToHistoryDetailResponse(history);
@@ -86,68 +230,197 @@ public class HistoryService {
                 .orElseThrow(() -> new ResourceNotFoundException("History", "id", id));
 
         textHistoryRepository.delete(history);
+        // The row must be gone before its blob can be
+        textHistoryRepository.flush();
+        if (history.getBlob() != null) {
+            textBlobRepository.release(history.getBlob().getHash());
+        }
+        historySearchIndex.removed(user.getId(), id);
     }
 
-    @Transactional
+    /**
+     * Not annotated, so a write failed by a deleted user can be told apart
+     * once its transaction has rolled back.
+     */
     public ImportResponse importHistories(String email, ImportRequest request) {
+        long started = System.nanoTime();
         User user = userService.getUserByEmail(email);
-        int importedCount = 0;
+        List<TextHistory> histories = new ArrayList<>(request.getHistories().size());
 
         for (ImportRequest.ImportItem item : request.getHistories()) {
-            String content = item.getContent();
-            if (content == null || content.isEmpty()) {
-                continue;
+            TextHistory history = toImportedHistory(user, item);
+            if (history != null) {
+                histories.add(history);
             }
+        }
 
-            String title = item.getTitle();
-            if (title == null || title.isEmpty()) {
-                title = content.length() > 30
-                        ? content.substring(0, 30) + "..."
-                        : content;
-            }
+        int batches;
+        try {
+            batches = transactionTemplate.execute(status -> textHistoryBulkWriter.insertAll(histories));
+        } catch (DataIntegrityViolationException e) {
+            throw userService.translateWriteFailure(user, e);
+        }
+        historySearchIndex.invalidate(user.getId());
+        long elapsedNanos = System.nanoTime() - started;
 
-            int charCount = content.length();
-            int lineCount = content.isEmpty() ? 0 : content.split("\n", -1).length;
+        return ImportResponse.builder()
+                .imported(histories.size())
+                .message(histories.size() + "件の履歴をインポートしました")
+                .batches(batches)
+                .elapsedMillis(elapsedNanos / 1_000_000)
+                .itemsPerSecond(histories.size() * 1e9 / Math.max(1, elapsedNanos))
+                .build();
+    }
 
-            TextHistory history = TextHistory.builder()
-                    .user(user)
-                    .title(title)
-                    .content(content)
-                    .contentType(item.getContentType() != null ? item.getContentType() : "plain")
-                    .charCount(charCount)
-                    .lineCount(lineCount)
-                    .build();
+    /**
+     * Maps one imported item to an entity, or returns null for items without content.
+     */
+    static TextHistory toImportedHistory(User user, ImportRequest.ImportItem item) {
+        String content = item.getContent();
+        if (content == null || content.isEmpty()) {
+            return null;
+        }
 
-            textHistoryRepository.save(history);
-            importedCount++;
+        String title = item.getTitle();
+        if (title == null || title.isEmpty()) {
+            title = content.length() > 30
+                    ? content.substring(0, 30) + "..."
+                    : content;
         }
 
-        return ImportResponse.builder()
-                .imported(importedCount)
-                .message(importedCount + "件の履歴をインポートしました")
+        return withStatistics(TextHistory.builder(), content)
+                .user(user)
+                .title(title)
+                .blob(TextBlob.of(content))
+                .contentType(item.getContentType() != null ? item.getContentType() : "plain")
                 .build();
     }
 
+    /**
+     * Counts {@code content} once, with the same scanner as the count API, so
+     * the stored numbers match what the editor showed.
+     */
+    static TextHistory.TextHistoryBuilder withStatistics(TextHistory.TextHistoryBuilder builder, String content) {
+        TextStatistics stats = TextScanner.scan(content);
+        return builder
+                .charCount(Math.toIntExact(stats.getChars()))
+                .lineCount(Math.toIntExact(stats.getLines()))
+                .byteCount(Math.toIntExact(stats.getBytes()))
+                .wordCount(Math.toIntExact(stats.getWords()))
+                .paragraphCount(Math.toIntExact(stats.getParagraphs()))
+                .manuscriptCount(CountService.manuscripts(stats.getChars()));
+    }
+
     private HistoryResponse mapToHistoryResponse(TextHistory history) {
         return HistoryResponse.builder()
                 .id(history.getId())
                 .title(history.getTitle())
                 .charCount(history.getCharCount())
                 .lineCount(history.getLineCount())
+                .byteCount(history.getByteCount())
+                .wordCount(history.getWordCount())
+                .paragraphCount(history.getParagraphCount())
+                .manuscriptCount(history.getManuscriptCount())
+                .contentType(history.getContentType())
+                .createdAt(history.getCreatedAt())
+                .updatedAt(history.getUpdatedAt())
+                .build();
+    }
+
+    private HistoryResponse mapToHistoryResponse(TextHistorySummary history) {
+        return HistoryResponse.builder()
+                .id(history.getId())
+                .title(history.getTitle())
+                .charCount(history.getCharCount())
+                .lineCount(history.getLineCount())
+                .byteCount(history.getByteCount())
+                .wordCount(history.getWordCount())
+                .paragraphCount(history.getParagraphCount())
+                .manuscriptCount(history.getManuscriptCount())
                 .contentType(history.getContentType())
                 .createdAt(history.getCreatedAt())
                 .updatedAt(history.getUpdatedAt())
                 .build();
     }
 
+    private HistoryResponse mapToHistoryResponse(TextHistorySearchHit hit, String query) {
+        return HistoryResponse.builder()
+                .id(hit.id())
+                .title(hit.title())
+                .charCount(hit.charCount())
+                .lineCount(hit.lineCount())
+                .byteCount(hit.byteCount())
+                .wordCount(hit.wordCount())
+                .paragraphCount(hit.paragraphCount())
+                .manuscriptCount(hit.manuscriptCount())
+                .contentType(hit.contentType())
+                .createdAt(hit.createdAt())
+                .updatedAt(hit.updatedAt())
+                .rank(hit.rank())
+                .snippet(hit.snippet())
+                .titleHighlights(highlights(hit.title(), query))
+                .snippetHighlights(highlights(hit.snippet(), query))
+                .build();
+    }
+
+    /**
+     * Case-insensitive, non-overlapping occurrences of {@code query} in {@code text}.
+     */
+    static List<HistoryResponse.Highlight> highlights(String text, String query) {
+        List<HistoryResponse.Highlight> highlights = new ArrayList<>();
+        if (text == null || query.isEmpty()) {
+            return highlights;
+        }
+        for (int i = 0; i + query.length() <= text.length(); ) {
+            if (text.regionMatches(true, i, query, 0, query.length())) {
+                highlights.add(new HistoryResponse.Highlight(i, i + query.length()));
+                i += query.length();
+            } else {
+                i++;
+            }
+        }
+        return highlights;
+    }
+
+    /**
+     * Position after the last row of a page, sent to clients as opaque base64url text.
+     */
+    record Cursor(LocalDateTime createdAt, long id) {
+
+        String encode() {
+            String raw = createdAt + "|" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static Cursor decode(String cursor) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = raw.indexOf('|');
+                return new Cursor(LocalDateTime.parse(raw.substring(0, separator)),
+                        Long.parseLong(raw.substring(separator + 1)));
+            } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+                throw new BadRequestException("カーソルの形式が正しくありません");
+            }
+        }
+    }
+
     private HistoryDetailResponse mapToHistoryDetailResponse(TextHistory history) {
+        String content = history.getContent();
+        // Rows saved before the statistics were stored are counted here, the content is loaded anyway
+        TextHistory counted = history.getByteCount() != null
+                ? history
+                : withStatistics(TextHistory.builder(), content).build();
         return HistoryDetailResponse.builder()
                 .id(history.getId())
                 .title(history.getTitle())
-                .content(history.getContent())
+                .content(content)
                 .contentType(history.getContentType())
-                .charCount(history.getCharCount())
-                .lineCount(history.getLineCount())
+                .charCount(counted.getCharCount())
+                .lineCount(counted.getLineCount())
+                .byteCount(counted.getByteCount())
+                .wordCount(counted.getWordCount())
+                .paragraphCount(counted.getParagraphCount())
+                .manuscriptCount(counted.getManuscriptCount())
                 .createdAt(history.getCreatedAt())
                 .updatedAt(history.getUpdatedAt())
                 .build();
@@ -0,0 +1,240 @@
+package same.com.textflow.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import same.com.textflow.entity.TextHistory;
+import same.com.textflow.repository.TextHistoryBulkWriter;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind for {@link HistoryService#createHistory}, enabled by
+ * {@code app.history.write-behind.enabled}. A saved history gets its id from
+ * the table's sequence up front and goes into a bounded queue; a single
+ * writer thread inserts everything queued so far in one transaction through
+ * {@link TextHistoryBulkWriter}. When the queue is full the caller writes
+ * synchronously instead. When a batch fails, its histories are retried one
+ * per transaction so a bad row (e.g. of a user deleted meanwhile) only fails
+ * itself. See {@link WriteDurability} for when a save is acknowledged.
+ * <p>
+ * A committed save waits at most {@code commit-timeout}; one still queued
+ * then is taken back and written synchronously. If the writer thread exits
+ * (interrupted or failing), whatever is still queued fails and later saves
+ * write synchronously.
+ * <p>
+ * Publishes "history.write_behind.queue" (queued histories),
+ * "history.write_behind.flush" (time per committed batch) and
+ * "history.write_behind.failed" (histories that could not be written).
+ */
+@Slf4j
+@Component
+public class HistoryWriteBehind {
+
+    // Ids taken from the sequence per round trip; unused ones are lost on restart
+    private static final int ID_BLOCK_SIZE = 50;
+    private static final long POLL_MILLIS = 200;
+
+    private final TextHistoryBulkWriter textHistoryBulkWriter;
+    private final TransactionTemplate transactionTemplate;
+    private final HistorySearchIndex historySearchIndex;
+    private final boolean enabled;
+    private final WriteDurability durability;
+    private final int batchSize;
+    private final long commitTimeoutMillis;
+    private final BlockingQueue<Pending> queue;
+    private final Timer flushTimer;
+    private final Counter failedCounter;
+    private final List<Long> ids = new ArrayList<>();
+    private final ReentrantLock idLock = new ReentrantLock();
+    private Thread writer;
+    private volatile boolean stopped;
+
+    public HistoryWriteBehind(
+            TextHistoryBulkWriter textHistoryBulkWriter,
+            TransactionTemplate transactionTemplate,
+            HistorySearchIndex historySearchIndex,
+            @Value("${app.history.write-behind.enabled}") boolean enabled,
+            @Value("${app.history.write-behind.durability}") WriteDurability durability,
+            @Value("${app.history.write-behind.queue-capacity}") int queueCapacity,
+            @Value("${app.history.write-behind.batch-size}") int batchSize,
+            @Value("${app.history.write-behind.commit-timeout}") Duration commitTimeout,
+            MeterRegistry meterRegistry) {
+        if (queueCapacity < 1 || batchSize < 1) {
+            throw new IllegalArgumentException(
+                    "app.history.write-behind.queue-capacity and batch-size must be at least 1");
+        }
+        this.textHistoryBulkWriter = textHistoryBulkWriter;
+        this.transactionTemplate = transactionTemplate;
+        this.historySearchIndex = historySearchIndex;
+        this.enabled = enabled;
+        this.durability = durability;
+        this.batchSize = batchSize;
+        this.commitTimeoutMillis = commitTimeout.toMillis();
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        Gauge.builder("history.write_behind.queue", queue, BlockingQueue::size).register(meterRegistry);
+        this.flushTimer = Timer.builder("history.write_behind.flush").register(meterRegistry);
+        this.failedCounter = Counter.builder("history.write_behind.failed").register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (enabled) {
+            writer = new Thread(this::run, "history-write-behind");
+            writer.setDaemon(true);
+            writer.start();
+        }
+    }
+
+    /**
+     * Writes what is still queued before the context (and its datasource) closes.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        stopped = true;
+        if (writer != null) {
+            writer.join();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Assigns the history's id and timestamps and queues it. Returns false,
+     * leaving nothing queued, when the queue is full, the writer has stopped,
+     * or a committed save is still queued after {@code commit-timeout}.
+     */
+    public boolean write(TextHistory history) {
+        LocalDateTime now = LocalDateTime.now();
+        history.setId(nextId());
+        history.setCreatedAt(now);
+        history.setUpdatedAt(now);
+
+        Pending pending = new Pending(history, new CompletableFuture<>());
+        if (stopped || !queue.offer(pending)) {
+            return false;
+        }
+        // Queued after the writer's last drain
+        if (stopped && queue.remove(pending)) {
+            return false;
+        }
+
+        if (durability == WriteDurability.COMMITTED) {
+            try {
+                pending.committed().get(commitTimeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                if (queue.remove(pending)) {
+                    return false;
+                }
+                throw new IllegalStateException("履歴の保存に失敗しました", e);
+            } catch (ExecutionException e) {
+                // Left as is for the caller to tell a deleted user apart, see UserService#translateWriteFailure
+                if (e.getCause() instanceof DataIntegrityViolationException violation) {
+                    throw violation;
+                }
+                throw new IllegalStateException("履歴の保存に失敗しました", e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("履歴の保存に失敗しました", e);
+            }
+        }
+        return true;
+    }
+
+    // A lock rather than synchronized: a virtual thread waiting out the
+    // sequence round trip must not pin its carrier thread
+    private long nextId() {
+        idLock.lock();
+        try {
+            if (ids.isEmpty()) {
+                ids.addAll(textHistoryBulkWriter.nextIds(ID_BLOCK_SIZE));
+            }
+            return ids.remove(ids.size() - 1);
+        } finally {
+            idLock.unlock();
+        }
+    }
+
+    private void run() {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        try {
+            while (!stopped || !queue.isEmpty()) {
+                Pending first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                flush(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // Saves queued from here on take themselves back, see write
+            stopped = true;
+            queue.drainTo(batch);
+            if (!batch.isEmpty()) {
+                log.error("History write-behind stopped with {} histories unwritten", batch.size());
+                failedCounter.increment(batch.size());
+                IllegalStateException stoppedException = new IllegalStateException("history write-behind stopped");
+                batch.forEach(pending -> pending.committed().completeExceptionally(stoppedException));
+            }
+        }
+    }
+
+    private void flush(List<Pending> batch) {
+        long started = System.nanoTime();
+        try {
+            insert(batch);
+            flushTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            batch.forEach(pending -> pending.committed().complete(null));
+        } catch (Throwable e) {
+            if (batch.size() > 1) {
+                for (Pending pending : batch) {
+                    flush(List.of(pending));
+                }
+                return;
+            }
+            TextHistory history = batch.get(0).history();
+            log.error("Failed to write history {} of user {}: {}", history.getId(), history.getUser().getId(),
+                    e.getMessage());
+            failedCounter.increment();
+            batch.get(0).committed().completeExceptionally(e);
+        }
+    }
+
+    private void insert(List<Pending> batch) {
+        List<TextHistory> histories = batch.stream().map(Pending::history).toList();
+        transactionTemplate.executeWithoutResult(status -> {
+            textHistoryBulkWriter.insertWithIds(histories);
+            for (TextHistory history : histories) {
+                historySearchIndex.added(history.getUser().getId(), history.getId(), history.getTitle(),
+                        history.getBlob().getContent());
+            }
+        });
+    }
+
+    private record Pending(TextHistory history, CompletableFuture<Void> committed) {
+    }
+}
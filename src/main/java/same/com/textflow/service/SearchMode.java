@@ -0,0 +1,16 @@
+package same.com.textflow.service;
+
+/**
+ * Backend of {@link HistoryService#searchHistories}, set by {@code app.search.mode}.
+ * {@code TITLE} is the portable case-insensitive title match; {@code POSTGRES}
+ * searches title and content through the pg_trgm and tsvector indexes created
+ * by {@link same.com.textflow.repository.TextHistorySearchSchema}; {@code MEMORY}
+ * searches title and content through the in-process {@link HistorySearchIndex}
+ * and needs no database extensions.
+ */
+public enum SearchMode {
+
+    TITLE,
+    POSTGRES,
+    MEMORY
+}
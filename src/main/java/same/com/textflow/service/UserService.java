@@ -1,14 +1,24 @@
 package same.com.textflow.service;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import same.com.textflow.dto.response.UserResponse;
 import same.com.textflow.entity.User;
 import same.com.textflow.exception.ResourceNotFoundException;
+import same.com.textflow.repository.TextBlobRepository;
 import same.com.textflow.repository.TextHistoryRepository;
 import same.com.textflow.dto.request.UserUpdateRequest;
 import same.com.textflow.repository.UserRepository;
+import same.com.textflow.security.TokenRevocationList;
+import same.com.textflow.security.UserPrincipal;
+import same.com.textflow.security.UserPrincipalCache;
+
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
@@ -16,6 +26,9 @@ public class UserService {
 
     private final UserRepository userRepository;
     private final TextHistoryRepository textHistoryRepository;
+    private final TextBlobRepository textBlobRepository;
+    private final UserPrincipalCache userPrincipalCache;
+    private final TokenRevocationList tokenRevocationList;
 
     @Transactional(readOnly = true)
     public UserResponse getCurrentUser(String email) {
@@ -34,25 +47,73 @@ public class UserService {
                 .build();
     }
 
+    /**
+     * Resolves the id from the authenticated principal or the principal cache
+     * and returns a lazy reference, so callers that only need the user as a
+     * query parameter or foreign key cause no user SELECT. Writes by a user
+     * deleted meanwhile fail later, see {@link #translateWriteFailure}.
+     */
     @Transactional(readOnly = true)
     public User getUserByEmail(String email) {
-        return userRepository.findByEmail(email)
-                .orElseThrow(() -> new ResourceNotFoundException("User", "email", email));
+        return userRepository.getReferenceById(resolveId(email));
+    }
+
+    /**
+     * The exception to throw for a history write that failed with {@code e}:
+     * not found when the user has been deleted since the request was
+     * authenticated, so the row failed its user_id foreign key, otherwise
+     * {@code e} itself. Call it after the failed transaction has rolled back.
+     */
+    @Transactional(readOnly = true)
+    public RuntimeException translateWriteFailure(User user, DataIntegrityViolationException e) {
+        if (!userRepository.existsById(user.getId())) {
+            return new ResourceNotFoundException("User", "id", user.getId());
+        }
+        return e;
     }
 
     @Transactional
     public UserResponse updateUser(String email, UserUpdateRequest request) {
-        User user = getUserByEmail(email);
+        // Loaded rather than a reference, so a deleted user is not found here instead of failing the update
+        User user = userRepository.findById(resolveId(email))
+                .orElseThrow(() -> new ResourceNotFoundException("User", "email", email));
         if (request.getUsername() != null) {
             user.setUsername(request.getUsername());
         }
         user = userRepository.save(user);
+        userPrincipalCache.invalidate(email);
         return getCurrentUser(user.getEmail());
     }
 
     @Transactional
     public void deleteUser(String email) {
         User user = getUserByEmail(email);
+        Map<String, Integer> references = textBlobRepository.countReferences(user.getId());
         userRepository.delete(user);
+        userRepository.flush();
+        textBlobRepository.release(references);
+        userPrincipalCache.invalidate(email);
+        tokenRevocationList.revoke(user.getId());
+    }
+
+    private Long resolveId(String email) {
+        Long id = currentUserId(email);
+        if (id == null) {
+            try {
+                id = userPrincipalCache.get(email).getId();
+            } catch (UsernameNotFoundException e) {
+                throw new ResourceNotFoundException("User", "email", email);
+            }
+        }
+        return id;
+    }
+
+    private static Long currentUserId(String email) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof UserPrincipal principal
+                && principal.getUsername().equals(email)) {
+            return principal.getId();
+        }
+        return null;
     }
 }
@@ -0,0 +1,14 @@
+package same.com.textflow.service;
+
+/**
+ * When {@link HistoryWriteBehind} acknowledges a save, set by
+ * {@code app.history.write-behind.durability}. {@code QUEUED} returns once the
+ * history is in the in-memory queue, so a crash loses what has not been
+ * written yet; {@code COMMITTED} returns once the batch holding the history
+ * has committed.
+ */
+public enum WriteDurability {
+
+    QUEUED,
+    COMMITTED
+}
@@ -0,0 +1,87 @@
+package same.com.textflow.text;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compressed form of a stored text.
+ * <p>
+ * Layout: version byte, codec byte, 4-byte big-endian UTF-8 length, then the
+ * codec's payload. DEFLATE is the only codec so far; the codec byte lets rows
+ * written today stay readable if another one is added.
+ */
+public final class CompressedText {
+
+    private static final int VERSION = 1;
+    private static final int DEFLATE = 1;
+    private static final int HEADER_BYTES = 6;
+
+    private CompressedText() {
+    }
+
+    public static byte[] compress(String text) {
+        return compress(text, Deflater.BEST_SPEED);
+    }
+
+    /**
+     * Returns null if compression saves less than an eighth of the UTF-8
+     * size, or if the text is not well-formed UTF-16 (an unpaired surrogate
+     * would not survive the UTF-8 round trip).
+     */
+    public static byte[] compress(String text, int level) {
+        if (!EditScript.isWellFormed(text)) {
+            return null;
+        }
+        byte[] raw = text.getBytes(StandardCharsets.UTF_8);
+        Deflater deflater = new Deflater(level);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 2 + HEADER_BYTES);
+            out.write(VERSION);
+            out.write(DEFLATE);
+            out.writeBytes(ByteBuffer.allocate(4).putInt(raw.length).array());
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+                if (out.size() > raw.length - raw.length / 8) {
+                    return null;
+                }
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    public static String decompress(byte[] packed) {
+        if (packed.length < HEADER_BYTES || packed[0] != VERSION) {
+            throw new IllegalArgumentException("Unsupported compressed text");
+        }
+        if (packed[1] != DEFLATE) {
+            throw new IllegalArgumentException("Unknown compressed text codec " + packed[1]);
+        }
+        byte[] raw = new byte[ByteBuffer.wrap(packed, 2, 4).getInt()];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(packed, HEADER_BYTES, packed.length - HEADER_BYTES);
+            int length = 0;
+            while (length < raw.length) {
+                int n = inflater.inflate(raw, length, raw.length - length);
+                if (n == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalArgumentException("Compressed text is truncated");
+                }
+                length += n;
+            }
+            return new String(raw, StandardCharsets.UTF_8);
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Compressed text is corrupt", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
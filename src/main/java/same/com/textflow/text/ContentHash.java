@@ -0,0 +1,73 @@
+package same.com.textflow.text;
+
+/**
+ * 128-bit SipHash-2-4 of a text's UTF-16 code units, i.e. of its UTF-16LE
+ * bytes. Used to key cached results without keeping the text. Keyed, so
+ * without the key nobody can pick texts that share a hash, as they can for
+ * unkeyed hashes such as MurmurHash3.
+ */
+public record ContentHash(long high, long low) {
+
+    public static ContentHash of(CharSequence text, long k0, long k1) {
+        long[] v = {
+                k0 ^ 0x736f6d6570736575L,
+                k1 ^ 0x646f72616e646f6dL ^ 0xee,
+                k0 ^ 0x6c7967656e657261L,
+                k1 ^ 0x7465646279746573L
+        };
+
+        // 4 chars = one 8-byte word
+        int length = text.length();
+        int words = length >> 2;
+        for (int i = 0; i < words; i++) {
+            compress(v, pack(text, i << 2, 4));
+        }
+        int tail = words << 2;
+        long byteLength = (long) length * 2;
+        compress(v, byteLength << 56 | pack(text, tail, length - tail));
+
+        v[2] ^= 0xee;
+        rounds(v, 4);
+        long high = v[0] ^ v[1] ^ v[2] ^ v[3];
+        v[1] ^= 0xdd;
+        rounds(v, 4);
+        return new ContentHash(high, v[0] ^ v[1] ^ v[2] ^ v[3]);
+    }
+
+    private static long pack(CharSequence text, int from, int count) {
+        long word = 0;
+        for (int i = 0; i < count; i++) {
+            word |= (long) text.charAt(from + i) << (i << 4);
+        }
+        return word;
+    }
+
+    private static void compress(long[] v, long word) {
+        v[3] ^= word;
+        rounds(v, 2);
+        v[0] ^= word;
+    }
+
+    private static void rounds(long[] v, int count) {
+        long v0 = v[0];
+        long v1 = v[1];
+        long v2 = v[2];
+        long v3 = v[3];
+        for (int i = 0; i < count; i++) {
+            v0 += v1;
+            v1 = Long.rotateLeft(v1, 13) ^ v0;
+            v0 = Long.rotateLeft(v0, 32);
+            v2 += v3;
+            v3 = Long.rotateLeft(v3, 16) ^ v2;
+            v0 += v3;
+            v3 = Long.rotateLeft(v3, 21) ^ v0;
+            v2 += v1;
+            v1 = Long.rotateLeft(v1, 17) ^ v2;
+            v2 = Long.rotateLeft(v2, 32);
+        }
+        v[0] = v0;
+        v[1] = v1;
+        v[2] = v2;
+        v[3] = v3;
+    }
+}
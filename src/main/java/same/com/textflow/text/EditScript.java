@@ -0,0 +1,207 @@
+package same.com.textflow.text;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compact binary line edit script that rebuilds the new text of a
+ * {@link LineDiff} from its old text.
+ * <p>
+ * Layout: version byte, flags byte, then (possibly deflated) varints: old
+ * line count, new line count, and a sequence of ops {@code count << 2 | op}
+ * where COPY and SKIP consume old lines and INSERT is followed by
+ * {@code count} length-prefixed UTF-8 lines.
+ */
+public final class EditScript {
+
+    private static final int VERSION = 1;
+    private static final int FLAG_DEFLATE = 1;
+
+    private static final int COPY = 0;
+    private static final int SKIP = 1;
+    private static final int INSERT = 2;
+
+    private EditScript() {
+    }
+
+    /**
+     * Returns null if an inserted line is not well-formed UTF-16 (an unpaired
+     * surrogate would not survive the UTF-8 round trip).
+     */
+    public static byte[] encode(LineDiff diff) {
+        String[] oldLines = diff.getOldLines();
+        String[] newLines = diff.getNewLines();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeVarint(out, oldLines.length);
+        writeVarint(out, newLines.length);
+
+        int i = 0;
+        int j = 0;
+        while (i < oldLines.length || j < newLines.length) {
+            int start;
+            if (i < oldLines.length && diff.isDeleted(i)) {
+                start = i;
+                while (i < oldLines.length && diff.isDeleted(i)) {
+                    i++;
+                }
+                writeVarint(out, (i - start) << 2 | SKIP);
+            } else if (j < newLines.length && diff.isInserted(j)) {
+                start = j;
+                while (j < newLines.length && diff.isInserted(j)) {
+                    j++;
+                }
+                writeVarint(out, (j - start) << 2 | INSERT);
+                for (int k = start; k < j; k++) {
+                    if (!isWellFormed(newLines[k])) {
+                        return null;
+                    }
+                    byte[] bytes = newLines[k].getBytes(StandardCharsets.UTF_8);
+                    writeVarint(out, bytes.length);
+                    out.write(bytes, 0, bytes.length);
+                }
+            } else {
+                start = i;
+                while (i < oldLines.length && j < newLines.length && !diff.isDeleted(i) && !diff.isInserted(j)) {
+                    i++;
+                    j++;
+                }
+                writeVarint(out, (i - start) << 2 | COPY);
+            }
+        }
+
+        byte[] raw = out.toByteArray();
+        byte[] deflated = deflate(raw);
+        boolean compress = deflated.length < raw.length;
+        byte[] payload = compress ? deflated : raw;
+
+        byte[] script = new byte[payload.length + 2];
+        script[0] = VERSION;
+        script[1] = (byte) (compress ? FLAG_DEFLATE : 0);
+        System.arraycopy(payload, 0, script, 2, payload.length);
+        return script;
+    }
+
+    public static String apply(String before, byte[] script) {
+        if (script.length < 2 || script[0] != VERSION) {
+            throw new IllegalArgumentException("Unsupported edit script");
+        }
+        byte[] payload = Arrays.copyOfRange(script, 2, script.length);
+        if ((script[1] & FLAG_DEFLATE) != 0) {
+            payload = inflate(payload);
+        }
+
+        String[] oldLines = LineDiff.splitLines(before);
+        int[] pos = {0};
+        if (readVarint(payload, pos) != oldLines.length) {
+            throw new IllegalArgumentException("Edit script does not match the old text");
+        }
+        int newLineCount = readVarint(payload, pos);
+
+        StringBuilder sb = new StringBuilder(before.length());
+        int i = 0;
+        int written = 0;
+        while (pos[0] < payload.length) {
+            int op = readVarint(payload, pos);
+            int count = op >>> 2;
+            switch (op & 3) {
+                case COPY -> {
+                    for (int k = 0; k < count; k++) {
+                        appendLine(sb, oldLines[i++], written++);
+                    }
+                }
+                case SKIP -> i += count;
+                case INSERT -> {
+                    for (int k = 0; k < count; k++) {
+                        int length = readVarint(payload, pos);
+                        appendLine(sb, new String(payload, pos[0], length, StandardCharsets.UTF_8), written++);
+                        pos[0] += length;
+                    }
+                }
+                default -> throw new IllegalArgumentException("Unknown edit script op " + (op & 3));
+            }
+        }
+        if (written != newLineCount) {
+            throw new IllegalArgumentException("Edit script is truncated");
+        }
+        return sb.toString();
+    }
+
+    private static void appendLine(StringBuilder sb, String line, int index) {
+        if (index > 0) {
+            sb.append('\n');
+        }
+        sb.append(line);
+    }
+
+    static boolean isWellFormed(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isHighSurrogate(c) && i + 1 < text.length() && Character.isLowSurrogate(text.charAt(i + 1))) {
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarint(byte[] in, int[] pos) {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in[pos[0]++];
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    private static byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 2 + 16);
+            byte[] buffer = new byte[4096];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] compressed) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(compressed.length * 3);
+            byte[] buffer = new byte[4096];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalArgumentException("Edit script is truncated");
+                }
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Edit script is corrupt", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
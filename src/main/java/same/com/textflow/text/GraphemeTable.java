@@ -0,0 +1,174 @@
+package same.com.textflow.text;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compact two-stage lookup table of UAX #29 Grapheme_Cluster_Break values
+ * plus the Extended_Pictographic flag, for every code point.
+ * <p>
+ * The table is derived once at class load from the JDK's Unicode data and a
+ * few explicit ranges, then deduplicated into 128 code point blocks, so a
+ * lookup is two array reads.
+ */
+final class GraphemeTable {
+
+    static final byte OTHER = 0;
+    static final byte CR = 1;
+    static final byte LF = 2;
+    static final byte CONTROL = 3;
+    static final byte EXTEND = 4;
+    static final byte ZWJ = 5;
+    static final byte REGIONAL_INDICATOR = 6;
+    static final byte PREPEND = 7;
+    static final byte SPACING_MARK = 8;
+    static final byte L = 9;
+    static final byte V = 10;
+    static final byte T = 11;
+    static final byte LV = 12;
+    static final byte LVT = 13;
+
+    static final int BREAK_MASK = 0x0F;
+    static final int EXTENDED_PICTOGRAPHIC = 0x10;
+
+    private static final int BLOCK_SHIFT = 7;
+    private static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+
+    private static final char[] INDEX;
+    private static final byte[] BLOCKS;
+
+    // Extended_Pictographic ranges from emoji-data.txt
+    private static final int[] PICTOGRAPHIC = {
+            0x00A9, 0x00A9, 0x00AE, 0x00AE, 0x203C, 0x203C, 0x2049, 0x2049, 0x2122, 0x2122,
+            0x2139, 0x2139, 0x2194, 0x2199, 0x21A9, 0x21AA, 0x231A, 0x231B, 0x2328, 0x2328,
+            0x2388, 0x2388, 0x23CF, 0x23CF, 0x23E9, 0x23F3, 0x23F8, 0x23FA, 0x24C2, 0x24C2,
+            0x25AA, 0x25AB, 0x25B6, 0x25B6, 0x25C0, 0x25C0, 0x25FB, 0x25FE, 0x2600, 0x2605,
+            0x2607, 0x2612, 0x2614, 0x2685, 0x2690, 0x2705, 0x2708, 0x2712, 0x2714, 0x2714,
+            0x2716, 0x2716, 0x271D, 0x271D, 0x2721, 0x2721, 0x2728, 0x2728, 0x2733, 0x2734,
+            0x2744, 0x2744, 0x2747, 0x2747, 0x274C, 0x274C, 0x274E, 0x274E, 0x2753, 0x2755,
+            0x2757, 0x2757, 0x2763, 0x2767, 0x2795, 0x2797, 0x27A1, 0x27A1, 0x27B0, 0x27B0,
+            0x27BF, 0x27BF, 0x2934, 0x2935, 0x2B05, 0x2B07, 0x2B1B, 0x2B1C, 0x2B50, 0x2B50,
+            0x2B55, 0x2B55, 0x3030, 0x3030, 0x303D, 0x303D, 0x3297, 0x3297, 0x3299, 0x3299,
+            0x1F000, 0x1F0FF, 0x1F10D, 0x1F10F, 0x1F12F, 0x1F12F, 0x1F16C, 0x1F171, 0x1F17E, 0x1F17F,
+            0x1F18E, 0x1F18E, 0x1F191, 0x1F19A, 0x1F1AD, 0x1F1E5, 0x1F201, 0x1F20F, 0x1F21A, 0x1F21A,
+            0x1F22F, 0x1F22F, 0x1F232, 0x1F23A, 0x1F23C, 0x1F23F, 0x1F249, 0x1F3FA, 0x1F400, 0x1F53D,
+            0x1F546, 0x1F64F, 0x1F680, 0x1F6FF, 0x1F774, 0x1F77F, 0x1F7D5, 0x1F7FF, 0x1F80C, 0x1F80F,
+            0x1F848, 0x1F84F, 0x1F85A, 0x1F85F, 0x1F888, 0x1F88F, 0x1F8AE, 0x1F8FF, 0x1F90C, 0x1F93A,
+            0x1F93C, 0x1F945, 0x1F947, 0x1FAFF, 0x1FC00, 0x1FFFD
+    };
+
+    // Prepended_Concatenation_Mark and other Prepend code points
+    private static final int[] PREPEND_RANGES = {
+            0x0600, 0x0605, 0x06DD, 0x06DD, 0x070F, 0x070F, 0x0890, 0x0891, 0x08E2, 0x08E2,
+            0x0D4E, 0x0D4E, 0x110BD, 0x110BD, 0x110CD, 0x110CD, 0x111C2, 0x111C3, 0x1193F, 0x1193F,
+            0x11941, 0x11941, 0x11A3A, 0x11A3A, 0x11A84, 0x11A89, 0x11D46, 0x11D46
+    };
+
+    static {
+        int blockCount = (Character.MAX_CODE_POINT + 1) >> BLOCK_SHIFT;
+        char[] index = new char[blockCount];
+        byte[] blocks = new byte[BLOCK_SIZE * 64];
+        int used = 0;
+        byte[] block = new byte[BLOCK_SIZE];
+        Map<ByteBuffer, Integer> seen = new HashMap<>();
+
+        for (int b = 0; b < blockCount; b++) {
+            int base = b << BLOCK_SHIFT;
+            for (int i = 0; i < BLOCK_SIZE; i++) {
+                block[i] = (byte) compute(base + i);
+            }
+            ByteBuffer key = ByteBuffer.wrap(block.clone());
+            Integer existing = seen.get(key);
+            if (existing == null) {
+                if ((used + 1) * BLOCK_SIZE > blocks.length) {
+                    blocks = Arrays.copyOf(blocks, blocks.length * 2);
+                }
+                System.arraycopy(block, 0, blocks, used * BLOCK_SIZE, BLOCK_SIZE);
+                existing = used++;
+                seen.put(key, existing);
+            }
+            index[b] = (char) existing.intValue();
+        }
+        INDEX = index;
+        BLOCKS = Arrays.copyOf(blocks, used * BLOCK_SIZE);
+    }
+
+    private GraphemeTable() {
+    }
+
+    /**
+     * Returns the break category in the low four bits and {@link #EXTENDED_PICTOGRAPHIC}.
+     */
+    static int lookup(int codePoint) {
+        return BLOCKS[(INDEX[codePoint >> BLOCK_SHIFT] << BLOCK_SHIFT) | (codePoint & (BLOCK_SIZE - 1))];
+    }
+
+    static int sizeInBytes() {
+        return INDEX.length * 2 + BLOCKS.length;
+    }
+
+    private static int compute(int cp) {
+        int flags = cp <= 0x1FFFD && inRanges(PICTOGRAPHIC, cp) ? EXTENDED_PICTOGRAPHIC : 0;
+        return flags | breakCategory(cp);
+    }
+
+    private static int breakCategory(int cp) {
+        if (cp == '\r') {
+            return CR;
+        }
+        if (cp == '\n') {
+            return LF;
+        }
+        if (cp == 0x200D) {
+            return ZWJ;
+        }
+        if (cp == 0x200C || (cp >= 0xFF9E && cp <= 0xFF9F) || (cp >= 0x1F3FB && cp <= 0x1F3FF)
+                || (cp >= 0xE0020 && cp <= 0xE007F)) {
+            // ZWNJ, halfwidth voiced sound marks, emoji modifiers and tags are Grapheme_Extend
+            return EXTEND;
+        }
+        if (cp >= 0x1F1E6 && cp <= 0x1F1FF) {
+            return REGIONAL_INDICATOR;
+        }
+        if (inRanges(PREPEND_RANGES, cp)) {
+            return PREPEND;
+        }
+        if ((cp >= 0x1100 && cp <= 0x115F) || (cp >= 0xA960 && cp <= 0xA97C)) {
+            return L;
+        }
+        if ((cp >= 0x1160 && cp <= 0x11A7) || (cp >= 0xD7B0 && cp <= 0xD7C6)) {
+            return V;
+        }
+        if ((cp >= 0x11A8 && cp <= 0x11FF) || (cp >= 0xD7CB && cp <= 0xD7FB)) {
+            return T;
+        }
+        if (cp >= 0xAC00 && cp <= 0xD7A3) {
+            return (cp - 0xAC00) % 28 == 0 ? LV : LVT;
+        }
+        switch (Character.getType(cp)) {
+            case Character.NON_SPACING_MARK, Character.ENCLOSING_MARK:
+                return EXTEND;
+            case Character.COMBINING_SPACING_MARK:
+                return SPACING_MARK;
+            case Character.CONTROL, Character.LINE_SEPARATOR, Character.PARAGRAPH_SEPARATOR,
+                    Character.FORMAT, Character.SURROGATE:
+                return CONTROL;
+            default:
+                return OTHER;
+        }
+    }
+
+    private static boolean inRanges(int[] ranges, int cp) {
+        for (int i = 0; i < ranges.length; i += 2) {
+            if (cp < ranges[i]) {
+                return false;
+            }
+            if (cp <= ranges[i + 1]) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
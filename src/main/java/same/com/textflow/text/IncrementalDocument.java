@@ -0,0 +1,141 @@
+package same.com.textflow.text;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Editable text held as a list of chunks with cached {@link TextSummary}s.
+ * <p>
+ * An edit rescans only the text of the chunks it touches. Finding those
+ * chunks and folding the document totals from the cached chunk summaries are
+ * both linear in the number of chunks, but never read the text again; at the
+ * session limit of 100,000 chars that is about 50 summaries. Not thread-safe.
+ */
+public final class IncrementalDocument {
+
+    static final int CHUNK_SIZE = 2048;
+    private static final int MIN_CHUNK_SIZE = CHUNK_SIZE / 4;
+
+    private final List<Chunk> chunks = new ArrayList<>();
+    private int length;
+    private TextSummary summary = TextSummary.EMPTY;
+
+    public IncrementalDocument(CharSequence text) {
+        appendChunks(chunks, text);
+        length = text.length();
+        refreshSummary();
+    }
+
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Rough heap footprint, used to weigh documents against a memory budget.
+     */
+    public long estimatedBytes() {
+        return 2L * length + 160L * chunks.size() + 64;
+    }
+
+    public TextStatistics statistics() {
+        return summary.toStatistics();
+    }
+
+    /**
+     * Replaces {@code deleteLength} chars at {@code offset} with {@code insert}.
+     */
+    public void edit(int offset, int deleteLength, CharSequence insert) {
+        if (offset < 0 || deleteLength < 0 || offset > length || deleteLength > length - offset) {
+            throw new IndexOutOfBoundsException(
+                    "Edit [" + offset + ", " + (offset + deleteLength) + ") is outside document of length " + length);
+        }
+        if (deleteLength == 0 && insert.isEmpty()) {
+            return;
+        }
+
+        // Locate the first and last chunk touched by the edit
+        int first = 0;
+        int firstStart = 0;
+        while (first < chunks.size() - 1 && firstStart + chunks.get(first).text.length() < offset) {
+            firstStart += chunks.get(first).text.length();
+            first++;
+        }
+        int last = first;
+        int lastStart = firstStart;
+        int end = offset + deleteLength;
+        while (last < chunks.size() - 1 && lastStart + chunks.get(last).text.length() < end) {
+            lastStart += chunks.get(last).text.length();
+            last++;
+        }
+
+        StringBuilder merged = new StringBuilder();
+        if (!chunks.isEmpty()) {
+            merged.append(chunks.get(first).text, 0, offset - firstStart);
+        }
+        merged.append(insert);
+        if (!chunks.isEmpty()) {
+            String lastText = chunks.get(last).text;
+            merged.append(lastText, end - lastStart, lastText.length());
+        }
+
+        // Fold undersized results into a neighbour so chunks do not fragment
+        if (merged.length() < MIN_CHUNK_SIZE && first > 0) {
+            first--;
+            merged.insert(0, chunks.get(first).text);
+        } else if (merged.length() < MIN_CHUNK_SIZE && last < chunks.size() - 1) {
+            last++;
+            merged.append(chunks.get(last).text);
+        }
+
+        List<Chunk> replacement = new ArrayList<>();
+        appendChunks(replacement, merged);
+        if (!chunks.isEmpty()) {
+            chunks.subList(first, last + 1).clear();
+        }
+        chunks.addAll(first, replacement);
+
+        length += insert.length() - deleteLength;
+        refreshSummary();
+    }
+
+    public String text() {
+        StringBuilder sb = new StringBuilder(length);
+        for (Chunk chunk : chunks) {
+            sb.append(chunk.text);
+        }
+        return sb.toString();
+    }
+
+    private void refreshSummary() {
+        TextSummary total = TextSummary.EMPTY;
+        for (Chunk chunk : chunks) {
+            total = total.concat(chunk.summary);
+        }
+        summary = total;
+    }
+
+    private static void appendChunks(List<Chunk> target, CharSequence text) {
+        int len = text.length();
+        if (len == 0) {
+            return;
+        }
+        int pieces = (len + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        for (int i = 0; i < pieces; i++) {
+            int start = (int) ((long) len * i / pieces);
+            int end = (int) ((long) len * (i + 1) / pieces);
+            String piece = text.subSequence(start, end).toString();
+            target.add(new Chunk(piece, TextSummary.of(piece)));
+        }
+    }
+
+    private static final class Chunk {
+
+        private final String text;
+        private final TextSummary summary;
+
+        private Chunk(String text, TextSummary summary) {
+            this.text = text;
+            this.summary = summary;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package same.com.textflow.text;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Line diff of two texts. Lines are interned to int IDs so the diff itself
+ * compares primitives, see {@link MyersDiff}.
+ */
+public final class LineDiff {
+
+    private final String[] oldLines;
+    private final String[] newLines;
+    private final MyersDiff diff;
+
+    private LineDiff(String[] oldLines, String[] newLines) {
+        this.oldLines = oldLines;
+        this.newLines = newLines;
+
+        Map<String, Integer> ids = new HashMap<>();
+        this.diff = new MyersDiff(intern(oldLines, ids), intern(newLines, ids));
+    }
+
+    public static LineDiff compute(String before, String after) {
+        LineDiff lineDiff = new LineDiff(splitLines(before), splitLines(after));
+        lineDiff.diff.run(0);
+        return lineDiff;
+    }
+
+    /**
+     * Splits like {@code split("\n", -1)}, except that empty text has no lines.
+     */
+    public static String[] splitLines(String text) {
+        return text.isEmpty() ? new String[0] : text.split("\n", -1);
+    }
+
+    public String[] getOldLines() {
+        return oldLines;
+    }
+
+    public String[] getNewLines() {
+        return newLines;
+    }
+
+    public boolean isDeleted(int oldIndex) {
+        return diff.deleted[oldIndex];
+    }
+
+    public boolean isInserted(int newIndex) {
+        return diff.inserted[newIndex];
+    }
+
+    private static int[] intern(String[] lines, Map<String, Integer> ids) {
+        int[] result = new int[lines.length];
+        for (int i = 0; i < lines.length; i++) {
+            Integer id = ids.putIfAbsent(lines[i], ids.size());
+            result[i] = id != null ? id : ids.size() - 1;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,231 @@
+package same.com.textflow.text;
+
+import java.util.Arrays;
+
+/**
+ * Myers' linear-space (middle snake) diff over int sequences.
+ * <p>
+ * The only working memory besides the inputs is one pair of diagonal
+ * vectors. Like git's xdiff, a split that has cost more than roughly
+ * sqrt(N) edits falls back to the furthest-reaching path, which bounds the
+ * running time on very different inputs at the price of a possibly
+ * non-minimal result.
+ */
+final class MyersDiff {
+
+    private static final int MIN_COST_LIMIT = 256;
+
+    final boolean[] deleted;
+    final boolean[] inserted;
+
+    private final int[] a;
+    private final int[] b;
+    private final int[] forward;
+    private final int[] backward;
+    private final int diagonalOffset;
+    private final int costLimit;
+
+    MyersDiff(int[] a, int[] b) {
+        this.a = a;
+        this.b = b;
+        this.deleted = new boolean[a.length];
+        this.inserted = new boolean[b.length];
+
+        int diagonals = a.length + b.length + 3;
+        this.forward = new int[diagonals];
+        this.backward = new int[diagonals];
+        this.diagonalOffset = b.length + 1;
+        this.costLimit = minCost(diagonals);
+    }
+
+    // Same bound as xdiff: roughly sqrt(N), but never below 256
+    private static int minCost(int diagonals) {
+        int cost = 1;
+        for (int i = diagonals; i != 0; i >>= 2) {
+            cost <<= 1;
+        }
+        return Math.max(MIN_COST_LIMIT, cost);
+    }
+
+    /**
+     * Marks deleted and inserted elements. Returns false, leaving the
+     * flags incomplete, if {@code deadlineNanos} (a {@link System#nanoTime()}
+     * value, or 0 for none) passed first.
+     */
+    boolean run(long deadlineNanos) {
+        // Iterative so that long edit scripts cannot overflow the stack
+        int[] stack = new int[64];
+        int top = 0;
+        stack[top++] = 0;
+        stack[top++] = a.length;
+        stack[top++] = 0;
+        stack[top++] = b.length;
+        int[] split = new int[2];
+
+        while (top > 0) {
+            int lim2 = stack[--top];
+            int off2 = stack[--top];
+            int lim1 = stack[--top];
+            int off1 = stack[--top];
+
+            while (off1 < lim1 && off2 < lim2 && a[off1] == b[off2]) {
+                off1++;
+                off2++;
+            }
+            while (off1 < lim1 && off2 < lim2 && a[lim1 - 1] == b[lim2 - 1]) {
+                lim1--;
+                lim2--;
+            }
+
+            if (off1 == lim1) {
+                for (int j = off2; j < lim2; j++) {
+                    inserted[j] = true;
+                }
+            } else if (off2 == lim2) {
+                for (int i = off1; i < lim1; i++) {
+                    deleted[i] = true;
+                }
+            } else {
+                if (deadlineNanos != 0 && System.nanoTime() - deadlineNanos > 0) {
+                    return false;
+                }
+                split(off1, lim1, off2, lim2, split);
+                if (top + 8 > stack.length) {
+                    stack = Arrays.copyOf(stack, stack.length * 2);
+                }
+                stack[top++] = split[0];
+                stack[top++] = lim1;
+                stack[top++] = split[1];
+                stack[top++] = lim2;
+                stack[top++] = off1;
+                stack[top++] = split[0];
+                stack[top++] = off2;
+                stack[top++] = split[1];
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Finds the middle snake of a[off1, lim1) and b[off2, lim2) and stores its
+     * start in {@code split}. Both ranges are non-empty and differ at both ends.
+     */
+    private void split(int off1, int lim1, int off2, int lim2, int[] split) {
+        int[] kf = forward;
+        int[] kb = backward;
+        int z = diagonalOffset;
+
+        int dmin = off1 - lim2;
+        int dmax = lim1 - off2;
+        int fmid = off1 - off2;
+        int bmid = lim1 - lim2;
+        boolean odd = ((fmid - bmid) & 1) != 0;
+        int fmin = fmid;
+        int fmax = fmid;
+        int bmin = bmid;
+        int bmax = bmid;
+
+        kf[z + fmid] = off1;
+        kb[z + bmid] = lim1;
+
+        for (int cost = 1; ; cost++) {
+            if (fmin > dmin) {
+                kf[z + --fmin - 1] = -1;
+            } else {
+                ++fmin;
+            }
+            if (fmax < dmax) {
+                kf[z + ++fmax + 1] = -1;
+            } else {
+                --fmax;
+            }
+            for (int d = fmax; d >= fmin; d -= 2) {
+                int i1 = kf[z + d - 1] >= kf[z + d + 1] ? kf[z + d - 1] + 1 : kf[z + d + 1];
+                int i2 = i1 - d;
+                while (i1 < lim1 && i2 < lim2 && a[i1] == b[i2]) {
+                    i1++;
+                    i2++;
+                }
+                kf[z + d] = i1;
+                if (odd && bmin <= d && d <= bmax && kb[z + d] <= i1) {
+                    split[0] = i1;
+                    split[1] = i2;
+                    return;
+                }
+            }
+
+            if (bmin > dmin) {
+                kb[z + --bmin - 1] = Integer.MAX_VALUE;
+            } else {
+                ++bmin;
+            }
+            if (bmax < dmax) {
+                kb[z + ++bmax + 1] = Integer.MAX_VALUE;
+            } else {
+                --bmax;
+            }
+            for (int d = bmax; d >= bmin; d -= 2) {
+                int i1 = kb[z + d - 1] < kb[z + d + 1] ? kb[z + d - 1] : kb[z + d + 1] - 1;
+                int i2 = i1 - d;
+                while (i1 > off1 && i2 > off2 && a[i1 - 1] == b[i2 - 1]) {
+                    i1--;
+                    i2--;
+                }
+                kb[z + d] = i1;
+                if (!odd && fmin <= d && d <= fmax && i1 <= kf[z + d]) {
+                    split[0] = i1;
+                    split[1] = i2;
+                    return;
+                }
+            }
+
+            if (cost >= costLimit) {
+                splitAtFurthest(off1, lim1, off2, lim2, fmin, fmax, bmin, bmax, split);
+                return;
+            }
+        }
+    }
+
+    private void splitAtFurthest(int off1, int lim1, int off2, int lim2,
+                                 int fmin, int fmax, int bmin, int bmax, int[] split) {
+        int z = diagonalOffset;
+
+        int fbest = -1;
+        int fbest1 = -1;
+        for (int d = fmax; d >= fmin; d -= 2) {
+            int i1 = Math.min(forward[z + d], lim1);
+            int i2 = i1 - d;
+            if (lim2 < i2) {
+                i1 = lim2 + d;
+                i2 = lim2;
+            }
+            if (fbest < i1 + i2) {
+                fbest = i1 + i2;
+                fbest1 = i1;
+            }
+        }
+
+        int bbest = Integer.MAX_VALUE;
+        int bbest1 = Integer.MAX_VALUE;
+        for (int d = bmax; d >= bmin; d -= 2) {
+            int i1 = Math.max(off1, backward[z + d]);
+            int i2 = i1 - d;
+            if (i2 < off2) {
+                i1 = off2 + d;
+                i2 = off2;
+            }
+            if (i1 + i2 < bbest) {
+                bbest = i1 + i2;
+                bbest1 = i1;
+            }
+        }
+
+        if ((lim1 + lim2) - bbest < fbest - (off1 + off2)) {
+            split[0] = fbest1;
+            split[1] = fbest - fbest1;
+        } else {
+            split[0] = bbest1;
+            split[1] = bbest - bbest1;
+        }
+    }
+}
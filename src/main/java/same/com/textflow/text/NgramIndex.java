@@ -0,0 +1,339 @@
+package same.com.textflow.text;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * In-memory inverted index over short documents (title and content), keyed by
+ * case-folded UTF-16 unigrams and bigrams so Japanese needs no word
+ * segmentation.
+ * <p>
+ * Documents get dense ordinals in insertion order and every gram maps to a
+ * sorted int array of ordinals. Removal only marks the ordinal, postings are
+ * compacted once most of them are dead. Not thread-safe.
+ * <p>
+ * A hit is exact for queries of one or two chars. Longer queries return
+ * documents containing every bigram of the query, which is a superset of the
+ * documents containing the query itself, see {@link Hits#exact()}.
+ */
+public final class NgramIndex {
+
+    // Second half of a unigram key, a noncharacter that never occurs in indexed text
+    private static final int UNIGRAM = 0xFFFF;
+    private static final int MIN_COMPACT = 1024;
+    // Rough per-gram cost of the hash slot, array header and growth slack
+    private static final long GRAM_OVERHEAD_BYTES = 48;
+
+    private final Map<Long, Integer> ordinals = new HashMap<>();
+    private long[] ids = new long[16];
+    private int documentCount;
+    private final BitSet removed = new BitSet();
+    private int removedCount;
+
+    private int[] keys = new int[64];
+    private int[][] postings = new int[64][];
+    private int[] postingSizes = new int[64];
+    private int gramCount;
+    private long postingBytes;
+
+    /**
+     * Adds a document; does nothing if {@code id} is already indexed.
+     */
+    public void add(long id, String title, String content) {
+        if (ordinals.containsKey(id)) {
+            return;
+        }
+        if (documentCount == ids.length) {
+            ids = Arrays.copyOf(ids, ids.length * 2);
+        }
+        int ordinal = documentCount++;
+        ids[ordinal] = id;
+        ordinals.put(id, ordinal);
+
+        IntSet grams = new IntSet();
+        collectGrams(title, grams);
+        collectGrams(content, grams);
+        for (int i = 0; i < grams.slots.length; i++) {
+            if (grams.used[i]) {
+                append(grams.slots[i], ordinal);
+            }
+        }
+    }
+
+    public void remove(long id) {
+        Integer ordinal = ordinals.remove(id);
+        if (ordinal == null) {
+            return;
+        }
+        removed.set(ordinal);
+        removedCount++;
+        if (removedCount >= MIN_COMPACT && removedCount * 2 > documentCount) {
+            compact();
+        }
+    }
+
+    public int size() {
+        return ordinals.size();
+    }
+
+    public long estimatedBytes() {
+        return postingBytes
+                + gramCount * GRAM_OVERHEAD_BYTES
+                + keys.length * 4L
+                + ids.length * 8L
+                + ordinals.size() * 64L;
+    }
+
+    /**
+     * Matching document ids, newest (last added) first.
+     */
+    public Hits search(String query) {
+        String normalized = normalize(query);
+        if (normalized.isEmpty()) {
+            return new Hits(new long[0], true);
+        }
+
+        IntSet grams = new IntSet();
+        if (normalized.length() == 1) {
+            grams.add(normalized.charAt(0) << 16 | UNIGRAM);
+        } else {
+            for (int i = 0; i + 1 < normalized.length(); i++) {
+                grams.add(normalized.charAt(i) << 16 | normalized.charAt(i + 1));
+            }
+        }
+
+        int[] slots = new int[grams.size];
+        int n = 0;
+        for (int i = 0; i < grams.slots.length; i++) {
+            if (grams.used[i]) {
+                int slot = find(grams.slots[i]);
+                if (slot < 0) {
+                    return new Hits(new long[0], true);
+                }
+                slots[n++] = slot;
+            }
+        }
+
+        // Intersect starting from the rarest gram
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = slots[i];
+        }
+        Arrays.sort(order, (a, b) -> Integer.compare(postingSizes[a], postingSizes[b]));
+
+        int[] result = Arrays.copyOf(postings[order[0]], postingSizes[order[0]]);
+        int resultSize = result.length;
+        for (int k = 1; k < n && resultSize > 0; k++) {
+            resultSize = intersect(result, resultSize, postings[order[k]], postingSizes[order[k]]);
+        }
+
+        long[] hits = new long[resultSize];
+        int count = 0;
+        for (int i = resultSize - 1; i >= 0; i--) {
+            if (!removed.get(result[i])) {
+                hits[count++] = ids[result[i]];
+            }
+        }
+        return new Hits(Arrays.copyOf(hits, count), normalized.length() <= 2);
+    }
+
+    /**
+     * @param exact false when the ids still have to be checked for the query as a substring
+     */
+    public record Hits(long[] ids, boolean exact) {
+    }
+
+    static String normalize(String text) {
+        char[] chars = new char[text.length()];
+        for (int i = 0; i < chars.length; i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            chars[i] = c == UNIGRAM ? '\uFFFD' : c;
+        }
+        return new String(chars);
+    }
+
+    private static void collectGrams(String text, IntSet grams) {
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+        String normalized = normalize(text);
+        char previous = 0;
+        for (int i = 0; i < normalized.length(); i++) {
+            char c = normalized.charAt(i);
+            grams.add(c << 16 | UNIGRAM);
+            if (i > 0) {
+                grams.add(previous << 16 | c);
+            }
+            previous = c;
+        }
+    }
+
+    // In place, returns the new size of a
+    private static int intersect(int[] a, int aSize, int[] b, int bSize) {
+        int i = 0;
+        int j = 0;
+        int size = 0;
+        while (i < aSize && j < bSize) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                a[size++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return size;
+    }
+
+    private void append(int key, int ordinal) {
+        int slot = slot(key);
+        if (postings[slot] == null) {
+            keys[slot] = key;
+            postings[slot] = new int[2];
+            postingBytes += 16 + 8;
+            if (++gramCount * 2 > keys.length) {
+                rehash(keys.length * 2);
+                slot = slot(key);
+            }
+        }
+        int[] list = postings[slot];
+        int size = postingSizes[slot];
+        if (size == list.length) {
+            list = Arrays.copyOf(list, size + (size >> 1) + 1);
+            postingBytes += (list.length - size) * 4L;
+            postings[slot] = list;
+        }
+        list[size] = ordinal;
+        postingSizes[slot] = size + 1;
+    }
+
+    private int find(int key) {
+        int slot = slot(key);
+        return postings[slot] == null ? -1 : slot;
+    }
+
+    // Linear probing; the slot holding key, or the empty slot where it belongs
+    private int slot(int key) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (postings[slot] != null && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        int[][] oldPostings = postings;
+        int[] oldSizes = postingSizes;
+        keys = new int[capacity];
+        postings = new int[capacity][];
+        postingSizes = new int[capacity];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldPostings[i] != null) {
+                int slot = slot(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                postings[slot] = oldPostings[i];
+                postingSizes[slot] = oldSizes[i];
+            }
+        }
+    }
+
+    // Renumbers live documents densely and drops dead ordinals from every posting list
+    private void compact() {
+        int[] remap = new int[documentCount];
+        long[] liveIds = new long[Math.max(16, ordinals.size())];
+        int live = 0;
+        for (int ordinal = 0; ordinal < documentCount; ordinal++) {
+            if (removed.get(ordinal)) {
+                remap[ordinal] = -1;
+            } else {
+                remap[ordinal] = live;
+                liveIds[live] = ids[ordinal];
+                ordinals.put(ids[ordinal], live);
+                live++;
+            }
+        }
+
+        int[] oldKeys = keys;
+        int[][] oldPostings = postings;
+        int[] oldSizes = postingSizes;
+        keys = new int[oldKeys.length];
+        postings = new int[oldKeys.length][];
+        postingSizes = new int[oldKeys.length];
+        gramCount = 0;
+        postingBytes = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldPostings[i] == null) {
+                continue;
+            }
+            int[] list = oldPostings[i];
+            int size = 0;
+            for (int k = 0; k < oldSizes[i]; k++) {
+                int ordinal = remap[list[k]];
+                if (ordinal >= 0) {
+                    list[size++] = ordinal;
+                }
+            }
+            if (size > 0) {
+                int slot = slot(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                postings[slot] = Arrays.copyOf(list, size);
+                postingSizes[slot] = size;
+                gramCount++;
+                postingBytes += 16 + 8 + size * 4L;
+            }
+        }
+
+        ids = liveIds;
+        documentCount = live;
+        removed.clear();
+        removedCount = 0;
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    // Open-addressing int set for the grams of one document or query
+    private static final class IntSet {
+
+        private int[] slots = new int[64];
+        private boolean[] used = new boolean[64];
+        private int size;
+
+        void add(int value) {
+            int mask = slots.length - 1;
+            int slot = mix(value) & mask;
+            while (used[slot]) {
+                if (slots[slot] == value) {
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = value;
+            used[slot] = true;
+            if (++size * 2 > slots.length) {
+                grow();
+            }
+        }
+
+        private void grow() {
+            int[] oldSlots = slots;
+            boolean[] oldUsed = used;
+            slots = new int[oldSlots.length * 2];
+            used = new boolean[oldSlots.length * 2];
+            size = 0;
+            for (int i = 0; i < oldSlots.length; i++) {
+                if (oldUsed[i]) {
+                    add(oldSlots[i]);
+                }
+            }
+        }
+    }
+}
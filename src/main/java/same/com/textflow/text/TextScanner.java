@@ -0,0 +1,149 @@
+package same.com.textflow.text;
+
+/**
+ * Single-pass text statistics accumulator.
+ * <p>
+ * Produces the same numbers as the original regex based counting
+ * ({@code \s} whitespace, {@code String.trim()} word edges and
+ * {@code \n\s*\n} paragraph separators) without allocating any copies
+ * of the input. Text may be fed in several chunks; surrogate pairs split
+ * across chunk boundaries are handled.
+ */
+public final class TextScanner {
+
+    private long chars;
+    private long nonSpaceChars;
+    private long bytes;
+    private long newlines;
+    private boolean pendingHighSurrogate;
+
+    // Words: runs of non-whitespace. Runs made only of control characters
+    // are dropped by trim() when they sit before the first or after the last
+    // visible character, so they are held back until a visible run follows.
+    private long words;
+    private long pendingControlRuns;
+    private boolean inRun;
+    private boolean runHasVisible;
+    private boolean seenVisible;
+
+    // Paragraphs: segments separated by whitespace runs holding two or more newlines
+    private long paragraphs;
+    private int runNewlines;
+    private boolean segmentHasVisible;
+
+    public TextScanner accept(CharSequence text) {
+        for (int i = 0, len = text.length(); i < len; i++) {
+            accept(text.charAt(i));
+        }
+        return this;
+    }
+
+    public TextScanner accept(char[] buffer, int offset, int length) {
+        for (int i = offset, end = offset + length; i < end; i++) {
+            accept(buffer[i]);
+        }
+        return this;
+    }
+
+    public void accept(char c) {
+        chars++;
+        countBytes(c);
+
+        if (isWhitespace(c)) {
+            if (inRun) {
+                endRun();
+            }
+            if (c == '\n') {
+                newlines++;
+                runNewlines++;
+            }
+            return;
+        }
+
+        nonSpaceChars++;
+        inRun = true;
+        if (runNewlines >= 2) {
+            endSegment();
+        }
+        runNewlines = 0;
+        if (c > ' ') {
+            runHasVisible = true;
+            segmentHasVisible = true;
+        }
+    }
+
+    public TextStatistics finish() {
+        if (pendingHighSurrogate) {
+            bytes++;
+            pendingHighSurrogate = false;
+        }
+        if (inRun) {
+            endRun();
+        }
+        if (segmentHasVisible) {
+            endSegment();
+        }
+        runNewlines = 0;
+        pendingControlRuns = 0;
+        return new TextStatistics(
+                chars,
+                nonSpaceChars,
+                bytes,
+                chars == 0 ? 0 : newlines + 1,
+                words,
+                paragraphs);
+    }
+
+    public static TextStatistics scan(CharSequence text) {
+        return new TextScanner().accept(text).finish();
+    }
+
+    /**
+     * Matches the {@code \s} class of java.util.regex without UNICODE_CHARACTER_CLASS.
+     */
+    public static boolean isWhitespace(char c) {
+        return c == ' ' || (c >= '\t' && c <= '\r');
+    }
+
+    private void countBytes(char c) {
+        if (pendingHighSurrogate) {
+            pendingHighSurrogate = false;
+            if (Character.isLowSurrogate(c)) {
+                bytes += 4;
+                return;
+            }
+            // Unpaired high surrogate is encoded as '?'
+            bytes++;
+        }
+        if (c < 0x80) {
+            bytes++;
+        } else if (c < 0x800) {
+            bytes += 2;
+        } else if (Character.isHighSurrogate(c)) {
+            pendingHighSurrogate = true;
+        } else if (Character.isLowSurrogate(c)) {
+            bytes++;
+        } else {
+            bytes += 3;
+        }
+    }
+
+    private void endRun() {
+        if (runHasVisible) {
+            words += 1 + pendingControlRuns;
+            pendingControlRuns = 0;
+            seenVisible = true;
+        } else if (seenVisible) {
+            pendingControlRuns++;
+        }
+        inRun = false;
+        runHasVisible = false;
+    }
+
+    private void endSegment() {
+        if (segmentHasVisible) {
+            paragraphs++;
+        }
+        segmentHasVisible = false;
+    }
+}
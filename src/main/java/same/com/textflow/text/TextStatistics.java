@@ -0,0 +1,22 @@
+package same.com.textflow.text;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+@Getter
+@AllArgsConstructor
+@EqualsAndHashCode
+@ToString
+public final class TextStatistics {
+
+    public static final TextStatistics EMPTY = new TextStatistics(0, 0, 0, 0, 0, 0);
+
+    private final long chars;
+    private final long nonSpaceChars;
+    private final long bytes;
+    private final long lines;
+    private final long words;
+    private final long paragraphs;
+}
@@ -0,0 +1,288 @@
+package same.com.textflow.text;
+
+/**
+ * Composable statistics of a span of text.
+ * <p>
+ * Two adjacent summaries can be concatenated without looking at the text
+ * again, so a document split into chunks only needs to rescan the chunks an
+ * edit touches. {@link #toStatistics()} yields the same numbers as
+ * {@link TextScanner} over the concatenated text.
+ */
+public final class TextSummary {
+
+    public static final TextSummary EMPTY = new TextSummary();
+
+    private long chars;
+    private long nonSpaceChars;
+    private long bytes;
+    private long newlines;
+    private boolean startsWithLowSurrogate;
+    private boolean endsWithHighSurrogate;
+
+    // Words: run types are V (has a visible char) or C (control chars only).
+    // leadRuns/trailRuns are C runs before the first / after the last V run,
+    // coreRuns counts V runs plus the C runs between them.
+    private boolean startsInRun;
+    private boolean endsInRun;
+    private boolean hasVisibleRun;
+    private long leadRuns;
+    private long coreRuns;
+    private long trailRuns;
+
+    // Paragraphs: newlines in the whitespace runs touching each edge (or in the
+    // whole span when it is only whitespace) and the segments in between.
+    private boolean allWhitespace = true;
+    private long leadNewlines;
+    private long trailNewlines;
+    private long segments;
+    private boolean firstSegmentVisible;
+    private boolean lastSegmentVisible;
+    private long innerVisibleSegments;
+
+    private TextSummary() {
+    }
+
+    public static TextSummary of(CharSequence text) {
+        return of(text, 0, text.length());
+    }
+
+    public static TextSummary of(CharSequence text, int start, int end) {
+        TextSummary s = new TextSummary();
+        if (start == end) {
+            return s;
+        }
+        s.chars = end - start;
+        s.startsWithLowSurrogate = Character.isLowSurrogate(text.charAt(start));
+        s.endsWithHighSurrogate = Character.isHighSurrogate(text.charAt(end - 1));
+        s.startsInRun = !TextScanner.isWhitespace(text.charAt(start));
+        s.endsInRun = !TextScanner.isWhitespace(text.charAt(end - 1));
+
+        boolean inRun = false;
+        boolean runVisible = false;
+        boolean segmentVisible = false;
+        long runNewlines = 0;
+
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(text.charAt(i + 1))) {
+                s.bytes += 4;
+            } else if (!(Character.isLowSurrogate(c) && i > start && Character.isHighSurrogate(text.charAt(i - 1)))) {
+                s.bytes += c < 0x80 ? 1 : c < 0x800 ? 2 : Character.isSurrogate(c) ? 1 : 3;
+            }
+
+            if (TextScanner.isWhitespace(c)) {
+                if (inRun) {
+                    s.appendRun(runVisible);
+                    inRun = false;
+                    runVisible = false;
+                }
+                if (c == '\n') {
+                    s.newlines++;
+                    runNewlines++;
+                }
+                continue;
+            }
+
+            s.nonSpaceChars++;
+            inRun = true;
+            if (s.allWhitespace) {
+                s.allWhitespace = false;
+                s.leadNewlines = runNewlines;
+            } else if (runNewlines >= 2) {
+                s.appendSegment(segmentVisible);
+                segmentVisible = false;
+            }
+            runNewlines = 0;
+            if (c > ' ') {
+                runVisible = true;
+                segmentVisible = true;
+            }
+        }
+
+        if (inRun) {
+            s.appendRun(runVisible);
+        }
+        if (s.allWhitespace) {
+            s.leadNewlines = runNewlines;
+        } else {
+            s.appendSegment(segmentVisible);
+            s.trailNewlines = runNewlines;
+        }
+        return s;
+    }
+
+    public TextSummary concat(TextSummary right) {
+        if (chars == 0) {
+            return right;
+        }
+        if (right.chars == 0) {
+            return this;
+        }
+        TextSummary left = this;
+        TextSummary m = new TextSummary();
+        m.chars = left.chars + right.chars;
+        m.nonSpaceChars = left.nonSpaceChars + right.nonSpaceChars;
+        m.bytes = left.bytes + right.bytes;
+        if (left.endsWithHighSurrogate && right.startsWithLowSurrogate) {
+            // Two lone surrogates ('?' each) become one 4-byte pair
+            m.bytes += 2;
+        }
+        m.newlines = left.newlines + right.newlines;
+        m.startsWithLowSurrogate = left.startsWithLowSurrogate;
+        m.endsWithHighSurrogate = right.endsWithHighSurrogate;
+
+        concatRuns(left, right, m);
+        concatSegments(left, right, m);
+        return m;
+    }
+
+    public TextStatistics toStatistics() {
+        long words = hasVisibleRun ? coreRuns : 0;
+        long paragraphs = 0;
+        if (!allWhitespace) {
+            paragraphs = segments == 1
+                    ? (firstSegmentVisible ? 1 : 0)
+                    : (firstSegmentVisible ? 1 : 0) + innerVisibleSegments + (lastSegmentVisible ? 1 : 0);
+        }
+        return new TextStatistics(
+                chars,
+                nonSpaceChars,
+                bytes,
+                chars == 0 ? 0 : newlines + 1,
+                words,
+                paragraphs);
+    }
+
+    public long getChars() {
+        return chars;
+    }
+
+    private void appendRun(boolean visible) {
+        if (visible) {
+            if (hasVisibleRun) {
+                coreRuns += trailRuns + 1;
+                trailRuns = 0;
+            } else {
+                hasVisibleRun = true;
+                coreRuns = 1;
+            }
+        } else if (hasVisibleRun) {
+            trailRuns++;
+        } else {
+            leadRuns++;
+        }
+    }
+
+    private void appendSegment(boolean visible) {
+        if (segments == 0) {
+            firstSegmentVisible = visible;
+        } else if (segments > 1 && lastSegmentVisible) {
+            innerVisibleSegments++;
+        }
+        lastSegmentVisible = visible;
+        segments++;
+    }
+
+    private static void concatRuns(TextSummary left, TextSummary right, TextSummary m) {
+        m.startsInRun = left.startsInRun;
+        m.endsInRun = right.endsInRun;
+
+        long leftLead = left.leadRuns;
+        long leftTrail = left.trailRuns;
+        long leftCore = left.coreRuns;
+        long rightLead = right.leadRuns;
+        long rightCore = right.coreRuns;
+
+        if (left.endsInRun && right.startsInRun) {
+            // The last run of the left span and the first run of the right span are one run
+            boolean leftLastVisible = left.hasVisibleRun && leftTrail == 0;
+            boolean rightFirstVisible = right.hasVisibleRun && rightLead == 0;
+            if (leftLastVisible && rightFirstVisible) {
+                rightCore--;
+            } else if (leftLastVisible) {
+                rightLead--;
+            } else if (left.hasVisibleRun) {
+                leftTrail--;
+            } else {
+                leftLead--;
+            }
+        }
+
+        m.hasVisibleRun = left.hasVisibleRun || right.hasVisibleRun;
+        if (left.hasVisibleRun && right.hasVisibleRun) {
+            m.leadRuns = leftLead;
+            m.coreRuns = leftCore + leftTrail + rightLead + rightCore;
+            m.trailRuns = right.trailRuns;
+        } else if (left.hasVisibleRun) {
+            m.leadRuns = leftLead;
+            m.coreRuns = leftCore;
+            m.trailRuns = leftTrail + rightLead;
+        } else if (right.hasVisibleRun) {
+            m.leadRuns = leftLead + rightLead;
+            m.coreRuns = rightCore;
+            m.trailRuns = right.trailRuns;
+        } else {
+            m.leadRuns = leftLead + rightLead;
+        }
+    }
+
+    private static void concatSegments(TextSummary left, TextSummary right, TextSummary m) {
+        if (left.allWhitespace && right.allWhitespace) {
+            m.leadNewlines = left.leadNewlines + right.leadNewlines;
+            return;
+        }
+        m.allWhitespace = false;
+        if (left.allWhitespace) {
+            copySegments(right, m);
+            m.leadNewlines = left.leadNewlines + right.leadNewlines;
+            m.trailNewlines = right.trailNewlines;
+            return;
+        }
+        if (right.allWhitespace) {
+            copySegments(left, m);
+            m.leadNewlines = left.leadNewlines;
+            m.trailNewlines = left.trailNewlines + right.leadNewlines;
+            return;
+        }
+
+        m.leadNewlines = left.leadNewlines;
+        m.trailNewlines = right.trailNewlines;
+        m.firstSegmentVisible = left.firstSegmentVisible;
+        m.lastSegmentVisible = right.lastSegmentVisible;
+
+        long leftInner = left.segments > 1 ? left.innerVisibleSegments : 0;
+        long rightInner = right.segments > 1 ? right.innerVisibleSegments : 0;
+
+        if (left.trailNewlines + right.leadNewlines >= 2) {
+            // The whitespace between the spans separates paragraphs
+            m.segments = left.segments + right.segments;
+            m.innerVisibleSegments = leftInner + rightInner
+                    + (left.segments > 1 && left.lastSegmentVisible ? 1 : 0)
+                    + (right.segments > 1 && right.firstSegmentVisible ? 1 : 0);
+            return;
+        }
+
+        // Last segment of the left span continues into the first of the right span
+        boolean joinedVisible = left.lastSegmentVisible || right.firstSegmentVisible;
+        m.segments = left.segments + right.segments - 1;
+        if (left.segments == 1 && right.segments == 1) {
+            m.firstSegmentVisible = joinedVisible;
+            m.lastSegmentVisible = joinedVisible;
+        } else if (left.segments == 1) {
+            m.firstSegmentVisible = joinedVisible;
+            m.innerVisibleSegments = rightInner;
+        } else if (right.segments == 1) {
+            m.lastSegmentVisible = joinedVisible;
+            m.innerVisibleSegments = leftInner;
+        } else {
+            m.innerVisibleSegments = leftInner + (joinedVisible ? 1 : 0) + rightInner;
+        }
+    }
+
+    private static void copySegments(TextSummary source, TextSummary m) {
+        m.segments = source.segments;
+        m.firstSegmentVisible = source.firstSegmentVisible;
+        m.lastSegmentVisible = source.lastSegmentVisible;
+        m.innerVisibleSegments = source.innerVisibleSegments;
+    }
+}
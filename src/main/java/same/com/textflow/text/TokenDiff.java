@@ -0,0 +1,158 @@
+package same.com.textflow.text;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Intra-line diff of one changed line pair, by word or by character.
+ * <p>
+ * Words are runs of one Unicode script (so Japanese without spaces splits at
+ * kanji/kana boundaries), whitespace runs and single punctuation marks;
+ * combining marks stay with the preceding run.
+ */
+public final class TokenDiff {
+
+    private static final int WHITESPACE = -1;
+    private static final int PUNCTUATION = -2;
+    private static final int JOINING = -3;
+
+    private final List<Segment> oldSegments;
+    private final List<Segment> newSegments;
+
+    private TokenDiff(List<Segment> oldSegments, List<Segment> newSegments) {
+        this.oldSegments = oldSegments;
+        this.newSegments = newSegments;
+    }
+
+    /**
+     * Returns null if {@code deadlineNanos} ({@link System#nanoTime()} based)
+     * passes before the diff is complete.
+     */
+    public static TokenDiff words(String before, String after, long deadlineNanos) {
+        return compute(before, after, false, deadlineNanos);
+    }
+
+    /**
+     * Same as {@link #words}, with every code point as its own token.
+     */
+    public static TokenDiff characters(String before, String after, long deadlineNanos) {
+        return compute(before, after, true, deadlineNanos);
+    }
+
+    public List<Segment> getOldSegments() {
+        return oldSegments;
+    }
+
+    public List<Segment> getNewSegments() {
+        return newSegments;
+    }
+
+    private static TokenDiff compute(String before, String after, boolean characters, long deadlineNanos) {
+        int[] oldBounds = characters ? codePointBounds(before) : wordBounds(before);
+        int[] newBounds = characters ? codePointBounds(after) : wordBounds(after);
+
+        int[] a;
+        int[] b;
+        if (characters) {
+            a = codePoints(before, oldBounds);
+            b = codePoints(after, newBounds);
+        } else {
+            Map<String, Integer> ids = new HashMap<>();
+            a = intern(before, oldBounds, ids);
+            b = intern(after, newBounds, ids);
+        }
+
+        MyersDiff diff = new MyersDiff(a, b);
+        if (!diff.run(deadlineNanos)) {
+            return null;
+        }
+        return new TokenDiff(segments(before, oldBounds, diff.deleted), segments(after, newBounds, diff.inserted));
+    }
+
+    // Token start offsets followed by the text length
+    private static int[] codePointBounds(String text) {
+        int[] bounds = new int[text.codePointCount(0, text.length()) + 1];
+        int k = 0;
+        for (int i = 0; i < text.length(); i += Character.charCount(text.codePointAt(i))) {
+            bounds[k++] = i;
+        }
+        bounds[k] = text.length();
+        return bounds;
+    }
+
+    private static int[] wordBounds(String text) {
+        int[] bounds = new int[16];
+        int count = 0;
+        int previous = PUNCTUATION;
+        for (int i = 0; i < text.length(); ) {
+            int cp = text.codePointAt(i);
+            int tokenClass = tokenClass(cp);
+            if (tokenClass == JOINING && i > 0) {
+                tokenClass = previous;
+            }
+            if (i == 0 || tokenClass != previous || tokenClass == PUNCTUATION) {
+                if (count + 1 == bounds.length) {
+                    bounds = Arrays.copyOf(bounds, bounds.length * 2);
+                }
+                bounds[count++] = i;
+            }
+            previous = tokenClass;
+            i += Character.charCount(cp);
+        }
+        bounds[count++] = text.length();
+        return Arrays.copyOf(bounds, count);
+    }
+
+    private static int tokenClass(int cp) {
+        if (Character.isWhitespace(cp) || Character.isSpaceChar(cp)) {
+            return WHITESPACE;
+        }
+        int type = Character.getType(cp);
+        if (type == Character.NON_SPACING_MARK || type == Character.ENCLOSING_MARK
+                || type == Character.COMBINING_SPACING_MARK || type == Character.MODIFIER_LETTER) {
+            // Includes the katakana prolonged sound mark
+            return JOINING;
+        }
+        if (Character.isLetterOrDigit(cp)) {
+            return Character.UnicodeScript.of(cp).ordinal();
+        }
+        return PUNCTUATION;
+    }
+
+    private static int[] codePoints(String text, int[] bounds) {
+        int[] result = new int[bounds.length - 1];
+        for (int k = 0; k < result.length; k++) {
+            result[k] = text.codePointAt(bounds[k]);
+        }
+        return result;
+    }
+
+    private static int[] intern(String text, int[] bounds, Map<String, Integer> ids) {
+        int[] result = new int[bounds.length - 1];
+        for (int k = 0; k < result.length; k++) {
+            Integer id = ids.putIfAbsent(text.substring(bounds[k], bounds[k + 1]), ids.size());
+            result[k] = id != null ? id : ids.size() - 1;
+        }
+        return result;
+    }
+
+    // Merges consecutive tokens with the same flag
+    private static List<Segment> segments(String text, int[] bounds, boolean[] changed) {
+        List<Segment> segments = new ArrayList<>();
+        int k = 0;
+        while (k < changed.length) {
+            int start = k;
+            while (k < changed.length && changed[k] == changed[start]) {
+                k++;
+            }
+            segments.add(new Segment(changed[start], text.substring(bounds[start], bounds[k])));
+        }
+        return segments;
+    }
+
+    public record Segment(boolean changed, String text) {
+    }
+}
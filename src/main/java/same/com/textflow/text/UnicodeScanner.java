@@ -0,0 +1,166 @@
+package same.com.textflow.text;
+
+/**
+ * Single-pass counter of code points, extended grapheme clusters (UAX #29)
+ * and X/Twitter weighted length.
+ * <p>
+ * Weighting follows twitter-text v3: code points in U+0000-U+10FF,
+ * U+2000-U+200D, U+2010-U+201F and U+2032-U+2037 weigh 1, everything else 2,
+ * and a whole emoji sequence weighs 2. NFC normalization and URL shortening
+ * are not applied. Like {@link TextScanner}, text may be fed in chunks.
+ */
+public final class UnicodeScanner {
+
+    private long codePoints;
+    private long graphemes;
+    private long weightedLength;
+
+    private char pendingHigh;
+    private int previous = -1;
+    private int regionalIndicators;
+    // 0: none, 1: inside ExtPict Extend*, 2: after ExtPict Extend* ZWJ
+    private int pictographicState;
+
+    private long clusterWeight;
+    private boolean clusterIsEmoji;
+
+    public UnicodeScanner accept(CharSequence text) {
+        for (int i = 0, len = text.length(); i < len; i++) {
+            accept(text.charAt(i));
+        }
+        return this;
+    }
+
+    public UnicodeScanner accept(char[] buffer, int offset, int length) {
+        for (int i = offset, end = offset + length; i < end; i++) {
+            accept(buffer[i]);
+        }
+        return this;
+    }
+
+    public void accept(char c) {
+        if (pendingHigh != 0) {
+            char high = pendingHigh;
+            pendingHigh = 0;
+            if (Character.isLowSurrogate(c)) {
+                acceptCodePoint(Character.toCodePoint(high, c));
+                return;
+            }
+            acceptCodePoint(high);
+        }
+        if (Character.isHighSurrogate(c)) {
+            pendingHigh = c;
+        } else {
+            acceptCodePoint(c);
+        }
+    }
+
+    public Result finish() {
+        if (pendingHigh != 0) {
+            acceptCodePoint(pendingHigh);
+            pendingHigh = 0;
+        }
+        if (previous >= 0) {
+            closeCluster();
+        }
+        return new Result(codePoints, graphemes, weightedLength);
+    }
+
+    public static Result scan(CharSequence text) {
+        return new UnicodeScanner().accept(text).finish();
+    }
+
+    private void acceptCodePoint(int cp) {
+        if (cp >= 0x20 && cp < 0x7F && previous != GraphemeTable.PREPEND) {
+            // Printable ASCII always starts a new single-weight cluster
+            if (previous >= 0) {
+                closeCluster();
+            }
+            codePoints++;
+            graphemes++;
+            clusterWeight = 1;
+            regionalIndicators = 0;
+            pictographicState = 0;
+            previous = GraphemeTable.OTHER;
+            return;
+        }
+        int props = GraphemeTable.lookup(cp);
+        int category = props & GraphemeTable.BREAK_MASK;
+        boolean pictographic = (props & GraphemeTable.EXTENDED_PICTOGRAPHIC) != 0;
+
+        codePoints++;
+        if (previous < 0 || isBoundary(previous, category, pictographic)) {
+            if (previous >= 0) {
+                closeCluster();
+            }
+            graphemes++;
+        }
+
+        clusterWeight += weight(cp);
+        if (pictographic || category == GraphemeTable.REGIONAL_INDICATOR || cp == 0x20E3) {
+            clusterIsEmoji = true;
+        }
+
+        regionalIndicators = category == GraphemeTable.REGIONAL_INDICATOR ? regionalIndicators + 1 : 0;
+        if (pictographic) {
+            pictographicState = 1;
+        } else if (pictographicState == 1 && category == GraphemeTable.ZWJ) {
+            pictographicState = 2;
+        } else if (!(pictographicState == 1 && category == GraphemeTable.EXTEND)) {
+            pictographicState = 0;
+        }
+        previous = category;
+    }
+
+    private boolean isBoundary(int prev, int next, boolean nextPictographic) {
+        if (prev == GraphemeTable.OTHER && next == GraphemeTable.OTHER) {
+            return true;                                                    // GB999, the common case
+        }
+        if (prev == GraphemeTable.CR && next == GraphemeTable.LF) {
+            return false;                                                   // GB3
+        }
+        if (prev == GraphemeTable.CR || prev == GraphemeTable.LF || prev == GraphemeTable.CONTROL
+                || next == GraphemeTable.CR || next == GraphemeTable.LF || next == GraphemeTable.CONTROL) {
+            return true;                                                    // GB4, GB5
+        }
+        if (prev == GraphemeTable.L && (next == GraphemeTable.L || next == GraphemeTable.V
+                || next == GraphemeTable.LV || next == GraphemeTable.LVT)) {
+            return false;                                                   // GB6
+        }
+        if ((prev == GraphemeTable.LV || prev == GraphemeTable.V)
+                && (next == GraphemeTable.V || next == GraphemeTable.T)) {
+            return false;                                                   // GB7
+        }
+        if ((prev == GraphemeTable.LVT || prev == GraphemeTable.T) && next == GraphemeTable.T) {
+            return false;                                                   // GB8
+        }
+        if (next == GraphemeTable.EXTEND || next == GraphemeTable.ZWJ || next == GraphemeTable.SPACING_MARK
+                || prev == GraphemeTable.PREPEND) {
+            return false;                                                   // GB9, GB9a, GB9b
+        }
+        if (prev == GraphemeTable.ZWJ && nextPictographic && pictographicState == 2) {
+            return false;                                                   // GB11
+        }
+        if (prev == GraphemeTable.REGIONAL_INDICATOR && next == GraphemeTable.REGIONAL_INDICATOR) {
+            return regionalIndicators % 2 == 0;                             // GB12, GB13
+        }
+        return true;                                                        // GB999
+    }
+
+    private void closeCluster() {
+        weightedLength += clusterIsEmoji ? 2 : clusterWeight;
+        clusterWeight = 0;
+        clusterIsEmoji = false;
+    }
+
+    private static int weight(int cp) {
+        if (cp <= 0x10FF || (cp >= 0x2000 && cp <= 0x200D) || (cp >= 0x2010 && cp <= 0x201F)
+                || (cp >= 0x2032 && cp <= 0x2037)) {
+            return 1;
+        }
+        return 2;
+    }
+
+    public record Result(long codePoints, long graphemes, long weightedLength) {
+    }
+}
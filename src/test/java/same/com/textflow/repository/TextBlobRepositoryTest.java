@@ -0,0 +1,141 @@
+package same.com.textflow.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import same.com.textflow.entity.TextBlob;
+import same.com.textflow.entity.TextHistory;
+import same.com.textflow.entity.User;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// PostgreSQL mode for the ON CONFLICT used by TextBlobRepository
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:blob-repository;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password="
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(TextBlobRepository.class)
+class TextBlobRepositoryTest {
+
+    @Autowired
+    private TextBlobRepository textBlobRepository;
+
+    @Autowired
+    private TextHistoryRepository textHistoryRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Test
+    void acquireAll_ShouldStoreEachDistinctContentOnceAndCountReferences() {
+        // Act
+        textBlobRepository.acquireAll(List.of(TextBlob.of("同じ本文"), TextBlob.of("同じ本文"), TextBlob.of("別の本文")));
+        textBlobRepository.acquireAll(List.of(TextBlob.of("同じ本文")));
+
+        // Assert
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM text_blobs", Long.class)).isEqualTo(2);
+        assertThat(refCount("同じ本文")).isEqualTo(3);
+        assertThat(refCount("別の本文")).isEqualTo(1);
+    }
+
+    @Test
+    void release_ShouldDeleteBlobOnlyWhenUnreferenced() {
+        // Arrange
+        textBlobRepository.acquireAll(List.of(TextBlob.of("本文"), TextBlob.of("本文")));
+
+        // Act & Assert
+        textBlobRepository.release(TextBlob.hash("本文"));
+        assertThat(refCount("本文")).isEqualTo(1);
+
+        textBlobRepository.release(TextBlob.hash("本文"));
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM text_blobs", Long.class)).isZero();
+    }
+
+    @Test
+    void countReferences_ShouldGroupUserHistoriesByBlob() {
+        // Arrange
+        User user = userRepository.save(User.builder().username("blob").email("blob@example.com").build());
+        User other = userRepository.save(User.builder().username("other").email("other@example.com").build());
+        for (String content : List.of("a", "a", "b")) {
+            textHistoryRepository.save(TextHistory.builder()
+                    .user(user)
+                    .title(content)
+                    .blob(textBlobRepository.acquire(content))
+                    .build());
+        }
+        textHistoryRepository.save(TextHistory.builder()
+                .user(other)
+                .title("a")
+                .blob(textBlobRepository.acquire("a"))
+                .build());
+        textHistoryRepository.flush();
+
+        // Act
+        Map<String, Integer> references = textBlobRepository.countReferences(user.getId());
+
+        // Assert
+        assertThat(references).containsOnly(
+                Map.entry(TextBlob.hash("a"), 2),
+                Map.entry(TextBlob.hash("b"), 1));
+        assertThat(refCount("a")).isEqualTo(3);
+    }
+
+    @Test
+    void countReferences_RowNotBackfilled_ShouldBeSkipped() {
+        // Arrange
+        User user = userRepository.save(User.builder().username("legacy").email("legacy@example.com").build());
+        textHistoryRepository.save(TextHistory.builder()
+                .user(user)
+                .title("a")
+                .blob(textBlobRepository.acquire("a"))
+                .build());
+        textHistoryRepository.flush();
+        jdbcTemplate.update("INSERT INTO text_histories (user_id, title, content, content_type, char_count, "
+                + "line_count, created_at, updated_at) VALUES (?, '旧', '旧本文', 'plain', 3, 1, NOW(), NOW())",
+                user.getId());
+
+        // Act
+        Map<String, Integer> references = textBlobRepository.countReferences(user.getId());
+
+        // Assert
+        assertThat(references).containsOnly(Map.entry(TextBlob.hash("a"), 1));
+    }
+
+    @Test
+    void acquireAll_CompressionEnabled_ShouldPackLargeContentAndDecompressOnAccess() {
+        // Arrange
+        TextBlobRepository compressing = new TextBlobRepository(jdbcTemplate, true, 100);
+        String large = "吾輩は猫である。名前はまだ無い。\n".repeat(50);
+
+        // Act
+        compressing.acquireAll(List.of(TextBlob.of(large), TextBlob.of("短い本文")));
+
+        // Assert
+        assertThat(jdbcTemplate.queryForObject("SELECT content FROM text_blobs WHERE hash = ?", String.class,
+                TextBlob.hash(large))).isNull();
+        assertThat(jdbcTemplate.queryForObject("SELECT content FROM text_blobs WHERE hash = ?", String.class,
+                TextBlob.hash("短い本文"))).isEqualTo("短い本文");
+        assertThat(entityManager.find(TextBlob.class, TextBlob.hash(large)).getContent()).isEqualTo(large);
+    }
+
+    private long refCount(String content) {
+        return jdbcTemplate.queryForObject("SELECT ref_count FROM text_blobs WHERE hash = ?", Long.class,
+                TextBlob.hash(content));
+    }
+}
@@ -0,0 +1,105 @@
+package same.com.textflow.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import same.com.textflow.entity.TextBlob;
+import same.com.textflow.entity.TextHistory;
+import same.com.textflow.entity.User;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TextHistoryBulkWriterTest {
+
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+                "jdbc:h2:mem:bulk-writer;MODE=PostgreSQL;DB_CLOSE_DELAY=-1", "sa", ""));
+        jdbcTemplate.execute("DROP TABLE IF EXISTS text_histories");
+        jdbcTemplate.execute("DROP TABLE IF EXISTS text_blobs");
+        jdbcTemplate.execute("CREATE TABLE text_blobs ("
+                + "hash VARCHAR(64) PRIMARY KEY, content TEXT, packed_content BYTEA, ref_count BIGINT NOT NULL)");
+        jdbcTemplate.execute("CREATE TABLE text_histories ("
+                + "id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, user_id BIGINT NOT NULL, "
+                + "title VARCHAR(100) NOT NULL, content_hash VARCHAR(64) NOT NULL REFERENCES text_blobs, "
+                + "content_type VARCHAR(20) NOT NULL, "
+                + "char_count INT NOT NULL, line_count INT NOT NULL, "
+                + "byte_count INT, word_count INT, paragraph_count INT, manuscript_count INT, "
+                + "created_at TIMESTAMP NOT NULL, updated_at TIMESTAMP NOT NULL)");
+    }
+
+    @Test
+    void insertAll_ShouldWriteEveryRowInChunks() {
+        // Arrange
+        User user = User.builder().id(7L).build();
+        List<TextHistory> histories = new ArrayList<>();
+        for (int i = 0; i < 1_201; i++) {
+            histories.add(TextHistory.builder()
+                    .user(user)
+                    .title("title " + i)
+                    .blob(TextBlob.of("本文 " + (i % 100)))
+                    .contentType("plain")
+                    .charCount(4)
+                    .lineCount(1)
+                    .build());
+        }
+        TextHistoryBulkWriter writer = new TextHistoryBulkWriter(jdbcTemplate,
+                new TextBlobRepository(jdbcTemplate, false, 0), 500);
+
+        // Act
+        int chunks = writer.insertAll(histories);
+
+        // Assert
+        assertThat(chunks).isEqualTo(3);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM text_histories WHERE user_id = 7", Long.class))
+                .isEqualTo(1_201);
+        assertThat(jdbcTemplate.queryForObject("SELECT b.content FROM text_histories h "
+                + "JOIN text_blobs b ON b.hash = h.content_hash WHERE h.title = 'title 1199'", String.class))
+                .isEqualTo("本文 99");
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM text_blobs", Long.class)).isEqualTo(100);
+        assertThat(jdbcTemplate.queryForObject("SELECT SUM(ref_count) FROM text_blobs", Long.class)).isEqualTo(1_201);
+    }
+
+    @Test
+    void insertWithIds_ShouldKeepIdsAndCreationTime() {
+        // Arrange
+        LocalDateTime createdAt = LocalDateTime.of(2026, 1, 2, 3, 4, 5);
+        TextHistory history = TextHistory.builder()
+                .id(1_000L)
+                .user(User.builder().id(7L).build())
+                .title("queued")
+                .blob(TextBlob.of("本文"))
+                .contentType("plain")
+                .charCount(2)
+                .lineCount(1)
+                .byteCount(6)
+                .createdAt(createdAt)
+                .build();
+        TextHistoryBulkWriter writer = new TextHistoryBulkWriter(jdbcTemplate,
+                new TextBlobRepository(jdbcTemplate, false, 0), 500);
+
+        // Act
+        writer.insertWithIds(List.of(history));
+
+        // Assert
+        assertThat(jdbcTemplate.queryForObject("SELECT title FROM text_histories WHERE id = 1000", String.class))
+                .isEqualTo("queued");
+        assertThat(jdbcTemplate.queryForObject("SELECT created_at FROM text_histories WHERE id = 1000",
+                LocalDateTime.class)).isEqualTo(createdAt);
+        assertThat(jdbcTemplate.queryForObject("SELECT byte_count FROM text_histories WHERE id = 1000",
+                Integer.class)).isEqualTo(6);
+    }
+
+    @Test
+    void insertAll_EmptyList_ShouldNotTouchDatabase() {
+        assertThat(new TextHistoryBulkWriter(jdbcTemplate, new TextBlobRepository(jdbcTemplate, false, 0), 500)
+                .insertAll(List.of())).isZero();
+    }
+}
@@ -0,0 +1,151 @@
+package same.com.textflow.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.jdbc.core.JdbcTemplate;
+import same.com.textflow.entity.TextHistory;
+import same.com.textflow.entity.User;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// PostgreSQL mode for the ON CONFLICT used by TextBlobRepository
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:history-repository;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password="
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(TextBlobRepository.class)
+class TextHistoryRepositoryTest {
+
+    @Autowired
+    private TextHistoryRepository textHistoryRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TextBlobRepository textBlobRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Test
+    void findSummaryAfter_ShouldWalkEveryRowOnceInOrder() {
+        // Arrange
+        User user = userRepository.save(User.builder().username("keyset").email("keyset@example.com").build());
+        User other = userRepository.save(User.builder().username("other").email("other@example.com").build());
+        List<Long> expected = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            expected.add(0, textHistoryRepository.save(history(user, "title " + i)).getId());
+            textHistoryRepository.save(history(other, "other " + i));
+        }
+
+        // Act
+        List<Long> ids = new ArrayList<>();
+        Slice<TextHistorySummary> slice = textHistoryRepository
+                .findSliceByUserOrderByCreatedAtDescIdDesc(user, PageRequest.ofSize(3));
+        slice.forEach(summary -> ids.add(summary.getId()));
+        while (slice.hasNext()) {
+            TextHistorySummary last = slice.getContent().get(slice.getNumberOfElements() - 1);
+            slice = textHistoryRepository.findSummaryAfter(user, last.getCreatedAt(), last.getId(), PageRequest.ofSize(3));
+            slice.forEach(summary -> ids.add(summary.getId()));
+        }
+
+        // Assert
+        assertThat(ids).isEqualTo(expected);
+    }
+
+    @Test
+    void findIdsContaining_ShouldMatchTitleOrContentIgnoringCaseAndEscapes() {
+        // Arrange
+        User user = userRepository.save(User.builder().username("search").email("search@example.com").build());
+        Long title = textHistoryRepository.save(history(user, "Weekly 100% Report", "本文")).getId();
+        Long content = textHistoryRepository.save(history(user, "メモ", "進捗は100%です")).getId();
+        Long other = textHistoryRepository.save(history(user, "メモ", "進捗は100件です")).getId();
+
+        // Act
+        List<Long> ids = textHistoryRepository.findIdsContaining(user, List.of(title, content, other),
+                "%" + TextHistorySearchRepository.escapeLike("0%") + "%");
+        List<Long> lower = textHistoryRepository.findIdsContaining(user, List.of(title, content, other), "%weekly%");
+
+        // Assert
+        assertThat(ids).containsExactlyInAnyOrder(title, content);
+        assertThat(lower).containsExactly(title);
+    }
+
+    @Test
+    void findFirstByUserAndDraftId_ShouldReturnNewestRevisionInWindow() {
+        // Arrange
+        User user = userRepository.save(User.builder().username("draft").email("draft@example.com").build());
+        TextHistory first = history(user, "第1版");
+        first.setDraftId("d-1");
+        textHistoryRepository.save(first);
+        TextHistory second = history(user, "第2版");
+        second.setDraftId("d-1");
+        Long secondId = textHistoryRepository.save(second).getId();
+        textHistoryRepository.save(history(user, "下書きなし"));
+        textHistoryRepository.flush();
+
+        // Act
+        Optional<TextHistory> revision = textHistoryRepository
+                .findFirstByUserAndDraftIdAndCreatedAtAfterOrderByCreatedAtDescIdDesc(user, "d-1",
+                        LocalDateTime.now().minusMinutes(5));
+        Optional<TextHistory> expired = textHistoryRepository
+                .findFirstByUserAndDraftIdAndCreatedAtAfterOrderByCreatedAtDescIdDesc(user, "d-1",
+                        LocalDateTime.now().plusMinutes(1));
+
+        // Assert
+        assertThat(revision).map(TextHistory::getId).contains(secondId);
+        assertThat(expired).isEmpty();
+    }
+
+    @Test
+    void findWithBlobByIdAndUser_NotBackfilled_ShouldReadLegacyContent() {
+        // Arrange
+        User user = userRepository.save(User.builder().username("legacy").email("legacy@example.com").build());
+        userRepository.flush();
+        jdbcTemplate.update("INSERT INTO text_histories (user_id, title, content, content_type, char_count, "
+                + "line_count, created_at, updated_at) VALUES (?, '旧', '旧本文', 'plain', 3, 1, NOW(), NOW())",
+                user.getId());
+        Long id = jdbcTemplate.queryForObject("SELECT id FROM text_histories WHERE user_id = ?", Long.class,
+                user.getId());
+        entityManager.clear();
+
+        // Act
+        Optional<TextHistory> history = textHistoryRepository.findWithBlobByIdAndUser(id, user);
+
+        // Assert
+        assertThat(history).hasValueSatisfying(legacy -> {
+            assertThat(legacy.getBlob()).isNull();
+            assertThat(legacy.getContent()).isEqualTo("旧本文");
+        });
+    }
+
+    private TextHistory history(User user, String title) {
+        return history(user, title, "本文");
+    }
+
+    private TextHistory history(User user, String title, String content) {
+        return TextHistory.builder()
+                .user(user)
+                .title(title)
+                .blob(textBlobRepository.acquire(content))
+                .build();
+    }
+}
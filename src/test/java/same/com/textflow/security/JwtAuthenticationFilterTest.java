@@ -0,0 +1,116 @@
+package same.com.textflow.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+import same.com.textflow.entity.User;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class JwtAuthenticationFilterTest {
+
+    private static final String EMAIL = "test@example.com";
+
+    @Mock
+    private UserPrincipalCache userPrincipalCache;
+
+    private final JwtTokenProvider jwtTokenProvider = new JwtTokenProvider(new SimpleMeterRegistry());
+    private final TokenRevocationList tokenRevocationList = new TokenRevocationList(60_000);
+    private final UserPrincipal principal = UserPrincipal.create(
+            User.builder().id(7L).email(EMAIL).build(), false);
+    private JwtAuthenticationFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(jwtTokenProvider, "jwtSecret", "test-secret-key-for-jwt-signing-at-least-32-chars");
+        ReflectionTestUtils.setField(jwtTokenProvider, "jwtExpirationMs", 60_000L);
+        ReflectionTestUtils.setField(jwtTokenProvider, "verifiedCacheMaxEntries", 100L);
+        jwtTokenProvider.init();
+        filter = new JwtAuthenticationFilter(jwtTokenProvider, userPrincipalCache, tokenRevocationList);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void stateless_ShouldAuthenticateFromClaimsWithoutLookup() throws Exception {
+        // Arrange
+        ReflectionTestUtils.setField(filter, "stateless", true);
+        String token = jwtTokenProvider.generateToken(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+
+        // Act
+        Authentication authentication = authenticate(token);
+
+        // Assert
+        assertThat(authentication).isNotNull();
+        UserPrincipal result = (UserPrincipal) authentication.getPrincipal();
+        assertThat(result.getId()).isEqualTo(7L);
+        assertThat(result.getUsername()).isEqualTo(EMAIL);
+        assertThat(result.getAuthorities()).isEqualTo(principal.getAuthorities());
+        verify(userPrincipalCache, never()).get(anyString());
+    }
+
+    @Test
+    void stateless_RevokedUser_ShouldNotAuthenticate() throws Exception {
+        // Arrange
+        ReflectionTestUtils.setField(filter, "stateless", true);
+        String token = jwtTokenProvider.generateToken(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+        tokenRevocationList.revoke(7L);
+
+        // Act & Assert
+        assertThat(authenticate(token)).isNull();
+    }
+
+    @Test
+    void stateless_TokenWithoutClaims_ShouldFallBackToCache() throws Exception {
+        // Arrange
+        ReflectionTestUtils.setField(filter, "stateless", true);
+        when(userPrincipalCache.get(EMAIL)).thenReturn(principal);
+
+        // Act
+        Authentication authentication = authenticate(jwtTokenProvider.generateToken(EMAIL));
+
+        // Assert
+        assertThat(authentication.getPrincipal()).isSameAs(principal);
+    }
+
+    @Test
+    void default_ShouldResolveThroughCache() throws Exception {
+        // Arrange
+        when(userPrincipalCache.get(EMAIL)).thenReturn(principal);
+        String token = jwtTokenProvider.generateToken(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+
+        // Act
+        Authentication authentication = authenticate(token);
+
+        // Assert
+        assertThat(authentication.getPrincipal()).isSameAs(principal);
+        verify(userPrincipalCache).get(EMAIL);
+    }
+
+    private Authentication authenticate(String token) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer " + token);
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+}
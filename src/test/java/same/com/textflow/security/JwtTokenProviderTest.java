@@ -0,0 +1,77 @@
+package same.com.textflow.security;
+
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JwtTokenProviderTest {
+
+    private static final String SECRET = "test-secret-key-for-jwt-signing-at-least-32-chars";
+
+    private JwtTokenProvider jwtTokenProvider;
+
+    @BeforeEach
+    void setUp() {
+        jwtTokenProvider = provider(SECRET, 60_000L);
+    }
+
+    @Test
+    void parseClaims_ShouldVerifyOnceAndReuseClaims() {
+        // Arrange
+        String token = jwtTokenProvider.generateToken("test@example.com");
+
+        // Act
+        Claims first = jwtTokenProvider.parseClaims(token);
+        Claims second = jwtTokenProvider.parseClaims(token);
+
+        // Assert
+        assertThat(first.getSubject()).isEqualTo("test@example.com");
+        assertThat(second).isSameAs(first);
+        assertThat(jwtTokenProvider.validateToken(token)).isTrue();
+    }
+
+    @Test
+    void parseClaims_TamperedSignature_ShouldReturnNull() {
+        // Arrange
+        String token = jwtTokenProvider.generateToken("test@example.com");
+        int signature = token.lastIndexOf('.') + 1;
+        char first = token.charAt(signature);
+        String tampered = token.substring(0, signature) + (first == 'A' ? 'B' : 'A') + token.substring(signature + 1);
+
+        // Act & Assert
+        assertThat(jwtTokenProvider.parseClaims(tampered)).isNull();
+        assertThat(jwtTokenProvider.validateToken(tampered)).isFalse();
+    }
+
+    @Test
+    void parseClaims_OtherSecret_ShouldReturnNull() {
+        // Arrange
+        JwtTokenProvider other = provider("another-secret-key-for-jwt-signing-32-chars", 60_000L);
+
+        // Act & Assert
+        assertThat(jwtTokenProvider.parseClaims(other.generateToken("test@example.com"))).isNull();
+    }
+
+    @Test
+    void parseClaims_ExpiredToken_ShouldReturnNull() {
+        // Arrange
+        String token = provider(SECRET, -1_000L).generateToken("test@example.com");
+
+        // Act & Assert
+        assertThat(jwtTokenProvider.parseClaims(token)).isNull();
+        assertThat(jwtTokenProvider.parseClaims("not-a-token")).isNull();
+    }
+
+    private static JwtTokenProvider provider(String secret, long expirationMs) {
+        JwtTokenProvider provider = new JwtTokenProvider(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(provider, "jwtSecret", secret);
+        ReflectionTestUtils.setField(provider, "jwtExpirationMs", expirationMs);
+        ReflectionTestUtils.setField(provider, "verifiedCacheMaxEntries", 100L);
+        provider.init();
+        return provider;
+    }
+}
@@ -0,0 +1,71 @@
+package same.com.textflow.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import same.com.textflow.entity.User;
+import same.com.textflow.repository.UserRepository;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserPrincipalCacheTest {
+
+    private static final String EMAIL = "test@example.com";
+
+    @Mock
+    private UserRepository userRepository;
+
+    private UserPrincipalCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new UserPrincipalCache(userRepository, Duration.ofMinutes(1), 100, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void get_ShouldQueryOncePerEmail() {
+        // Arrange
+        when(userRepository.findByEmail(EMAIL)).thenReturn(Optional.of(user(1L)));
+
+        // Act
+        cache.get(EMAIL);
+        UserPrincipal principal = cache.get(EMAIL);
+
+        // Assert
+        assertThat(principal.getId()).isEqualTo(1L);
+        verify(userRepository, times(1)).findByEmail(EMAIL);
+    }
+
+    @Test
+    void get_InvalidatedDuringLoad_ShouldNotCacheTheStalePrincipal() {
+        // Arrange
+        when(userRepository.findByEmail(EMAIL))
+                .thenAnswer(invocation -> {
+                    // The user changes while this load is in flight
+                    cache.invalidate(EMAIL);
+                    return Optional.of(user(1L));
+                })
+                .thenReturn(Optional.of(user(2L)));
+
+        // Act
+        UserPrincipal stale = cache.get(EMAIL);
+        UserPrincipal fresh = cache.get(EMAIL);
+
+        // Assert
+        assertThat(stale.getId()).isEqualTo(1L);
+        assertThat(fresh.getId()).isEqualTo(2L);
+        verify(userRepository, times(2)).findByEmail(EMAIL);
+    }
+
+    private static User user(Long id) {
+        return User.builder().id(id).email(EMAIL).build();
+    }
+}
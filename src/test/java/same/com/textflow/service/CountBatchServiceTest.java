@@ -0,0 +1,77 @@
+package same.com.textflow.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import same.com.textflow.dto.request.CountRequest;
+import same.com.textflow.dto.response.CountBatchResponse;
+import same.com.textflow.exception.BadRequestException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CountBatchServiceTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final CountService countService = new CountService(
+            new CountResultCache(1000, 16, new SimpleMeterRegistry()));
+    private final CountBatchService countBatchService =
+            new CountBatchService(countService, objectMapper, 4, 4 * 1024 * 1024, 10000);
+
+    @AfterEach
+    void tearDown() {
+        countBatchService.shutdown();
+    }
+
+    @Test
+    void countJson_ShouldReturnResultsInRequestOrder() throws IOException {
+        // Arrange: enough text to take the parallel path
+        List<String> texts = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            texts.add("テキスト ".repeat(i % 50 + 1) + "\n\n" + i);
+        }
+        byte[] body = objectMapper.writeValueAsBytes(Map.of("texts", texts));
+
+        // Act
+        CountBatchResponse response = countBatchService.countJson(new ByteArrayInputStream(body));
+
+        // Assert
+        assertThat(response.getCount()).isEqualTo(500);
+        for (int i = 0; i < texts.size(); i++) {
+            assertThat(response.getResults().get(i)).isEqualTo(countService.count(new CountRequest(texts.get(i))));
+        }
+    }
+
+    @Test
+    void countNdjson_ShouldAcceptStringsAndObjects() throws IOException {
+        InputStream body = stream("\"hello world\"\n{\"text\": \"改行\\n\\n段落\"}\n");
+
+        CountBatchResponse response = countBatchService.countNdjson(body);
+
+        assertThat(response.getCount()).isEqualTo(2);
+        assertThat(response.getResults().get(0).getWords()).isEqualTo(2);
+        assertThat(response.getResults().get(1).getParagraphs()).isEqualTo(2);
+    }
+
+    @Test
+    void countJson_OverByteLimit_ShouldThrow() {
+        CountBatchService limited = new CountBatchService(countService, objectMapper, 1, 16, 10000);
+
+        assertThatThrownBy(() -> limited.countJson(stream("{\"texts\": [\"more than sixteen bytes\"]}")))
+                .isInstanceOf(BadRequestException.class);
+        limited.shutdown();
+    }
+
+    private static InputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
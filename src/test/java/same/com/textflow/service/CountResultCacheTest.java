@@ -0,0 +1,159 @@
+package same.com.textflow.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import same.com.textflow.dto.response.CountResponse;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CountResultCacheTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CountResultCache cache = new CountResultCache(100, 8, meterRegistry);
+    private final AtomicInteger computations = new AtomicInteger();
+
+    @Test
+    void get_SameText_ShouldCountOnceAndReturnCopies() {
+        // Arrange
+        String text = "繰り返し送信される下書きテキスト";
+
+        // Act
+        CountResponse first = cache.get(text, CountMode.UTF16, this::compute);
+        CountResponse second = cache.get(new String(text.toCharArray()), CountMode.UTF16, this::compute);
+        second.setTotalChars(-1);
+        CountResponse third = cache.get(text, CountMode.UTF16, this::compute);
+
+        // Assert
+        assertThat(computations).hasValue(1);
+        assertThat(first).isEqualTo(third).isNotSameAs(third);
+        assertThat(meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void get_ShouldSeparateModesAndDifferentTexts() {
+        cache.get("same length A", CountMode.UTF16, this::compute);
+        cache.get("same length B", CountMode.UTF16, this::compute);
+        cache.get("same length A", CountMode.UNICODE, this::compute);
+
+        assertThat(computations).hasValue(3);
+    }
+
+    @Test
+    void get_BelowMinLength_ShouldNotCache() {
+        cache.get("short", CountMode.UTF16, this::compute);
+        cache.get("short", CountMode.UTF16, this::compute);
+
+        assertThat(computations).hasValue(2);
+    }
+
+    @Test
+    void get_TextsWithSameLengthAndSameMurmurHash_ShouldNotShareEntry() {
+        // Arrange
+        String original = murmurCollision(0);
+        String forged = murmurCollision(1);
+        assertThat(forged).isNotEqualTo(original).hasSameSizeAs(original);
+        assertThat(murmur3(forged, 0)).containsExactly(murmur3(original, 0));
+        assertThat(murmur3(forged, 42)).containsExactly(murmur3(original, 42));
+
+        // Act
+        cache.get(original, CountMode.UTF16, this::compute);
+        CountResponse forgedResult = cache.get(forged, CountMode.UTF16, this::compute);
+
+        // Assert
+        assertThat(computations).hasValue(2);
+        assertThat(forgedResult.getTotalChars()).isEqualTo(2);
+    }
+
+    private CountResponse compute() {
+        return CountResponse.builder().totalChars(computations.incrementAndGet()).build();
+    }
+
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+
+    /**
+     * Two-block texts whose MurmurHash3 x64_128 collides for every seed. The
+     * mixed first words differ in bit 36, which the block rotation moves to
+     * the top bit; the second block's words cancel that difference again.
+     */
+    private static String murmurCollision(int variant) {
+        long bit36 = 1L << 36;
+        long top = Long.MIN_VALUE;
+        long m1 = 0x0123456789abcdefL;
+        long m2 = 0x0fedcba987654321L;
+        long m3 = 0x1122334455667788L;
+        long m4 = 0x5566778899aabbccL;
+        if (variant == 1) {
+            m1 ^= bit36;
+            m3 ^= top ^ bit36;
+            m4 ^= top;
+        }
+        StringBuilder text = new StringBuilder();
+        for (long k : new long[] {unmixK1(m1), unmixK2(m2), unmixK1(m3), unmixK2(m4)}) {
+            for (int i = 0; i < 4; i++) {
+                text.append((char) (k >>> (i << 4)));
+            }
+        }
+        return text.toString();
+    }
+
+    private static long unmixK1(long m) {
+        return Long.rotateRight(m * inverse(C2), 31) * inverse(C1);
+    }
+
+    private static long unmixK2(long m) {
+        return Long.rotateRight(m * inverse(C1), 33) * inverse(C2);
+    }
+
+    private static long inverse(long odd) {
+        long x = odd;
+        for (int i = 0; i < 5; i++) {
+            x *= 2 - odd * x;
+        }
+        return x;
+    }
+
+    // MurmurHash3 x64_128 over whole blocks of UTF-16 code units
+    private static long[] murmur3(String text, long seed) {
+        long h1 = seed;
+        long h2 = seed;
+        for (int i = 0; i < text.length(); i += 8) {
+            long k1 = word(text, i);
+            long k2 = word(text, i + 4);
+            h1 ^= Long.rotateLeft(k1 * C1, 31) * C2;
+            h1 = Long.rotateLeft(h1, 27) + h2;
+            h1 = h1 * 5 + 0x52dce729;
+            h2 ^= Long.rotateLeft(k2 * C2, 33) * C1;
+            h2 = Long.rotateLeft(h2, 31) + h1;
+            h2 = h2 * 5 + 0x38495ab5;
+        }
+        h1 ^= text.length() * 2L;
+        h2 ^= text.length() * 2L;
+        h1 += h2;
+        h2 += h1;
+        h1 = fmix(h1);
+        h2 = fmix(h2);
+        h1 += h2;
+        h2 += h1;
+        return new long[] {h1, h2};
+    }
+
+    private static long word(String text, int from) {
+        long word = 0;
+        for (int i = 0; i < 4; i++) {
+            word |= (long) text.charAt(from + i) << (i << 4);
+        }
+        return word;
+    }
+
+    private static long fmix(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+}
@@ -0,0 +1,199 @@
+package same.com.textflow.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import same.com.textflow.dto.request.CountRequest;
+import same.com.textflow.dto.response.CountResponse;
+import same.com.textflow.exception.BadRequestException;
+import same.com.textflow.text.TextScanner;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CountServiceTest {
+
+    private final CountService countService = new CountService(
+            new CountResultCache(1000, 16, new SimpleMeterRegistry()));
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(countService, "streamMaxBytes", 16L * 1024 * 1024);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "",
+            " ",
+            "a",
+            "Hello World",
+            "  leading and trailing  ",
+            "line1\nline2\nline3",
+            "trailing newline\n",
+            "\n\n\n",
+            "para1\n\npara2",
+            "para1\n \t\n\n para2\n\n\n",
+            "para1\r\n\r\npara2",
+            "tabs\tand\u000Bvertical\fform feeds",
+            "\u0001 control \u0002 runs \u0003",
+            "\u0001\u0002",
+            "a \u0001 b",
+            "x\n\u0001\n\ny",
+            "日本語の文章です。　全角スペース　を含みます。",
+            "改行\n\n段落",
+            "emoji 😀👍🏽 and 👨‍👩‍👧 family",
+            "lone high \uD83D surrogate",
+            "lone low \uDE00 surrogate",
+            "\uD83D",
+            "ends with pair 😀",
+            "Ünïcödé ñ ß ü",
+            " nbsp em space\u0085nel"
+    })
+    void count_ShouldMatchLegacyImplementation(String text) {
+        assertParity(text);
+    }
+
+    @Test
+    void count_ShouldMatchLegacyImplementationOnRandomInput() {
+        Random random = new Random(20240101L);
+        char[] alphabet = {
+                'a', 'b', 'Z', '1', ' ', ' ', '\n', '\n', '\t', '\r', '\u000B', '\f',
+                '\u0001', '\u001F', '　', 'あ', '漢', 'é', '\uD83D', '\uDE00', ' ', '\u0085'
+        };
+
+        for (int i = 0; i < 5_000; i++) {
+            int length = random.nextInt(64);
+            StringBuilder sb = new StringBuilder(length);
+            for (int j = 0; j < length; j++) {
+                sb.append(alphabet[random.nextInt(alphabet.length)]);
+            }
+            assertParity(sb.toString());
+        }
+    }
+
+    @Test
+    void count_ShouldMatchLegacyImplementationOnMaximumLengthText() {
+        StringBuilder sb = new StringBuilder(100_000);
+        while (sb.length() < 100_000) {
+            sb.append("吾輩は猫である。名前はまだ無い。 The quick brown fox 😀\n");
+            if (sb.length() % 7 == 0) {
+                sb.append("\n \n");
+            }
+        }
+        sb.setLength(100_000);
+
+        assertParity(sb.toString());
+    }
+
+    @Test
+    void count_WithChunkedInput_ShouldMatchSinglePass() {
+        String text = "前半😀\n\n後半 words here\n";
+        char[] chars = text.toCharArray();
+
+        // Split in the middle of the surrogate pair
+        TextScanner scanner = new TextScanner();
+        scanner.accept(chars, 0, 3);
+        scanner.accept(chars, 3, chars.length - 3);
+
+        assertThat(scanner.finish()).isEqualTo(TextScanner.scan(text));
+    }
+
+    @Test
+    void countStream_ShouldMatchInMemoryCountForLargeText() throws IOException {
+        // Larger than the 100,000 char request limit and the stream buffers, with pairs split across reads
+        StringBuilder sb = new StringBuilder();
+        while (sb.length() < 1_000_000) {
+            sb.append("吾輩は猫である。😀 名前は\n\nまだ無い。 words\t");
+        }
+        String text = sb.toString();
+
+        CountResponse actual = countService.count(
+                Channels.newChannel(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8))));
+
+        assertThat(actual).isEqualTo(countService.count(new CountRequest(text)));
+    }
+
+    @Test
+    void countStream_WithMalformedUtf8_ShouldCountReplacementCharacters() throws IOException {
+        byte[] bytes = {'a', ' ', (byte) 0xE3, (byte) 0x81, ' ', 'b', (byte) 0xFF};
+
+        CountResponse actual = countService.count(Channels.newChannel(new ByteArrayInputStream(bytes)));
+
+        String decoded = new String(bytes, StandardCharsets.UTF_8);
+        assertThat(actual).isEqualTo(countService.count(new CountRequest(decoded)));
+    }
+
+    @Test
+    void countStream_OverLimit_ShouldThrow() {
+        ReflectionTestUtils.setField(countService, "streamMaxBytes", 10L);
+        byte[] bytes = "more than ten bytes".getBytes(StandardCharsets.UTF_8);
+
+        assertThatThrownBy(() -> countService.count(Channels.newChannel(new ByteArrayInputStream(bytes))))
+                .isInstanceOf(BadRequestException.class);
+    }
+
+    private void assertParity(String text) {
+        CountResponse actual = countService.count(new CountRequest(text));
+        assertThat(actual)
+                .as("text: %s", escape(text))
+                .isEqualTo(legacyCount(text));
+    }
+
+    private static String escape(String text) {
+        StringBuilder sb = new StringBuilder();
+        for (char c : text.toCharArray()) {
+            if (c < 0x20 || c > 0x7E) {
+                sb.append(String.format("\\u%04X", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    // Reference implementation that CountService used before the single-pass scanner
+    private static CountResponse legacyCount(String text) {
+        int totalChars = text.length();
+        int totalCharsWithoutSpace = text.replaceAll("\\s", "").length();
+        int bytes = text.getBytes(StandardCharsets.UTF_8).length;
+        int lines = text.isEmpty() ? 0 : text.split("\n", -1).length;
+
+        int words = 0;
+        if (!text.trim().isEmpty()) {
+            words = (int) Arrays.stream(text.trim().split("\\s+"))
+                    .filter(w -> !w.isEmpty())
+                    .count();
+        }
+
+        int paragraphs = 0;
+        if (!text.trim().isEmpty()) {
+            paragraphs = (int) Arrays.stream(text.split("\n\\s*\n"))
+                    .filter(p -> !p.trim().isEmpty())
+                    .count();
+        }
+
+        int manuscripts = (int) Math.ceil((double) totalChars / 400);
+
+        return CountResponse.builder()
+                .totalChars(totalChars)
+                .totalCharsWithoutSpace(totalCharsWithoutSpace)
+                .bytes(bytes)
+                .lines(lines)
+                .words(words)
+                .paragraphs(paragraphs)
+                .manuscripts(manuscripts)
+                .twitterRemaining(Math.max(0, 140 - totalChars))
+                .instagramRemaining(Math.max(0, 2200 - totalChars))
+                .build();
+    }
+}
@@ -0,0 +1,137 @@
+package same.com.textflow.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import same.com.textflow.dto.request.CountEditRequest;
+import same.com.textflow.dto.request.CountSessionRequest;
+import same.com.textflow.dto.response.CountSessionResponse;
+import same.com.textflow.exception.BadRequestException;
+import same.com.textflow.exception.ResourceNotFoundException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CountSessionServiceTest {
+
+    private final CountService countService =
+            new CountService(new CountResultCache(0, Integer.MAX_VALUE, new SimpleMeterRegistry()));
+    private final AtomicLong nanos = new AtomicLong();
+
+    @Test
+    void applyEdits_ShouldUpdateCounts() {
+        // Arrange
+        CountSessionService service = service(Duration.ofMinutes(15), 1_000_000, 100);
+        String token = service.createSession(new CountSessionRequest("吾輩は猫")).getSessionToken();
+
+        // Act
+        CountSessionResponse response = service.applyEdits(token, edits(
+                new CountEditRequest.Edit(4, 0, "である。"),
+                new CountEditRequest.Edit(0, 2, "我")));
+
+        // Assert
+        assertThat(response.getLength()).isEqualTo(7);
+        assertThat(response.getCount().getTotalChars()).isEqualTo(7);
+        assertThat(response.getCount().getBytes()).isEqualTo(21);
+    }
+
+    @Test
+    void applyEdits_OutOfRange_ShouldRejectWholeRequest() {
+        // Arrange
+        CountSessionService service = service(Duration.ofMinutes(15), 1_000_000, 100);
+        String token = service.createSession(new CountSessionRequest("abc")).getSessionToken();
+
+        // Act & Assert
+        // The second edit is checked against the length after the first one
+        assertThatThrownBy(() -> service.applyEdits(token, edits(
+                new CountEditRequest.Edit(0, 3, ""),
+                new CountEditRequest.Edit(1, 0, "x"))))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessage("編集範囲がテキストの範囲外です");
+        assertThat(service.applyEdits(token, edits(new CountEditRequest.Edit(3, 0, "d"))).getLength()).isEqualTo(4);
+    }
+
+    @Test
+    void applyEdits_OverMaxChars_ShouldThrow() {
+        CountSessionService service = service(Duration.ofMinutes(15), 1_000_000, 5);
+        String token = service.createSession(new CountSessionRequest("abcd")).getSessionToken();
+
+        assertThatThrownBy(() -> service.applyEdits(token, edits(new CountEditRequest.Edit(4, 0, "ef"))))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessage("テキストは5文字以内で入力してください");
+    }
+
+    @Test
+    void applyEdits_UnknownOrClosedToken_ShouldThrowNotFound() {
+        CountSessionService service = service(Duration.ofMinutes(15), 1_000_000, 100);
+        String token = service.createSession(new CountSessionRequest("abc")).getSessionToken();
+        service.closeSession(token);
+
+        assertThatThrownBy(() -> service.applyEdits(token, edits(new CountEditRequest.Edit(0, 0, "x"))))
+                .isInstanceOf(ResourceNotFoundException.class);
+        assertThatThrownBy(() -> service.applyEdits("unknown", edits(new CountEditRequest.Edit(0, 0, "x"))))
+                .isInstanceOf(ResourceNotFoundException.class);
+    }
+
+    @Test
+    void applyEdits_IdleSession_ShouldBeExpired() {
+        // Arrange
+        CountSessionService service = service(Duration.ofMinutes(15), 1_000_000, 100);
+        String token = service.createSession(new CountSessionRequest("abc")).getSessionToken();
+
+        // Act
+        nanos.addAndGet(Duration.ofMinutes(16).toNanos());
+
+        // Assert
+        assertThatThrownBy(() -> service.applyEdits(token, edits(new CountEditRequest.Edit(0, 0, "x"))))
+                .isInstanceOf(ResourceNotFoundException.class);
+    }
+
+    @Test
+    void applyEdits_GrowingPastMemoryBudget_ShouldReweighAndEvict() {
+        // Arrange
+        CountSessionService service = service(Duration.ofMinutes(15), 1_000, 100_000);
+        String token = service.createSession(new CountSessionRequest("abc")).getSessionToken();
+
+        // Act
+        service.applyEdits(token, edits(new CountEditRequest.Edit(3, 0, "x".repeat(600))));
+
+        // Assert
+        assertThatThrownBy(() -> service.applyEdits(token, edits(new CountEditRequest.Edit(0, 0, "x"))))
+                .isInstanceOf(ResourceNotFoundException.class);
+    }
+
+    @Test
+    void createSession_OverMemoryBudget_ShouldEvictASession() {
+        // Arrange
+        CountSessionService service = service(Duration.ofMinutes(15), 1_000, 100_000);
+
+        // Act
+        List<String> tokens = List.of(
+                service.createSession(new CountSessionRequest("a".repeat(300))).getSessionToken(),
+                service.createSession(new CountSessionRequest("b".repeat(300))).getSessionToken());
+
+        // Assert
+        long alive = tokens.stream().filter(token -> {
+            try {
+                service.applyEdits(token, edits(new CountEditRequest.Edit(0, 0, "")));
+                return true;
+            } catch (ResourceNotFoundException e) {
+                return false;
+            }
+        }).count();
+        assertThat(alive).isEqualTo(1);
+    }
+
+    private CountSessionService service(Duration idleTimeout, long maxMemoryBytes, int maxChars) {
+        // Evictions run on the calling thread, so they are done when each call returns
+        return new CountSessionService(countService, idleTimeout, maxMemoryBytes, maxChars, nanos::get, Runnable::run);
+    }
+
+    private static CountEditRequest edits(CountEditRequest.Edit... edits) {
+        return new CountEditRequest(List.of(edits));
+    }
+}
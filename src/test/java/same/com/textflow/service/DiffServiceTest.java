@@ -0,0 +1,172 @@
+package same.com.textflow.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import same.com.textflow.dto.request.DiffRequest;
+import same.com.textflow.dto.response.DiffDetailResponse;
+import same.com.textflow.dto.response.DiffResponse;
+import same.com.textflow.entity.DiffHistory;
+import same.com.textflow.entity.User;
+import same.com.textflow.exception.BadRequestException;
+import same.com.textflow.repository.DiffHistoryRepository;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DiffServiceTest {
+
+    @Mock
+    private DiffHistoryRepository diffHistoryRepository;
+
+    @Mock
+    private UserService userService;
+
+    @InjectMocks
+    private DiffService diffService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(diffService, "maxLines", 1000);
+        ReflectionTestUtils.setField(diffService, "refineBudgetMs", 1000L);
+        ReflectionTestUtils.setField(diffService, "deltaStorage", true);
+    }
+
+    @Test
+    void compute_ShouldCountLinesAndBuildHunks() {
+        // Arrange
+        DiffRequest request = DiffRequest.builder()
+                .textBefore("a\nb\nc\nd\ne\nf\ng\nh\ni\nj")
+                .textAfter("a\nB\nc\nd\ne\nf\ng\nh\ni\nj\nk\nl")
+                .contextLines(1)
+                .build();
+
+        // Act
+        DiffResponse response = diffService.compute(request);
+
+        // Assert
+        assertThat(response.getChangedLines()).isEqualTo(1);
+        assertThat(response.getAddedLines()).isEqualTo(2);
+        assertThat(response.getDeletedLines()).isZero();
+        assertThat(response.getHunks()).hasSize(2);
+
+        DiffResponse.Hunk first = response.getHunks().get(0);
+        assertThat(first.getOldStart()).isEqualTo(1);
+        assertThat(first.getOldLines()).isEqualTo(3);
+        assertThat(first.getNewLines()).isEqualTo(3);
+        assertThat(first.getLines()).extracting(DiffResponse.Line::getType)
+                .containsExactly("equal", "delete", "insert", "equal");
+
+        DiffResponse.Hunk second = response.getHunks().get(1);
+        assertThat(second.getOldStart()).isEqualTo(10);
+        assertThat(second.getNewStart()).isEqualTo(10);
+        assertThat(second.getLines()).extracting(DiffResponse.Line::getText)
+                .containsExactly("j", "k", "l");
+    }
+
+    @Test
+    void createDiff_ShouldPersistSummary() {
+        // Arrange
+        User user = User.builder().id(1L).email("test@example.com").build();
+        when(userService.getUserByEmail(anyString())).thenReturn(user);
+        when(diffHistoryRepository.save(any(DiffHistory.class))).thenAnswer(invocation -> {
+            DiffHistory h = invocation.getArgument(0);
+            h.setId(5L);
+            return h;
+        });
+
+        // Act
+        DiffResponse response = diffService.createDiff("test@example.com",
+                DiffRequest.builder().textBefore("old\nsame").textAfter("new\nsame\nadded").build());
+
+        // Assert
+        ArgumentCaptor<DiffHistory> captor = ArgumentCaptor.forClass(DiffHistory.class);
+        verify(diffHistoryRepository).save(captor.capture());
+        assertThat(captor.getValue().getChangedLines()).isEqualTo(1);
+        assertThat(captor.getValue().getAddedLines()).isEqualTo(1);
+        assertThat(captor.getValue().getTitle()).isEqualTo("new\nsame\nadded");
+        assertThat(response.getId()).isEqualTo(5L);
+    }
+
+    @Test
+    void createDiff_LongText_ShouldStoreEditScriptAndRebuildOnDetail() {
+        // Arrange
+        User user = User.builder().id(1L).email("test@example.com").build();
+        String before = "変更されない行です。\n".repeat(500);
+        String after = before.replaceFirst("変更されない", "変更された");
+        when(userService.getUserByEmail(anyString())).thenReturn(user);
+        when(diffHistoryRepository.save(any(DiffHistory.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        diffService.createDiff("test@example.com", DiffRequest.builder().textBefore(before).textAfter(after).build());
+
+        // Assert
+        ArgumentCaptor<DiffHistory> captor = ArgumentCaptor.forClass(DiffHistory.class);
+        verify(diffHistoryRepository).save(captor.capture());
+        DiffHistory saved = captor.getValue();
+        assertThat(saved.getStorageMode()).isEqualTo(DiffHistory.STORAGE_DELTA);
+        assertThat(saved.getTextAfter()).isEmpty();
+
+        when(diffHistoryRepository.findByIdAndUser(1L, user)).thenReturn(Optional.of(saved));
+        DiffDetailResponse detail = diffService.getDiff("test@example.com", 1L, 3, DiffGranularity.LINE);
+        assertThat(detail.getTextAfter()).isEqualTo(after);
+        assertThat(detail.getChangedLines()).isEqualTo(1);
+    }
+
+    @Test
+    void compute_WithWordGranularity_ShouldRefinePairedLines() {
+        DiffRequest request = DiffRequest.builder()
+                .textBefore("吾輩は猫である。\n削除される行")
+                .textAfter("吾輩は犬である。")
+                .granularity("word")
+                .build();
+
+        DiffResponse response = diffService.compute(request);
+
+        List<DiffResponse.Line> lines = response.getHunks().get(0).getLines();
+        assertThat(response.getRefinementComplete()).isTrue();
+        assertThat(lines.get(0).getSegments()).extracting(DiffResponse.Segment::getText)
+                .containsExactly("吾輩は", "猫", "である。");
+        assertThat(lines.get(0).getSegments()).extracting(DiffResponse.Segment::getType)
+                .containsExactly("equal", "delete", "equal");
+        assertThat(lines.get(1).getSegments()).isNull();
+        assertThat(lines.get(2).getSegments()).extracting(DiffResponse.Segment::getType)
+                .containsExactly("equal", "insert", "equal");
+    }
+
+    @Test
+    void compute_WhenBudgetIsSpent_ShouldFallBackToLineLevel() {
+        ReflectionTestUtils.setField(diffService, "refineBudgetMs", 0L);
+        DiffRequest request = DiffRequest.builder()
+                .textBefore("abc")
+                .textAfter("abd")
+                .granularity("char")
+                .build();
+
+        DiffResponse response = diffService.compute(request);
+
+        assertThat(response.getRefinementComplete()).isFalse();
+        assertThat(response.getHunks().get(0).getLines()).allMatch(line -> line.getSegments() == null);
+    }
+
+    @Test
+    void compute_OverLineLimit_ShouldThrow() {
+        DiffRequest request = DiffRequest.builder()
+                .textBefore("x\n".repeat(1000))
+                .textAfter("")
+                .build();
+
+        assertThatThrownBy(() -> diffService.compute(request)).isInstanceOf(BadRequestException.class);
+    }
+}
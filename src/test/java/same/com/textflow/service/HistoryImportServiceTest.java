@@ -0,0 +1,140 @@
+package same.com.textflow.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+import same.com.textflow.entity.TextHistory;
+import same.com.textflow.entity.User;
+import same.com.textflow.repository.TextHistoryBulkWriter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class HistoryImportServiceTest {
+
+    @Mock
+    private TextHistoryBulkWriter textHistoryBulkWriter;
+
+    @Mock
+    private UserService userService;
+
+    @Mock
+    private HistorySearchIndex historySearchIndex;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+    private final List<Integer> batchSizes = new ArrayList<>();
+    private HistoryImportService historyImportService;
+
+    @BeforeEach
+    void setUp() {
+        historyImportService = new HistoryImportService(
+                textHistoryBulkWriter, userService, historySearchIndex, objectMapper, validator, transactionTemplate,
+                2, 1_000_000);
+        lenient().doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        when(userService.getUserByEmail(anyString())).thenReturn(User.builder().id(1L).build());
+    }
+
+    @Test
+    void importStream_Ndjson_ShouldWriteInBatchesAndReportProgress() throws IOException {
+        // Arrange
+        recordBatches();
+        String body = """
+                {"content": "one"}
+                {"content": ""}
+                {"title": "t", "content": "two"}
+                {"content": "three"}
+                """;
+
+        // Act
+        List<JsonNode> lines = importStream(body);
+
+        // Assert
+        assertThat(batchSizes).containsExactly(2, 1);
+        assertThat(lines).extracting(line -> line.get("type").asText())
+                .containsExactly("progress", "progress", "complete");
+        assertThat(lines.get(2).get("imported").asLong()).isEqualTo(3);
+        assertThat(lines.get(2).get("skipped").asLong()).isEqualTo(1);
+    }
+
+    @Test
+    void importStream_JsonArray_ShouldBeAccepted() throws IOException {
+        recordBatches();
+
+        List<JsonNode> lines = importStream("[{\"content\": \"a\"}, {\"content\": \"b\"}, {\"content\": \"c\"}]");
+
+        assertThat(batchSizes).containsExactly(2, 1);
+        assertThat(lines.get(lines.size() - 1).get("imported").asLong()).isEqualTo(3);
+    }
+
+    @Test
+    void importStream_InvalidItem_ShouldKeepCommittedBatchesAndReportError() throws IOException {
+        recordBatches();
+        String tooLong = "x".repeat(100_001);
+        String body = "{\"content\": \"a\"}\n{\"content\": \"b\"}\n{\"content\": \"" + tooLong + "\"}\n";
+
+        List<JsonNode> lines = importStream(body);
+
+        JsonNode last = lines.get(lines.size() - 1);
+        assertThat(last.get("type").asText()).isEqualTo("error");
+        assertThat(last.get("imported").asLong()).isEqualTo(2);
+        assertThat(last.get("message").asText()).startsWith("3件目");
+    }
+
+    @Test
+    void importStream_ContentTypeTooLong_ShouldReportTheItemWithoutWritingIt() throws IOException {
+        String body = "{\"content\": \"a\"}\n{\"content\": \"b\", \"contentType\": \"" + "x".repeat(21) + "\"}\n";
+
+        List<JsonNode> lines = importStream(body);
+
+        JsonNode last = lines.get(lines.size() - 1);
+        assertThat(last.get("type").asText()).isEqualTo("error");
+        assertThat(last.get("imported").asLong()).isZero();
+        assertThat(last.get("message").asText()).isEqualTo("2件目: コンテンツタイプは20文字以内で指定してください");
+        verify(textHistoryBulkWriter, never()).insertAll(anyList());
+    }
+
+    private void recordBatches() {
+        when(textHistoryBulkWriter.insertAll(anyList())).thenAnswer(invocation -> {
+            List<TextHistory> batch = invocation.getArgument(0);
+            batchSizes.add(batch.size());
+            return 1;
+        });
+    }
+
+    private List<JsonNode> importStream(String body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        historyImportService.importStream("test@example.com",
+                new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), out);
+
+        List<JsonNode> lines = new ArrayList<>();
+        for (String line : out.toString(StandardCharsets.UTF_8).split("\n")) {
+            lines.add(objectMapper.readTree(line));
+        }
+        return lines;
+    }
+}
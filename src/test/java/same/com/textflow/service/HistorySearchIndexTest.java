@@ -0,0 +1,176 @@
+package same.com.textflow.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import same.com.textflow.entity.User;
+import same.com.textflow.repository.TextHistoryRepository;
+import same.com.textflow.repository.TextHistorySearchRepository;
+import same.com.textflow.repository.TextHistorySummary;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class HistorySearchIndexTest {
+
+    @Mock
+    private TextHistoryRepository textHistoryRepository;
+
+    @Mock
+    private TextHistorySearchRepository textHistorySearchRepository;
+
+    private final User user = User.builder().id(1L).build();
+    private HistorySearchIndex historySearchIndex;
+
+    @BeforeEach
+    void setUp() {
+        historySearchIndex = new HistorySearchIndex(textHistoryRepository, textHistorySearchRepository,
+                1_000_000, 100_000, Duration.ofHours(1), new SimpleMeterRegistry());
+        lenient().doAnswer(invocation -> {
+            TextHistorySearchRepository.DocumentVisitor visitor = invocation.getArgument(1);
+            visitor.visit(10L, "議事録", "来週の打ち合わせ");
+            visitor.visit(11L, "メモ", "打ち合わせの資料");
+            return null;
+        }).when(textHistorySearchRepository).forEachDocument(eq(1L), any());
+        lenient().when(textHistoryRepository.findSummaryByUserAndIdIn(eq(user), anyCollection()))
+                .thenAnswer(invocation -> summaries(invocation.getArgument(1)));
+    }
+
+    @Test
+    void search_ShouldBuildOnceAndFollowCreatesAndDeletes() {
+        // Act
+        Page<TextHistorySummary> first = historySearchIndex.search(user, "議事", PageRequest.of(0, 20));
+        historySearchIndex.added(1L, 12L, "議事メモ", "");
+        historySearchIndex.removed(1L, 10L);
+        Page<TextHistorySummary> second = historySearchIndex.search(user, "議事", PageRequest.of(0, 20));
+
+        // Assert
+        assertThat(first.getContent()).extracting(TextHistorySummary::getId).containsExactly(10L);
+        assertThat(second.getContent()).extracting(TextHistorySummary::getId).containsExactly(12L);
+        verify(textHistorySearchRepository, times(1)).forEachDocument(eq(1L), any());
+        verify(textHistoryRepository, never()).findIdsContaining(any(), anyCollection(), anyString());
+    }
+
+    @Test
+    void search_LongQuery_ShouldVerifyCandidatesAndPage() {
+        when(textHistoryRepository.findIdsContaining(eq(user), anyCollection(), eq("%打ち合わせ%")))
+                .thenReturn(List.of(10L, 11L));
+
+        Page<TextHistorySummary> page = historySearchIndex.search(user, "打ち合わせ", PageRequest.of(1, 1));
+
+        assertThat(page.getTotalElements()).isEqualTo(2);
+        assertThat(page.getContent()).extracting(TextHistorySummary::getId).containsExactly(10L);
+    }
+
+    @Test
+    void search_NoMatchOrPagePastEnd_ShouldReturnEmptyPage() {
+        // Act
+        Page<TextHistorySummary> noMatch = historySearchIndex.search(user, "存在しない", PageRequest.of(0, 20));
+        Page<TextHistorySummary> pastEnd = historySearchIndex.search(user, "議事", PageRequest.of(5, 20));
+
+        // Assert
+        assertThat(noMatch.getContent()).isEmpty();
+        assertThat(noMatch.getTotalElements()).isZero();
+        assertThat(pastEnd.getContent()).isEmpty();
+        assertThat(pastEnd.getTotalElements()).isEqualTo(1);
+        verify(textHistoryRepository, never()).findSummaryByUserAndIdIn(any(), anyCollection());
+    }
+
+    @Test
+    void search_OversizedIndex_ShouldReturnNullAndInvalidateShouldRebuild() {
+        historySearchIndex = new HistorySearchIndex(textHistoryRepository, textHistorySearchRepository,
+                1_000_000, 100, Duration.ofHours(1), new SimpleMeterRegistry());
+
+        assertThat(historySearchIndex.search(user, "議事", PageRequest.of(0, 20))).isNull();
+        assertThat(historySearchIndex.search(user, "議事", PageRequest.of(0, 20))).isNull();
+        verify(textHistorySearchRepository, times(1)).forEachDocument(eq(1L), any());
+
+        historySearchIndex.invalidate(1L);
+        historySearchIndex.search(user, "議事", PageRequest.of(0, 20));
+        verify(textHistorySearchRepository, times(2)).forEachDocument(eq(1L), any());
+    }
+
+    @Test
+    void search_OversizedIndex_ShouldRetryAfterOverLimitRetry() {
+        // Arrange
+        historySearchIndex = new HistorySearchIndex(textHistoryRepository, textHistorySearchRepository,
+                1_000_000, 100, Duration.ZERO, new SimpleMeterRegistry());
+
+        // Act
+        Page<TextHistorySummary> first = historySearchIndex.search(user, "議事", PageRequest.of(0, 20));
+        Page<TextHistorySummary> second = historySearchIndex.search(user, "議事", PageRequest.of(0, 20));
+
+        // Assert
+        assertThat(first).isNull();
+        assertThat(second).isNull();
+        verify(textHistorySearchRepository, times(2)).forEachDocument(eq(1L), any());
+    }
+
+    @Test
+    void search_ReAddedOlderHistory_ShouldStillPageByNewestId() {
+        // Arrange: a coalesced draft revision is removed and re-added, so it gets the newest ordinal
+        historySearchIndex.search(user, "打ち", PageRequest.of(0, 20));
+        historySearchIndex.removed(1L, 11L);
+        historySearchIndex.added(1L, 11L, "メモ", "打ち合わせの資料");
+
+        // Act
+        Page<TextHistorySummary> page = historySearchIndex.search(user, "打ち", PageRequest.of(0, 1));
+
+        // Assert
+        assertThat(page.getTotalElements()).isEqualTo(2);
+        assertThat(page.getContent()).extracting(TextHistorySummary::getId).containsExactly(11L);
+    }
+
+    @Test
+    void added_DuringBuild_ShouldApplyOnceBuilt() {
+        // Arrange
+        doAnswer(invocation -> {
+            TextHistorySearchRepository.DocumentVisitor visitor = invocation.getArgument(1);
+            visitor.visit(10L, "議事録", "");
+            historySearchIndex.added(1L, 12L, "議事メモ", "");
+            return null;
+        }).when(textHistorySearchRepository).forEachDocument(eq(1L), any());
+
+        // Act
+        historySearchIndex.search(user, "議事", PageRequest.of(0, 20));
+        Page<TextHistorySummary> page = historySearchIndex.search(user, "議事", PageRequest.of(0, 20));
+
+        // Assert
+        assertThat(page.getContent()).extracting(TextHistorySummary::getId).containsExactly(12L, 10L);
+        verify(textHistorySearchRepository, times(1)).forEachDocument(eq(1L), any());
+    }
+
+    @Test
+    void search_FailedBuild_ShouldRetryOnNextSearch() {
+        // Arrange
+        doThrow(new IllegalStateException("connection lost"))
+                .doNothing()
+                .when(textHistorySearchRepository).forEachDocument(eq(1L), any());
+
+        // Act & Assert
+        assertThatThrownBy(() -> historySearchIndex.search(user, "議事", PageRequest.of(0, 20)))
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(historySearchIndex.search(user, "議事", PageRequest.of(0, 20)).getContent()).isEmpty();
+        verify(textHistorySearchRepository, times(2)).forEachDocument(eq(1L), any());
+    }
+
+    private static List<TextHistorySummary> summaries(Collection<Long> ids) {
+        return ids.stream().map(id -> {
+            TextHistorySummary summary = mock(TextHistorySummary.class);
+            when(summary.getId()).thenReturn(id);
+            return summary;
+        }).toList();
+    }
+}
@@ -3,25 +3,44 @@ package same.com.textflow.service;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 import same.com.textflow.dto.request.HistoryRequest;
 import same.com.textflow.dto.request.ImportRequest;
+import same.com.textflow.dto.response.HistoryDetailResponse;
 import same.com.textflow.dto.response.HistoryResponse;
+import same.com.textflow.dto.response.HistorySliceResponse;
 import same.com.textflow.dto.response.ImportResponse;
+import same.com.textflow.entity.TextBlob;
 import same.com.textflow.entity.TextHistory;
 import same.com.textflow.entity.User;
+import same.com.textflow.exception.BadRequestException;
+import same.com.textflow.exception.ResourceNotFoundException;
+import same.com.textflow.repository.TextBlobRepository;
+import same.com.textflow.repository.TextHistoryBulkWriter;
 import same.com.textflow.repository.TextHistoryRepository;
+import same.com.textflow.repository.TextHistorySearchHit;
+import same.com.textflow.repository.TextHistorySearchRepository;
+import same.com.textflow.repository.TextHistorySummary;
+import same.com.textflow.repository.UserRepository;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
@@ -31,9 +50,30 @@ class HistoryServiceTest {
     @Mock
     private TextHistoryRepository textHistoryRepository;
 
+    @Mock
+    private TextHistoryBulkWriter textHistoryBulkWriter;
+
+    @Mock
+    private TextBlobRepository textBlobRepository;
+
     @Mock
     private UserService userService;
 
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private TextHistorySearchRepository textHistorySearchRepository;
+
+    @Mock
+    private HistorySearchIndex historySearchIndex;
+
+    @Mock
+    private HistoryWriteBehind historyWriteBehind;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
     @InjectMocks
     private HistoryService historyService;
 
@@ -42,6 +82,10 @@ class HistoryServiceTest {
 
     @BeforeEach
     void setUp() {
+        ReflectionTestUtils.setField(historyService, "searchMode", SearchMode.TITLE);
+        lenient().when(transactionTemplate.execute(any()))
+                .thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+
         testUser = User.builder()
                 .id(1L)
                 .email("test@example.com")
@@ -52,7 +96,7 @@ class HistoryServiceTest {
                 .id(1L)
                 .user(testUser)
                 .title("Test Title")
-                .content("Test Content")
+                .blob(TextBlob.of("Test Content"))
                 .contentType("plain")
                 .charCount(12)
                 .lineCount(1)
@@ -83,6 +127,24 @@ class HistoryServiceTest {
         assertThat(response.getTitle()).isEqualTo("New History");
         assertThat(response.getCharCount()).isEqualTo(request.getContent().length());
         verify(textHistoryRepository, times(1)).save(any(TextHistory.class));
+        verify(textBlobRepository).acquire("This is a test content.");
+    }
+
+    @Test
+    void createHistory_UserDeleted_ShouldThrowWhatUserServiceTranslatesTo() {
+        // Arrange
+        HistoryRequest request = new HistoryRequest();
+        request.setContent("This is a test content.");
+        DataIntegrityViolationException violation = new DataIntegrityViolationException("fk_user");
+        ResourceNotFoundException notFound = new ResourceNotFoundException("User", "id", 1L);
+
+        when(userService.getUserByEmail(anyString())).thenReturn(testUser);
+        when(textHistoryRepository.save(any(TextHistory.class))).thenThrow(violation);
+        when(userService.translateWriteFailure(testUser, violation)).thenReturn(notFound);
+
+        // Act & Assert
+        assertThatThrownBy(() -> historyService.createHistory("test@example.com", request))
+                .isSameAs(notFound);
     }
 
     @Test
@@ -102,14 +164,194 @@ class HistoryServiceTest {
         assertThat(response.getTitle()).endsWith("...");
     }
 
+    @Test
+    void createHistory_ShouldStoreFullStatistics() {
+        // Arrange
+        HistoryRequest request = new HistoryRequest();
+        request.setContent("吾輩は猫である。 name\n\n二段落目");
+
+        when(userService.getUserByEmail(anyString())).thenReturn(testUser);
+        when(textHistoryRepository.save(any(TextHistory.class))).thenAnswer(i -> i.getArgument(0));
+
+        // Act
+        HistoryResponse response = historyService.createHistory("test@example.com", request);
+
+        // Assert
+        assertThat(response.getCharCount()).isEqualTo(19);
+        assertThat(response.getLineCount()).isEqualTo(3);
+        assertThat(response.getByteCount()).isEqualTo(43);
+        assertThat(response.getWordCount()).isEqualTo(3);
+        assertThat(response.getParagraphCount()).isEqualTo(2);
+        assertThat(response.getManuscriptCount()).isEqualTo(1);
+    }
+
+    @Test
+    void createHistory_WriteBehind_ShouldQueueInsteadOfSaving() {
+        // Arrange
+        HistoryRequest request = new HistoryRequest();
+        request.setContent("自動保存の本文");
+
+        when(userService.getUserByEmail(anyString())).thenReturn(testUser);
+        when(historyWriteBehind.isEnabled()).thenReturn(true);
+        when(historyWriteBehind.write(any(TextHistory.class))).thenAnswer(invocation -> {
+            invocation.<TextHistory>getArgument(0).setId(42L);
+            return true;
+        });
+
+        // Act
+        HistoryResponse response = historyService.createHistory("test@example.com", request);
+
+        // Assert
+        assertThat(response.getId()).isEqualTo(42L);
+        assertThat(response.getCharCount()).isEqualTo(7);
+        verify(historyWriteBehind).write(argThat(history -> history.getBlob().getContent().equals("自動保存の本文")));
+        verifyNoInteractions(textHistoryRepository, textBlobRepository, transactionTemplate);
+    }
+
+    @Test
+    void createHistory_WriteBehindQueueFull_ShouldSaveSynchronously() {
+        // Arrange
+        HistoryRequest request = new HistoryRequest();
+        request.setContent("本文");
+
+        when(userService.getUserByEmail(anyString())).thenReturn(testUser);
+        when(historyWriteBehind.isEnabled()).thenReturn(true);
+        when(historyWriteBehind.write(any(TextHistory.class))).thenReturn(false);
+        when(textHistoryRepository.save(any(TextHistory.class))).thenAnswer(i -> i.getArgument(0));
+
+        // Act
+        historyService.createHistory("test@example.com", request);
+
+        // Assert
+        verify(textBlobRepository).acquire("本文");
+        verify(textHistoryRepository).save(argThat(history -> history.getId() == null));
+    }
+
+    @Test
+    void createHistory_DraftWithinWindow_ShouldUpdateRevisionAndReleaseOldBlob() {
+        // Arrange
+        HistoryRequest request = new HistoryRequest();
+        request.setContent("Test Content, edited");
+        request.setDraftId("draft-1");
+        testHistory.setDraftId("draft-1");
+
+        when(userService.getUserByEmail(anyString())).thenReturn(testUser);
+        when(userRepository.findLockedById(1L)).thenReturn(Optional.of(testUser));
+        when(textHistoryRepository.findFirstByUserAndDraftIdAndCreatedAtAfterOrderByCreatedAtDescIdDesc(
+                eq(testUser), eq("draft-1"), any(LocalDateTime.class))).thenReturn(Optional.of(testHistory));
+        when(textBlobRepository.acquire(any(TextBlob.class))).thenAnswer(i -> i.getArgument(0));
+
+        // Act
+        HistoryResponse response = historyService.createHistory("test@example.com", request);
+
+        // Assert
+        assertThat(response.getId()).isEqualTo(1L);
+        assertThat(response.getCharCount()).isEqualTo(20);
+        assertThat(testHistory.getBlob().getContent()).isEqualTo("Test Content, edited");
+        InOrder inOrder = inOrder(textHistoryRepository, textBlobRepository);
+        inOrder.verify(textHistoryRepository).flush();
+        inOrder.verify(textBlobRepository).release(TextBlob.hash("Test Content"));
+        verify(textHistoryRepository, never()).save(any(TextHistory.class));
+        verify(historySearchIndex).removed(1L, 1L);
+        verify(historySearchIndex).added(1L, 1L, "Test Content, edited", "Test Content, edited");
+    }
+
+    @Test
+    void createHistory_DraftUnchanged_ShouldKeepBlob() {
+        // Arrange
+        HistoryRequest request = new HistoryRequest();
+        request.setTitle("Test Title");
+        request.setContent("Test Content");
+        request.setDraftId("draft-1");
+
+        when(userService.getUserByEmail(anyString())).thenReturn(testUser);
+        when(userRepository.findLockedById(1L)).thenReturn(Optional.of(testUser));
+        when(textHistoryRepository.findFirstByUserAndDraftIdAndCreatedAtAfterOrderByCreatedAtDescIdDesc(
+                eq(testUser), eq("draft-1"), any(LocalDateTime.class))).thenReturn(Optional.of(testHistory));
+
+        // Act
+        historyService.createHistory("test@example.com", request);
+
+        // Assert
+        verify(textBlobRepository, never()).acquire(any(TextBlob.class));
+        verify(textBlobRepository, never()).release(anyString());
+    }
+
+    @Test
+    void createHistory_DraftWithoutRevision_ShouldSaveNewRow() {
+        // Arrange
+        HistoryRequest request = new HistoryRequest();
+        request.setContent("本文");
+        request.setDraftId("draft-2");
+
+        when(userService.getUserByEmail(anyString())).thenReturn(testUser);
+        when(userRepository.findLockedById(1L)).thenReturn(Optional.of(testUser));
+        when(textHistoryRepository.findFirstByUserAndDraftIdAndCreatedAtAfterOrderByCreatedAtDescIdDesc(
+                eq(testUser), eq("draft-2"), any(LocalDateTime.class))).thenReturn(Optional.empty());
+        when(textHistoryRepository.save(any(TextHistory.class))).thenAnswer(i -> i.getArgument(0));
+
+        // Act
+        historyService.createHistory("test@example.com", request);
+
+        // Assert
+        verify(textHistoryRepository).save(argThat(history -> "draft-2".equals(history.getDraftId())));
+        verify(historyWriteBehind, never()).write(any(TextHistory.class));
+    }
+
+    @Test
+    void createHistory_Draft_ShouldLockUserBeforeLookingUpRevision() {
+        // Arrange
+        // Two first saves of a draft both find no revision to lock; the user's row makes the second wait
+        HistoryRequest request = new HistoryRequest();
+        request.setContent("本文");
+        request.setDraftId("draft-3");
+
+        when(userService.getUserByEmail(anyString())).thenReturn(testUser);
+        when(userRepository.findLockedById(1L)).thenReturn(Optional.of(testUser));
+        when(textHistoryRepository.findFirstByUserAndDraftIdAndCreatedAtAfterOrderByCreatedAtDescIdDesc(
+                eq(testUser), eq("draft-3"), any(LocalDateTime.class))).thenReturn(Optional.empty());
+        when(textHistoryRepository.save(any(TextHistory.class))).thenAnswer(i -> i.getArgument(0));
+
+        // Act
+        historyService.createHistory("test@example.com", request);
+
+        // Assert
+        InOrder inOrder = inOrder(userRepository, textHistoryRepository);
+        inOrder.verify(userRepository).findLockedById(1L);
+        inOrder.verify(textHistoryRepository).findFirstByUserAndDraftIdAndCreatedAtAfterOrderByCreatedAtDescIdDesc(
+                eq(testUser), eq("draft-3"), any(LocalDateTime.class));
+        inOrder.verify(textHistoryRepository).save(any(TextHistory.class));
+    }
+
+    @Test
+    void getHistory_SavedBeforeStatistics_ShouldCountContent() {
+        // Arrange
+        when(userService.getUserByEmail(anyString())).thenReturn(testUser);
+        when(textHistoryRepository.findWithBlobByIdAndUser(1L, testUser)).thenReturn(Optional.of(testHistory));
+
+        // Act
+        HistoryDetailResponse response = historyService.getHistory("test@example.com", 1L);
+
+        // Assert
+        assertThat(response.getId()).isEqualTo(1L);
+        assertThat(response.getTitle()).isEqualTo("Test Title");
+        assertThat(response.getByteCount()).isEqualTo(12);
+        assertThat(response.getWordCount()).isEqualTo(2);
+        assertThat(response.getParagraphCount()).isEqualTo(1);
+    }
+
     @Test
     void getHistories_ShouldReturnPage() {
         // Arrange
         Pageable pageable = PageRequest.of(0, 10);
-        Page<TextHistory> page = new PageImpl<>(List.of(testHistory));
+        TextHistorySummary summary = mock(TextHistorySummary.class);
+        when(summary.getId()).thenReturn(1L);
+        when(summary.getTitle()).thenReturn("Test Title");
+        when(summary.getCharCount()).thenReturn(12);
+        Page<TextHistorySummary> page = new PageImpl<>(List.of(summary));
 
         when(userService.getUserByEmail(anyString())).thenReturn(testUser);
-        when(textHistoryRepository.findByUserOrderByCreatedAtDesc(any(User.class), any(Pageable.class)))
+        when(textHistoryRepository.findSummaryByUserOrderByCreatedAtDesc(any(User.class), any(Pageable.class)))
                 .thenReturn(page);
 
         // Act
@@ -118,6 +360,8 @@ class HistoryServiceTest {
         // Assert
         assertThat(result).hasSize(1);
         assertThat(result.getContent().get(0).getTitle()).isEqualTo("Test Title");
+        assertThat(result.getContent().get(0).getCharCount()).isEqualTo(12);
+        verify(textHistoryRepository, never()).findByUserOrderByCreatedAtDesc(any(User.class), any(Pageable.class));
     }
 
     @Test
@@ -128,15 +372,132 @@ class HistoryServiceTest {
         item1.setContent("Content 1");
         ImportRequest.ImportItem item2 = new ImportRequest.ImportItem();
         item2.setContent("Content 2");
-        request.setHistories(List.of(item1, item2));
+        ImportRequest.ImportItem empty = new ImportRequest.ImportItem();
+        empty.setContent("");
+        request.setHistories(List.of(item1, empty, item2));
 
         when(userService.getUserByEmail(anyString())).thenReturn(testUser);
+        when(textHistoryBulkWriter.insertAll(anyList())).thenReturn(1);
 
         // Act
         ImportResponse response = historyService.importHistories("test@example.com", request);
 
         // Assert
         assertThat(response.getImported()).isEqualTo(2);
-        verify(textHistoryRepository, times(2)).save(any(TextHistory.class));
+        assertThat(response.getBatches()).isEqualTo(1);
+        verify(textHistoryBulkWriter).insertAll(argThat(histories -> histories.size() == 2
+                && histories.get(1).getBlob().getContent().equals("Content 2")));
+        verify(textHistoryRepository, never()).save(any(TextHistory.class));
+    }
+
+    @Test
+    void deleteHistory_ShouldReleaseBlobAfterRowIsFlushed() {
+        // Arrange
+        when(userService.getUserByEmail(anyString())).thenReturn(testUser);
+        when(textHistoryRepository.findByIdAndUser(1L, testUser)).thenReturn(Optional.of(testHistory));
+
+        // Act
+        historyService.deleteHistory("test@example.com", 1L);
+
+        // Assert
+        InOrder inOrder = inOrder(textHistoryRepository, textBlobRepository);
+        inOrder.verify(textHistoryRepository).delete(testHistory);
+        inOrder.verify(textHistoryRepository).flush();
+        inOrder.verify(textBlobRepository).release(TextBlob.hash("Test Content"));
+    }
+
+    @Test
+    void getHistory_NotBackfilled_ShouldReadLegacyContent() {
+        // Arrange
+        testHistory.setBlob(null);
+        testHistory.setLegacyContent("Test Content");
+        when(userService.getUserByEmail(anyString())).thenReturn(testUser);
+        when(textHistoryRepository.findWithBlobByIdAndUser(1L, testUser)).thenReturn(Optional.of(testHistory));
+
+        // Act
+        HistoryDetailResponse response = historyService.getHistory("test@example.com", 1L);
+
+        // Assert
+        assertThat(response.getContent()).isEqualTo("Test Content");
+        assertThat(response.getByteCount()).isEqualTo(12);
+    }
+
+    @Test
+    void deleteHistory_NotBackfilled_ShouldNotReleaseAnyBlob() {
+        // Arrange
+        testHistory.setBlob(null);
+        testHistory.setLegacyContent("Test Content");
+        when(userService.getUserByEmail(anyString())).thenReturn(testUser);
+        when(textHistoryRepository.findByIdAndUser(1L, testUser)).thenReturn(Optional.of(testHistory));
+
+        // Act
+        historyService.deleteHistory("test@example.com", 1L);
+
+        // Assert
+        verify(textHistoryRepository).delete(testHistory);
+        verifyNoInteractions(textBlobRepository);
+        verify(historySearchIndex).removed(1L, 1L);
+    }
+
+    @Test
+    void scrollHistories_ShouldReturnCursorThatSeeksPastLastRow() {
+        // Arrange
+        LocalDateTime createdAt = LocalDateTime.of(2024, 5, 1, 12, 30, 15, 123_456_000);
+        TextHistorySummary summary = mock(TextHistorySummary.class);
+        when(summary.getId()).thenReturn(42L);
+        when(summary.getCreatedAt()).thenReturn(createdAt);
+
+        when(userService.getUserByEmail(anyString())).thenReturn(testUser);
+        when(textHistoryRepository.findSliceByUserOrderByCreatedAtDescIdDesc(any(User.class), any(Pageable.class)))
+                .thenReturn(new SliceImpl<>(List.of(summary), PageRequest.ofSize(1), true));
+        when(textHistoryRepository.findSummaryAfter(any(User.class), any(LocalDateTime.class), anyLong(),
+                any(Pageable.class))).thenReturn(new SliceImpl<>(List.of()));
+
+        // Act
+        HistorySliceResponse first = historyService.scrollHistories("test@example.com", null, 1);
+        historyService.scrollHistories("test@example.com", first.getNextCursor(), 1);
+
+        // Assert
+        assertThat(first.isHasNext()).isTrue();
+        verify(textHistoryRepository).findSummaryAfter(eq(testUser), eq(createdAt), eq(42L), any(Pageable.class));
+    }
+
+    @Test
+    void scrollHistories_InvalidCursor_ShouldThrowBadRequest() {
+        assertThatThrownBy(() -> historyService.scrollHistories("test@example.com", "not-a-cursor", 20))
+                .isInstanceOf(BadRequestException.class);
+        assertThatThrownBy(() -> historyService.scrollHistories("test@example.com", null, 0))
+                .isInstanceOf(BadRequestException.class);
+    }
+
+    @Test
+    void searchHistories_PostgresMode_ShouldReturnRankedHitsWithHighlights() {
+        // Arrange
+        ReflectionTestUtils.setField(historyService, "searchMode", SearchMode.POSTGRES);
+        Pageable pageable = PageRequest.of(0, 20);
+        TextHistorySearchHit hit = new TextHistorySearchHit(3L, "議事録 Draft", 120, 4, 360, 10, 2, 1, "plain",
+                LocalDateTime.now(), LocalDateTime.now(), 1.2, "前回の議事録と今回のdraftを比較");
+
+        when(userService.getUserByEmail(anyString())).thenReturn(testUser);
+        when(textHistorySearchRepository.search(1L, "draft", pageable)).thenReturn(new PageImpl<>(List.of(hit)));
+
+        // Act
+        Page<HistoryResponse> result = historyService.searchHistories("test@example.com", "draft", pageable);
+
+        // Assert
+        HistoryResponse response = result.getContent().get(0);
+        assertThat(response.getRank()).isEqualTo(1.2);
+        assertThat(response.getTitleHighlights()).containsExactly(new HistoryResponse.Highlight(4, 9));
+        assertThat(response.getSnippetHighlights()).containsExactly(new HistoryResponse.Highlight(10, 15));
+        verifyNoInteractions(textHistoryRepository);
+    }
+
+    @Test
+    void highlights_ShouldFindNonOverlappingMatchesIgnoringCase() {
+        assertThat(HistoryService.highlights("aaaa AAA", "aa"))
+                .containsExactly(new HistoryResponse.Highlight(0, 2), new HistoryResponse.Highlight(2, 4),
+                        new HistoryResponse.Highlight(5, 7));
+        assertThat(HistoryService.highlights("文字数カウント", "カウント"))
+                .containsExactly(new HistoryResponse.Highlight(3, 7));
     }
 }
@@ -0,0 +1,256 @@
+package same.com.textflow.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+import same.com.textflow.entity.TextBlob;
+import same.com.textflow.entity.TextHistory;
+import same.com.textflow.entity.User;
+import same.com.textflow.repository.TextHistoryBulkWriter;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Consumer;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class HistoryWriteBehindTest {
+
+    @Mock
+    private TextHistoryBulkWriter textHistoryBulkWriter;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private HistorySearchIndex historySearchIndex;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<List<Long>> batches = new CopyOnWriteArrayList<>();
+    private HistoryWriteBehind writeBehind;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(textHistoryBulkWriter.nextIds(anyInt()))
+                .thenAnswer(invocation -> LongStream.rangeClosed(1, invocation.<Integer>getArgument(0)).boxed().toList());
+        lenient().doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        writeBehind.stop();
+    }
+
+    @Test
+    void write_Committed_ShouldReturnAfterTheBatchIsInserted() {
+        // Arrange
+        writeBehind = writeBehind(WriteDurability.COMMITTED, 10);
+        recordBatches();
+        writeBehind.start();
+        TextHistory history = history("本文");
+
+        // Act
+        boolean queued = writeBehind.write(history);
+
+        // Assert
+        assertThat(queued).isTrue();
+        assertThat(history.getId()).isNotNull();
+        assertThat(history.getCreatedAt()).isNotNull();
+        assertThat(batches).containsExactly(List.of(history.getId()));
+        verify(historySearchIndex).added(1L, history.getId(), "title", "本文");
+        assertThat(meterRegistry.get("history.write_behind.flush").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void write_ConcurrentSaves_ShouldShareTransactions() {
+        // Arrange
+        writeBehind = writeBehind(WriteDurability.COMMITTED, 10);
+        recordBatches();
+        writeBehind.start();
+        List<CompletableFuture<Boolean>> saves = new ArrayList<>();
+
+        // Act
+        for (int i = 0; i < 40; i++) {
+            TextHistory history = history("本文" + i);
+            saves.add(CompletableFuture.supplyAsync(() -> writeBehind.write(history)));
+        }
+        saves.forEach(CompletableFuture::join);
+
+        // Assert
+        assertThat(batches.stream().mapToInt(List::size).sum()).isEqualTo(40);
+        assertThat(batches).allSatisfy(batch -> assertThat(batch).hasSizeLessThanOrEqualTo(10));
+        assertThat(batches.stream().flatMap(List::stream).distinct()).hasSize(40);
+    }
+
+    @Test
+    void write_FailedBatch_ShouldRetryEachHistoryAlone() throws InterruptedException {
+        // Arrange
+        writeBehind = writeBehind(WriteDurability.QUEUED, 10);
+        TextHistory good = history("良い");
+        TextHistory bad = history("悪い");
+        doAnswer(invocation -> {
+            List<TextHistory> histories = invocation.getArgument(0);
+            if (histories.contains(bad)) {
+                throw new IllegalStateException("foreign key violation");
+            }
+            batches.add(histories.stream().map(TextHistory::getId).toList());
+            return 1;
+        }).when(textHistoryBulkWriter).insertWithIds(anyList());
+        writeBehind.write(good);
+        writeBehind.write(bad);
+
+        // Act
+        writeBehind.start();
+        // Returns once the queue is written
+        writeBehind.stop();
+
+        // Assert
+        verify(textHistoryBulkWriter).insertWithIds(List.of(bad));
+        assertThat(batches).containsExactly(List.of(good.getId()));
+        assertThat(meterRegistry.get("history.write_behind.failed").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void write_Committed_FailedInsert_ShouldThrow() {
+        // Arrange
+        writeBehind = writeBehind(WriteDurability.COMMITTED, 10);
+        when(textHistoryBulkWriter.insertWithIds(anyList())).thenThrow(new IllegalStateException("down"));
+        writeBehind.start();
+
+        // Act & Assert
+        assertThatThrownBy(() -> writeBehind.write(history("本文")))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("履歴の保存に失敗しました");
+    }
+
+    @Test
+    void write_QueueFull_ShouldReturnFalse() {
+        // Arrange
+        writeBehind = new HistoryWriteBehind(textHistoryBulkWriter, transactionTemplate, historySearchIndex,
+                true, WriteDurability.QUEUED, 1, 10, Duration.ofSeconds(30), meterRegistry);
+
+        // Act
+        boolean first = writeBehind.write(history("一"));
+        boolean second = writeBehind.write(history("二"));
+
+        // Assert
+        assertThat(first).isTrue();
+        assertThat(second).isFalse();
+        assertThat(meterRegistry.get("history.write_behind.queue").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    void write_Committed_WriterStuck_ShouldTakeBackQueuedSaveAfterTimeout() throws InterruptedException {
+        // Arrange
+        writeBehind = new HistoryWriteBehind(textHistoryBulkWriter, transactionTemplate, historySearchIndex,
+                true, WriteDurability.COMMITTED, 1_000, 1, Duration.ofMillis(200), meterRegistry);
+        CountDownLatch inserting = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(textHistoryBulkWriter.insertWithIds(anyList())).thenAnswer(invocation -> {
+            inserting.countDown();
+            release.await();
+            return 1;
+        });
+        writeBehind.start();
+        CompletableFuture<Boolean> first = CompletableFuture.supplyAsync(() -> writeBehind.write(history("一")));
+        inserting.await();
+
+        // Act
+        boolean second = writeBehind.write(history("二"));
+
+        // Assert
+        assertThat(second).isFalse();
+        assertThat(meterRegistry.get("history.write_behind.queue").gauge().value()).isZero();
+        // Already being inserted, so it cannot be taken back
+        assertThatThrownBy(first::join).hasCauseInstanceOf(IllegalStateException.class);
+        release.countDown();
+    }
+
+    @Test
+    void write_InsertThrowsError_ShouldFailThatSaveAndKeepWriting() {
+        // Arrange
+        writeBehind = writeBehind(WriteDurability.COMMITTED, 10);
+        when(textHistoryBulkWriter.insertWithIds(anyList()))
+                .thenThrow(new NoClassDefFoundError("broken"))
+                .thenReturn(1);
+        writeBehind.start();
+
+        // Act & Assert
+        assertThatThrownBy(() -> writeBehind.write(history("一")))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("履歴の保存に失敗しました");
+        assertThat(writeBehind.write(history("二"))).isTrue();
+    }
+
+    @Test
+    void write_WriterInterrupted_ShouldFailQueuedSavesAndStopQueueing() throws InterruptedException {
+        // Arrange
+        writeBehind = writeBehind(WriteDurability.QUEUED, 10);
+        CountDownLatch inserting = new CountDownLatch(1);
+        when(textHistoryBulkWriter.insertWithIds(anyList())).thenAnswer(invocation -> {
+            inserting.countDown();
+            try {
+                new CountDownLatch(1).await();
+            } catch (InterruptedException e) {
+                // As a JDBC driver does: keep the interrupt and fail the statement
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("interrupted");
+            }
+            return 1;
+        });
+        writeBehind.start();
+        writeBehind.write(history("一"));
+        inserting.await();
+        writeBehind.write(history("二"));
+
+        // Act
+        Thread writer = (Thread) ReflectionTestUtils.getField(writeBehind, "writer");
+        writer.interrupt();
+        writer.join(5_000);
+
+        // Assert
+        assertThat(meterRegistry.get("history.write_behind.queue").gauge().value()).isZero();
+        assertThat(meterRegistry.get("history.write_behind.failed").counter().count()).isEqualTo(2);
+        assertThat(writeBehind.write(history("三"))).isFalse();
+    }
+
+    private HistoryWriteBehind writeBehind(WriteDurability durability, int batchSize) {
+        return new HistoryWriteBehind(textHistoryBulkWriter, transactionTemplate, historySearchIndex,
+                true, durability, 1_000, batchSize, Duration.ofSeconds(30), meterRegistry);
+    }
+
+    private void recordBatches() {
+        when(textHistoryBulkWriter.insertWithIds(anyList())).thenAnswer(invocation -> {
+            List<TextHistory> histories = invocation.getArgument(0);
+            batches.add(histories.stream().map(TextHistory::getId).toList());
+            return 1;
+        });
+    }
+
+    private static TextHistory history(String content) {
+        return TextHistory.builder()
+                .user(User.builder().id(1L).build())
+                .title("title")
+                .blob(TextBlob.of(content))
+                .build();
+    }
+}
@@ -0,0 +1,149 @@
+package same.com.textflow.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import same.com.textflow.dto.request.UserUpdateRequest;
+import same.com.textflow.entity.User;
+import same.com.textflow.exception.ResourceNotFoundException;
+import same.com.textflow.repository.TextBlobRepository;
+import same.com.textflow.repository.TextHistoryRepository;
+import same.com.textflow.repository.UserRepository;
+import same.com.textflow.security.TokenRevocationList;
+import same.com.textflow.security.UserPrincipal;
+import same.com.textflow.security.UserPrincipalCache;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserServiceTest {
+
+    private static final String EMAIL = "test@example.com";
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private TextHistoryRepository textHistoryRepository;
+
+    @Mock
+    private TextBlobRepository textBlobRepository;
+
+    private final TokenRevocationList tokenRevocationList = new TokenRevocationList(60_000);
+    private UserService userService;
+    private final User user = User.builder().id(7L).email(EMAIL).username("testuser").build();
+
+    @BeforeEach
+    void setUp() {
+        UserPrincipalCache cache = new UserPrincipalCache(userRepository, Duration.ofMinutes(1), 100,
+                new SimpleMeterRegistry());
+        userService = new UserService(userRepository, textHistoryRepository, textBlobRepository, cache,
+                tokenRevocationList);
+        lenient().when(userRepository.getReferenceById(7L)).thenReturn(user);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void getUserByEmail_AuthenticatedPrincipal_ShouldNotQueryByEmail() {
+        // Arrange
+        UserPrincipal principal = UserPrincipal.create(user, false);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+
+        // Act
+        User result = userService.getUserByEmail(EMAIL);
+
+        // Assert
+        assertThat(result.getId()).isEqualTo(7L);
+        verify(userRepository, never()).findByEmail(anyString());
+    }
+
+    @Test
+    void getUserByEmail_ShouldQueryOnceUntilInvalidated() {
+        when(userRepository.findByEmail(EMAIL)).thenReturn(Optional.of(user));
+
+        userService.getUserByEmail(EMAIL);
+        userService.getUserByEmail(EMAIL);
+        userService.deleteUser(EMAIL);
+        userService.getUserByEmail(EMAIL);
+
+        verify(userRepository, times(2)).findByEmail(EMAIL);
+    }
+
+    @Test
+    void deleteUser_ShouldReleaseBlobsAndRevokeIssuedTokens() {
+        // Arrange
+        when(userRepository.findByEmail(EMAIL)).thenReturn(Optional.of(user));
+        when(textBlobRepository.countReferences(7L)).thenReturn(Map.of("hash", 2));
+        Date issuedAt = new Date(System.currentTimeMillis() - 1000);
+
+        // Act
+        userService.deleteUser(EMAIL);
+
+        // Assert
+        InOrder inOrder = inOrder(userRepository, textBlobRepository);
+        inOrder.verify(userRepository).delete(user);
+        inOrder.verify(userRepository).flush();
+        inOrder.verify(textBlobRepository).release(Map.of("hash", 2));
+        assertThat(tokenRevocationList.isRevoked(7L, issuedAt)).isTrue();
+        assertThat(tokenRevocationList.isRevoked(8L, issuedAt)).isFalse();
+    }
+
+    @Test
+    void getUserByEmail_UnknownEmail_ShouldThrowNotFound() {
+        when(userRepository.findByEmail("missing@example.com")).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> userService.getUserByEmail("missing@example.com"))
+                .isInstanceOf(ResourceNotFoundException.class);
+    }
+
+    @Test
+    void updateUser_DeletedUser_ShouldThrowNotFound() {
+        // Arrange
+        when(userRepository.findByEmail(EMAIL)).thenReturn(Optional.of(user));
+        when(userRepository.findById(7L)).thenReturn(Optional.empty());
+        UserUpdateRequest request = new UserUpdateRequest();
+        request.setUsername("renamed");
+
+        // Act & Assert
+        assertThatThrownBy(() -> userService.updateUser(EMAIL, request))
+                .isInstanceOf(ResourceNotFoundException.class);
+        verify(userRepository, never()).save(any());
+    }
+
+    @Test
+    void translateWriteFailure_DeletedUser_ShouldReturnNotFound() {
+        when(userRepository.existsById(7L)).thenReturn(false);
+
+        assertThat(userService.translateWriteFailure(user, new DataIntegrityViolationException("fk")))
+                .isInstanceOf(ResourceNotFoundException.class);
+    }
+
+    @Test
+    void translateWriteFailure_ExistingUser_ShouldReturnTheViolation() {
+        DataIntegrityViolationException violation = new DataIntegrityViolationException("unique");
+        when(userRepository.existsById(7L)).thenReturn(true);
+
+        assertThat(userService.translateWriteFailure(user, violation)).isSameAs(violation);
+    }
+}
@@ -0,0 +1,42 @@
+package same.com.textflow.text;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CompressedTextTest {
+
+    @Test
+    void decompress_ShouldRestoreJapaneseProse() {
+        // Arrange
+        String text = "吾輩は猫である。名前はまだ無い。どこで生れたかとんと見当がつかぬ。😀\n".repeat(200);
+
+        // Act
+        byte[] packed = CompressedText.compress(text);
+
+        // Assert
+        assertThat(packed.length).isLessThan(text.getBytes(StandardCharsets.UTF_8).length / 4);
+        assertThat(CompressedText.decompress(packed)).isEqualTo(text);
+    }
+
+    @Test
+    void compress_IncompressibleOrMalformedText_ShouldReturnNull() {
+        assertThat(CompressedText.compress("短い本文")).isNull();
+        assertThat(CompressedText.compress("")).isNull();
+        assertThat(CompressedText.compress("\uD800 unpaired ".repeat(100))).isNull();
+    }
+
+    @Test
+    void decompress_CorruptInput_ShouldThrow() {
+        byte[] packed = CompressedText.compress("本文".repeat(1_000));
+        byte[] truncated = Arrays.copyOf(packed, packed.length / 2);
+
+        assertThatThrownBy(() -> CompressedText.decompress(truncated)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> CompressedText.decompress(new byte[]{9, 1, 0, 0, 0, 0}))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
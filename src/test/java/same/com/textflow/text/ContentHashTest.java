@@ -0,0 +1,32 @@
+package same.com.textflow.text;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ContentHashTest {
+
+    // Reference SipHash-2-4-128 vectors: key 00..0f, message 00..(n-1)
+    @ParameterizedTest
+    @CsvSource({
+            "0, e6a825ba047f81a3, 930255c71472f66d",
+            "2, c75da4a48d227781, e4ff0af6de8ba3fc",
+            "8, 61f55862baa9623b, b49714f364e2830f",
+            "16, bb54b067caa4e26e, 77052385bf1533fd",
+            "30, de6baf1f477f5cea, 87226d68d4d71a2b"
+    })
+    void of_ShouldMatchSipHashReferenceVectors(int byteLength, String high, String low) {
+        // Arrange
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < byteLength; i += 2) {
+            text.append((char) (i | (i + 1) << 8));
+        }
+
+        // Act
+        ContentHash hash = ContentHash.of(text, 0x0706050403020100L, 0x0f0e0d0c0b0a0908L);
+
+        // Assert
+        assertThat(hash).isEqualTo(new ContentHash(Long.parseUnsignedLong(high, 16), Long.parseUnsignedLong(low, 16)));
+    }
+}
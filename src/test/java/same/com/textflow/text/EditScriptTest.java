@@ -0,0 +1,63 @@
+package same.com.textflow.text;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EditScriptTest {
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+            "''|''",
+            "''|a",
+            "a|''",
+            "a\\nb|a\\nb\\n",
+            "\\n|''",
+            "一行目\\n二行目\\n三行目|一行目\\n変更😀\\n三行目\\n四行目"
+    })
+    void apply_ShouldRebuildTextAfter(String before, String after) {
+        before = before.replace("\\n", "\n");
+        after = after.replace("\\n", "\n");
+
+        byte[] script = EditScript.encode(LineDiff.compute(before, after));
+
+        assertThat(EditScript.apply(before, script)).isEqualTo(after);
+    }
+
+    @Test
+    void encode_TypicalEdit_ShouldBeFarSmallerThanText() {
+        // Arrange: a long document with a handful of edited lines
+        Random random = new Random(1L);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 2_000; i++) {
+            sb.append("段落").append(i).append(" 吾輩は猫である。名前はまだ無い。").append(random.nextInt()).append('\n');
+        }
+        String before = sb.toString();
+        String after = before.replace("段落100 ", "段落百 ").replace("段落1500 ", "") + "追記\n";
+
+        // Act
+        byte[] script = EditScript.encode(LineDiff.compute(before, after));
+
+        // Assert
+        assertThat(EditScript.apply(before, script)).isEqualTo(after);
+        assertThat(script.length * 10).isLessThan(after.getBytes(StandardCharsets.UTF_8).length);
+    }
+
+    @Test
+    void encode_UnpairedSurrogate_ShouldBeRejected() {
+        assertThat(EditScript.encode(LineDiff.compute("a", "b\uD83D"))).isNull();
+    }
+
+    @Test
+    void apply_WithDifferentOldText_ShouldThrow() {
+        byte[] script = EditScript.encode(LineDiff.compute("a\nb", "a\nc"));
+
+        assertThatThrownBy(() -> EditScript.apply("a", script)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,74 @@
+package same.com.textflow.text;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IncrementalDocumentTest {
+
+    private static final char[] ALPHABET = {
+            'a', 'b', ' ', ' ', '\n', '\n', '\n', '\t', '\r', '\u0001', '　', 'あ', '\uD83D', '\uDE00'
+    };
+
+    @Test
+    void summaryConcat_ShouldMatchSinglePassAtEverySplitPoint() {
+        Random random = new Random(7L);
+        for (int n = 0; n < 2_000; n++) {
+            String text = randomText(random, random.nextInt(40));
+            TextStatistics expected = TextScanner.scan(text);
+            for (int split = 0; split <= text.length(); split++) {
+                TextSummary joined = TextSummary.of(text, 0, split).concat(TextSummary.of(text, split, text.length()));
+                assertThat(joined.toStatistics()).as("split %d of %s", split, text).isEqualTo(expected);
+            }
+        }
+    }
+
+    @Test
+    void edit_ShouldMatchFullRecountAfterRandomEdits() {
+        Random random = new Random(11L);
+        StringBuilder expected = new StringBuilder(randomText(random, 10_000));
+        IncrementalDocument document = new IncrementalDocument(expected);
+
+        for (int i = 0; i < 2_000; i++) {
+            int offset = random.nextInt(expected.length() + 1);
+            int deleteLength = random.nextInt(Math.min(expected.length() - offset, 300) + 1);
+            String insert = randomText(random, random.nextInt(random.nextInt(10) == 0 ? 5_000 : 20));
+
+            expected.replace(offset, offset + deleteLength, insert);
+            document.edit(offset, deleteLength, insert);
+
+            assertThat(document.length()).isEqualTo(expected.length());
+            assertThat(document.statistics()).isEqualTo(TextScanner.scan(expected));
+        }
+        assertThat(document.text()).isEqualTo(expected.toString());
+    }
+
+    @Test
+    void edit_DeletingEverything_ShouldReturnEmptyStatistics() {
+        IncrementalDocument document = new IncrementalDocument("hello\n\nworld");
+
+        document.edit(0, 12, "");
+
+        assertThat(document.length()).isZero();
+        assertThat(document.statistics()).isEqualTo(TextStatistics.EMPTY);
+    }
+
+    @Test
+    void edit_OutsideDocument_ShouldThrow() {
+        IncrementalDocument document = new IncrementalDocument("abc");
+
+        assertThatThrownBy(() -> document.edit(2, 2, ""))
+                .isInstanceOf(IndexOutOfBoundsException.class);
+    }
+
+    private static String randomText(Random random, int length) {
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append(ALPHABET[random.nextInt(ALPHABET.length)]);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,115 @@
+package same.com.textflow.text;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LineDiffTest {
+
+    @Test
+    void compute_SmallInputs_ShouldProduceMinimalValidScript() {
+        Random random = new Random(42L);
+
+        for (int round = 0; round < 2_000; round++) {
+            String before = randomText(random, random.nextInt(30));
+            String after = random.nextBoolean() ? mutate(random, before) : randomText(random, random.nextInt(30));
+
+            LineDiff diff = LineDiff.compute(before, after);
+
+            assertThat(apply(diff)).as("before=%s after=%s", before, after).isEqualTo(after);
+            assertThat(keptLines(diff))
+                    .isEqualTo(lcsLength(LineDiff.splitLines(before), LineDiff.splitLines(after)));
+        }
+    }
+
+    @Test
+    void compute_LargeDissimilarInputs_ShouldStayValid() {
+        // Two 100,000 line inputs that share little: the cost limit keeps this fast
+        Random random = new Random(7L);
+        StringBuilder before = new StringBuilder();
+        StringBuilder after = new StringBuilder();
+        for (int i = 0; i < 100_000; i++) {
+            before.append("line ").append(random.nextInt(5_000)).append('\n');
+            after.append(i % 10 == 0 ? "line " + i : "line " + random.nextInt(5_000)).append('\n');
+        }
+
+        LineDiff diff = LineDiff.compute(before.toString(), after.toString());
+
+        assertThat(apply(diff)).isEqualTo(after.toString());
+    }
+
+    @Test
+    void compute_EmptyTexts_ShouldHaveNoLines() {
+        LineDiff diff = LineDiff.compute("", "a\nb");
+
+        assertThat(diff.getOldLines()).isEmpty();
+        assertThat(diff.isInserted(0)).isTrue();
+        assertThat(diff.isInserted(1)).isTrue();
+    }
+
+    private static String randomText(Random random, int lines) {
+        List<String> result = new ArrayList<>();
+        for (int i = 0; i < lines; i++) {
+            result.add(String.valueOf((char) ('a' + random.nextInt(5))));
+        }
+        return String.join("\n", result);
+    }
+
+    private static String mutate(Random random, String text) {
+        List<String> lines = new ArrayList<>(List.of(LineDiff.splitLines(text)));
+        for (int i = random.nextInt(4); i >= 0; i--) {
+            int at = lines.isEmpty() ? 0 : random.nextInt(lines.size());
+            if (random.nextBoolean() || lines.isEmpty()) {
+                lines.add(at, "x" + random.nextInt(3));
+            } else {
+                lines.remove(at);
+            }
+        }
+        return String.join("\n", lines);
+    }
+
+    // Rebuilds the new text from the old lines and the edit flags
+    private static String apply(LineDiff diff) {
+        String[] oldLines = diff.getOldLines();
+        String[] newLines = diff.getNewLines();
+        List<String> result = new ArrayList<>();
+        int i = 0;
+        int j = 0;
+        while (i < oldLines.length || j < newLines.length) {
+            if (i < oldLines.length && diff.isDeleted(i)) {
+                i++;
+            } else if (j < newLines.length && diff.isInserted(j)) {
+                result.add(newLines[j++]);
+            } else {
+                assertThat(oldLines[i]).isEqualTo(newLines[j]);
+                result.add(oldLines[i++]);
+                j++;
+            }
+        }
+        return String.join("\n", result);
+    }
+
+    private static int keptLines(LineDiff diff) {
+        int kept = 0;
+        for (int i = 0; i < diff.getOldLines().length; i++) {
+            if (!diff.isDeleted(i)) {
+                kept++;
+            }
+        }
+        return kept;
+    }
+
+    private static int lcsLength(String[] a, String[] b) {
+        int[][] dp = new int[a.length + 1][b.length + 1];
+        for (int i = a.length - 1; i >= 0; i--) {
+            for (int j = b.length - 1; j >= 0; j--) {
+                dp[i][j] = a[i].equals(b[j]) ? dp[i + 1][j + 1] + 1 : Math.max(dp[i + 1][j], dp[i][j + 1]);
+            }
+        }
+        return dp[0][0];
+    }
+}
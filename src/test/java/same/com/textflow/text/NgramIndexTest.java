@@ -0,0 +1,103 @@
+package same.com.textflow.text;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NgramIndexTest {
+
+    @Test
+    void search_ShouldMatchJapaneseAndIgnoreCase() {
+        NgramIndex index = new NgramIndex();
+        index.add(1, "議事録", "来週の打ち合わせについて");
+        index.add(2, "Draft", "コーヒーを飲む");
+        index.add(3, "メモ", "Coffee break");
+
+        assertThat(index.search("打ち合わせ").ids()).containsExactly(1L);
+        assertThat(index.search("DRAFT").ids()).containsExactly(2L);
+        assertThat(index.search("A").ids()).containsExactly(3L, 2L);
+        assertThat(index.search("存在しない").ids()).isEmpty();
+    }
+
+    @Test
+    void search_ShouldNotMatchAcrossTitleAndContent() {
+        NgramIndex index = new NgramIndex();
+        index.add(1, "ab", "cd");
+
+        assertThat(index.search("bc").ids()).isEmpty();
+    }
+
+    @Test
+    void search_ShouldReturnSupersetOfSubstringMatchesAndExactForShortQueries() {
+        Random random = new Random(42L);
+        NgramIndex index = new NgramIndex();
+        Map<Long, String> documents = new HashMap<>();
+        for (long id = 1; id <= 3_000; id++) {
+            String content = randomText(random, 5 + random.nextInt(40));
+            index.add(id, "", content);
+            documents.put(id, content);
+            if (random.nextInt(3) == 0) {
+                long removed = 1 + random.nextInt((int) id);
+                index.remove(removed);
+                documents.remove(removed);
+            }
+        }
+
+        for (int round = 0; round < 300; round++) {
+            String query = randomText(random, 1 + random.nextInt(4));
+            List<Long> expected = new ArrayList<>();
+            documents.forEach((id, content) -> {
+                if (content.contains(query)) {
+                    expected.add(id);
+                }
+            });
+
+            NgramIndex.Hits hits = index.search(query);
+
+            List<Long> actual = new ArrayList<>();
+            for (long id : hits.ids()) {
+                actual.add(id);
+            }
+            assertThat(actual).as(query).isSortedAccordingTo((a, b) -> Long.compare(b, a));
+            if (hits.exact()) {
+                assertThat(actual).as(query).containsExactlyInAnyOrderElementsOf(expected);
+            } else {
+                assertThat(actual).as(query).containsAll(expected).allMatch(documents::containsKey);
+            }
+        }
+        assertThat(index.size()).isEqualTo(documents.size());
+    }
+
+    @Test
+    void remove_ManyDocuments_ShouldCompactAndKeepSearching() {
+        NgramIndex index = new NgramIndex();
+        for (long id = 1; id <= 5_000; id++) {
+            index.add(id, "title", id % 2 == 0 ? "偶数" : "奇数");
+        }
+        long before = index.estimatedBytes();
+
+        for (long id = 1; id <= 4_000; id++) {
+            index.remove(id);
+        }
+        index.add(5_001, "title", "偶数");
+
+        assertThat(index.search("偶数").ids()).hasSize(501).startsWith(5_001L, 5_000L);
+        assertThat(index.search("奇数").ids()).hasSize(500);
+        assertThat(index.estimatedBytes()).isLessThan(before);
+    }
+
+    private static String randomText(Random random, int length) {
+        String alphabet = "abcあいう漢字";
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,52 @@
+package same.com.textflow.text;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenDiffTest {
+
+    private static final long NO_DEADLINE = 0;
+
+    @Test
+    void words_ShouldSplitAtScriptAndWhitespaceBoundaries() {
+        TokenDiff diff = TokenDiff.words("The quick fox, コーヒーを飲む", "The slow fox, コーヒーを飲んだ", NO_DEADLINE);
+
+        assertThat(changed(diff.getOldSegments())).containsExactly("quick", "む");
+        assertThat(changed(diff.getNewSegments())).containsExactly("slow", "んだ");
+    }
+
+    @Test
+    void characters_ShouldKeepSurrogatePairsWhole() {
+        TokenDiff diff = TokenDiff.characters("a😀b", "a😃b", NO_DEADLINE);
+
+        assertThat(changed(diff.getOldSegments())).containsExactly("😀");
+        assertThat(changed(diff.getNewSegments())).containsExactly("😃");
+    }
+
+    @Test
+    void characters_SegmentsShouldRebuildBothSides() {
+        String before = "長い日本語の行".repeat(500);
+        String after = before.replace("日本", "英").substring(3);
+
+        TokenDiff diff = TokenDiff.characters(before, after, System.nanoTime() + 5_000_000_000L);
+
+        assertThat(String.join("", texts(diff.getOldSegments()))).isEqualTo(before);
+        assertThat(String.join("", texts(diff.getNewSegments()))).isEqualTo(after);
+    }
+
+    @Test
+    void characters_PastDeadline_ShouldGiveUp() {
+        assertThat(TokenDiff.characters("abc", "abd", System.nanoTime() - 1)).isNull();
+    }
+
+    private static List<String> changed(List<TokenDiff.Segment> segments) {
+        return segments.stream().filter(TokenDiff.Segment::changed).map(TokenDiff.Segment::text).toList();
+    }
+
+    private static List<String> texts(List<TokenDiff.Segment> segments) {
+        return segments.stream().map(TokenDiff.Segment::text).toList();
+    }
+}
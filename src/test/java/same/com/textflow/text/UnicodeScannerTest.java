@@ -0,0 +1,70 @@
+package same.com.textflow.text;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UnicodeScannerTest {
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+            "''|0|0|0",
+            "abc|3|3|3",
+            "日本語|3|3|6",
+            "が|2|1|4",                    // decomposed が
+            "é|2|1|2",                     // e + combining acute
+            "😀|1|1|2",
+            "👍🏽|2|1|2",              // skin tone modifier
+            "👨‍👩‍👧|5|1|2",          // ZWJ family
+            "🇯🇵🇺|3|2|4",             // flag + lone regional indicator
+            "1️⃣|3|1|2",               // keycap
+            "각|3|1|6",          // conjoining jamo
+            "각ᆨ|2|1|4",                // LVT + T
+            "…“|2|2|3",                // ellipsis weighs 2, quotation mark 1
+            "‘x’|3|3|3"
+    })
+    void scan_ShouldCountCodePointsGraphemesAndWeight(String text, long codePoints, long graphemes, long weighted) {
+        UnicodeScanner.Result result = UnicodeScanner.scan(text);
+
+        assertThat(result.codePoints()).isEqualTo(codePoints);
+        assertThat(result.graphemes()).isEqualTo(graphemes);
+        assertThat(result.weightedLength()).isEqualTo(weighted);
+    }
+
+    @Test
+    void scan_ShouldKeepCrLfTogether() {
+        UnicodeScanner.Result result = UnicodeScanner.scan("a\r\nb\n\r");
+
+        assertThat(result.codePoints()).isEqualTo(6);
+        assertThat(result.graphemes()).isEqualTo(5);
+    }
+
+    @Test
+    void scan_WithChunkedInput_ShouldMatchSinglePass() {
+        String text = "家族👨‍👩‍👧と旗🇯🇵\r\nが";
+        char[] chars = text.toCharArray();
+
+        for (int split = 0; split <= chars.length; split++) {
+            UnicodeScanner scanner = new UnicodeScanner();
+            scanner.accept(chars, 0, split);
+            scanner.accept(chars, split, chars.length - split);
+
+            assertThat(scanner.finish()).as("split at %d", split).isEqualTo(UnicodeScanner.scan(text));
+        }
+    }
+
+    @Test
+    void scan_WithUnpairedSurrogates_ShouldCountEachAsOneCluster() {
+        UnicodeScanner.Result result = UnicodeScanner.scan("a😀\uD83Db\uDE00");
+
+        assertThat(result.codePoints()).isEqualTo(5);
+        assertThat(result.graphemes()).isEqualTo(5);
+    }
+
+    @Test
+    void table_ShouldStayCompact() {
+        assertThat(GraphemeTable.sizeInBytes()).isLessThan(64 * 1024);
+    }
+}